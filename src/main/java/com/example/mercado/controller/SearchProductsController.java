@@ -1,61 +1,58 @@
 package com.example.mercado.controller;
 
+import com.example.mercado.dto.ProductGroupDto;
 import com.example.mercado.dto.ProductsDto;
+import com.example.mercado.dto.ResultPageDto;
 import com.example.mercado.dto.SearchDto;
-import com.example.mercado.scraper.ProductScraper;
-import jakarta.annotation.PreDestroy;
+import com.example.mercado.dto.SearchResultDto;
+import com.example.mercado.dto.StoreResultsDto;
+import com.example.mercado.service.CatalogIndex;
+import com.example.mercado.service.PriceHistory;
+import com.example.mercado.service.SearchService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
-// add this import
-import java.util.Collections;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Controller
 public class SearchProductsController {
 
     private final Logger logger = LoggerFactory.getLogger(SearchProductsController.class);
 
-    private final List<ProductScraper> scrapers;
+    // Upper bound for an open stream; stores time out well before this
+    private static final long STREAM_TIMEOUT_MS = 30_000;
 
-    // Simple in-memory cache with TTL per query
-    private static final long CACHE_TTL_MS = 5 * 60 * 1000; // 5 minutes
-    private record CacheEntry(List<ProductsDto> data, long timestamp) {}
-    private final ConcurrentHashMap<String, CacheEntry> cache = new ConcurrentHashMap<>();
+    private static final int MAX_LOCAL_RESULTS = 200;
 
-    // Parallel executor
-    private final ExecutorService fetchPool = Executors.newFixedThreadPool(
-            Math.max(4, Runtime.getRuntime().availableProcessors() / 2)
-    );
+    // Rows rendered per page; further pages come from /search/results
+    private static final int PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
 
-    public SearchProductsController(List<ProductScraper> scrapers) {
-        this.scrapers = scrapers;
-    }
+    private final SearchService searchService;
 
-    @PreDestroy
-    void shutdown() {
-        fetchPool.shutdown();
+    public SearchProductsController(SearchService searchService) {
+        this.searchService = searchService;
     }
 
     @GetMapping("/")
     public String search(Model model) {
         model.addAttribute("products", new ArrayList<>());
+        model.addAttribute("total", 0);
+        model.addAttribute("pageSize", PAGE_SIZE);
         model.addAttribute("searchForm", new SearchDto());
         return "index";
     }
@@ -65,70 +62,125 @@ public class SearchProductsController {
         try {
             if (request == null || request.getSearch() == null || request.getSearch().trim().isEmpty()) {
                 model.addAttribute("products", new ArrayList<>());
+                model.addAttribute("total", 0);
+                model.addAttribute("pageSize", PAGE_SIZE);
                 model.addAttribute("searchForm", request == null ? new SearchDto() : request);
                 model.addAttribute("errorMessage", "Ingresa un término de búsqueda.");
                 return "index";
             }
 
             String rawQuery = request.getSearch().trim();
-            String encodedQuery = URLEncoder.encode(rawQuery, StandardCharsets.UTF_8);
-
-            // Cache key (normalized)
-            String cacheKey = rawQuery.toLowerCase();
-
-            // 1) Try cache hit
-            CacheEntry cached = cache.get(cacheKey);
-            if (cached != null && (System.currentTimeMillis() - cached.timestamp) < CACHE_TTL_MS) {
-                logger.info("Cache hit for query: {}", rawQuery);
-                model.addAttribute("products", cached.data);
-                model.addAttribute("searchForm", request);
-                return "index";
-            }
-
-            // 2) Fetch from all scrapers in parallel
-            List<CompletableFuture<List<ProductsDto>>> futures = scrapers.stream()
-                    .map(scraper -> CompletableFuture.supplyAsync(() -> {
-                        try {
-                            return scraper.scrape(encodedQuery);
-                        } catch (Exception ex) {
-                            logger.warn("Scraper {} failed: {}", scraper.getClass().getSimpleName(), ex.toString());
-                            // use typed empty list
-                            return Collections.<ProductsDto>emptyList();
-                        }
-                    }, fetchPool))
-                    .toList();
-
-            List<ProductsDto> merged = futures.stream()
-                    .map(f -> {
-                        try {
-                            return f.get(12, TimeUnit.SECONDS);
-                        } catch (Exception ex) {
-                            return List.<ProductsDto>of();
-                        }
-                    })
-                    .flatMap(List::stream)
-                    .toList();
-
-            // Filter and sort
-            Pattern p = Pattern.compile(Pattern.quote(rawQuery), Pattern.CASE_INSENSITIVE);
-            List<ProductsDto> productsDtoList = merged.stream()
-                    .filter(c -> c.getName() != null && p.matcher(c.getName()).find())
-                    .sorted(Comparator.comparing(ProductsDto::getPrice)
-                            .thenComparing(ProductsDto::getName, String.CASE_INSENSITIVE_ORDER))
-                    .collect(Collectors.toList());
-
-            // 3) Store in cache
-            cache.put(cacheKey, new CacheEntry(productsDtoList, System.currentTimeMillis()));
-
-            model.addAttribute("products", productsDtoList);
+            SearchResultDto result = searchService.search(rawQuery);
+            ResultPageDto first = SearchService.page(result, 0, PAGE_SIZE);
+
+            model.addAttribute("products", first.getProducts());
+            model.addAttribute("total", first.getTotal());
+            model.addAttribute("pageSize", PAGE_SIZE);
+            model.addAttribute("omittedStores", result.getOmittedStores());
+            model.addAttribute("groups", searchService.compare(result));
             model.addAttribute("searchForm", request);
             return "index";
         } catch (Exception e) {
             logger.error("Search failed", e);
             model.addAttribute("products", new ArrayList<>());
+            model.addAttribute("total", 0);
+            model.addAttribute("pageSize", PAGE_SIZE);
             model.addAttribute("searchForm", request == null ? new SearchDto() : request);
             model.addAttribute("errorMessage", "No pudimos completar la búsqueda. Intenta de nuevo más tarde.");
             return "index";
         }
     }
+
+    // Server-sent events: one "store" event per store as soon as it answers, carrying only that store's cheapest
+    // page (the union of those holds the first page overall) and how many it found, then a final "done" event
+    // carrying the total, the stores that were omitted and the products found in more than one store
+    @GetMapping(value = "/search/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamSearch(@RequestParam(value = "q", required = false) String q) {
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        if (q == null || q.trim().isEmpty()) {
+            sendDone(emitter, 0, List.of(), List.of());
+            return emitter;
+        }
+
+        String rawQuery = q.trim();
+        AtomicInteger total = new AtomicInteger();
+        searchService.stream(rawQuery, result -> {
+                    total.addAndGet(result.getProducts().size());
+                    try {
+                        emitter.send(SseEmitter.event().name("store").data(firstPage(result), MediaType.APPLICATION_JSON));
+                    } catch (IOException | IllegalStateException ex) {
+                        // Client went away; remaining stores still finish and fill the cache
+                        logger.debug("Stream for '{}' closed early: {}", rawQuery, ex.toString());
+                    }
+                })
+                .whenComplete((result, ex) -> {
+                    if (ex != null) logger.warn("Streamed search failed for '{}': {}", rawQuery, ex.toString());
+                    if (result == null) {
+                        sendDone(emitter, total.get(), List.of(), List.of());
+                    } else {
+                        sendDone(emitter, total.get(), result.getOmittedStores(), searchService.compare(result));
+                    }
+                });
+        return emitter;
+    }
+
+    // A page of a search's price-sorted products; repeating the search is a cache hit while it is fresh
+    @GetMapping(value = "/search/results", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResultPageDto results(@RequestParam(value = "q", required = false) String q,
+                                 @RequestParam(value = "offset", defaultValue = "0") int offset,
+                                 @RequestParam(value = "limit", defaultValue = "" + PAGE_SIZE) int limit) {
+        int size = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+        if (q == null || q.trim().isEmpty()) {
+            return ResultPageDto.builder().products(List.of()).offset(0).limit(size).total(0)
+                    .omittedStores(List.of()).build();
+        }
+        return searchService.page(q.trim(), offset, size);
+    }
+
+    // Instant results from products already scraped, ranked by match quality; no store is contacted
+    @GetMapping(value = "/search/local", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public List<CatalogIndex.Hit> localSearch(@RequestParam(value = "q", required = false) String q,
+                                              @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        if (q == null || q.trim().isEmpty()) return List.of();
+        return searchService.searchCatalog(q.trim(), Math.min(Math.max(limit, 1), MAX_LOCAL_RESULTS));
+    }
+
+    // Products found in more than one store for a search, each with its cheapest offer and price spread
+    @GetMapping(value = "/search/compare", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public List<ProductGroupDto> compare(@RequestParam(value = "q", required = false) String q) {
+        if (q == null || q.trim().isEmpty()) return List.of();
+        return searchService.compare(q.trim());
+    }
+
+    // Price over time for one store's product, from the local history; 404 when it was never seen
+    @GetMapping(value = "/history", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<PriceHistory.History> priceHistory(@RequestParam("origin") String origin,
+                                                             @RequestParam("name") String name) {
+        return ResponseEntity.of(searchService.priceHistory(origin, name));
+    }
+
+    private static StoreResultsDto firstPage(StoreResultsDto result) {
+        List<ProductsDto> products = result.getProducts();
+        return StoreResultsDto.builder()
+                .store(result.getStore())
+                .products(products.size() <= PAGE_SIZE ? products : List.copyOf(products.subList(0, PAGE_SIZE)))
+                .total(products.size())
+                .elapsedMs(result.getElapsedMs())
+                .omitted(result.isOmitted())
+                .build();
+    }
+
+    private void sendDone(SseEmitter emitter, int total, List<String> omittedStores, List<ProductGroupDto> groups) {
+        try {
+            emitter.send(SseEmitter.event().name("done")
+                    .data(Map.of("total", total, "omittedStores", omittedStores, "groups", groups), MediaType.APPLICATION_JSON));
+            emitter.complete();
+        } catch (IOException | IllegalStateException ex) {
+            emitter.completeWithError(ex);
+        }
+    }
 }
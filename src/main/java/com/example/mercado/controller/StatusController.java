@@ -0,0 +1,68 @@
+package com.example.mercado.controller;
+
+import com.example.mercado.scraper.HostLimiter;
+import com.example.mercado.scraper.RenderModeRouter;
+import com.example.mercado.scraper.RequestHedger;
+import com.example.mercado.service.SearchService;
+import com.example.mercado.service.SearchTraces;
+import com.example.mercado.service.StoreCircuitBreakers;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.List;
+
+@Controller
+public class StatusController {
+
+    private final SearchService searchService;
+    private final RequestHedger hedger;
+    private final SearchTraces traces;
+    private final RenderModeRouter renderModes;
+    private final HostLimiter hostLimiter;
+
+    public StatusController(SearchService searchService, RequestHedger hedger, SearchTraces traces,
+                            RenderModeRouter renderModes, HostLimiter hostLimiter) {
+        this.searchService = searchService;
+        this.hedger = hedger;
+        this.traces = traces;
+        this.renderModes = renderModes;
+        this.hostLimiter = hostLimiter;
+    }
+
+    // Circuit state, recent failure rate, latency percentiles and current timeout of every store scraped so far
+    @GetMapping(value = "/status/stores", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public List<StoreCircuitBreakers.Status> stores() {
+        return searchService.storeStatus();
+    }
+
+    // Per host: fetches, hedges issued and how often the hedge answered first, with the p95 that triggers them
+    @GetMapping(value = "/status/hedging", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public List<RequestHedger.HostStats> hedging() {
+        return hedger.stats();
+    }
+
+    // Per host: connection limit, connections in use, requests queued for one, and how long they waited
+    @GetMapping(value = "/status/hosts", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public List<HostLimiter.HostStats> hosts() {
+        return hostLimiter.stats();
+    }
+
+    // The last searches, each with when every store scrape started and how long it took
+    @GetMapping(value = "/status/traces", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public List<SearchTraces.Trace> traces() {
+        return traces.recent();
+    }
+
+    // How each browser-capable store is fetched now, with the probe results behind it
+    @GetMapping(value = "/status/render", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public List<RenderModeRouter.StoreMode> render() {
+        return renderModes.status();
+    }
+}
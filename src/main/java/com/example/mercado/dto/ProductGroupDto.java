@@ -0,0 +1,23 @@
+package com.example.mercado.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class ProductGroupDto {
+     // Name of the cheapest offer
+     private String name;
+     // Size shared by every offer, e.g. "1 kg" or "6 u + 500 ml"; null when the names carry none
+     private String size;
+     private Long bestPrice;
+     private String bestOrigin;
+     private Long maxPrice;
+     // What buying at the most expensive store instead of the cheapest costs
+     private Long spread;
+     private int stores;
+     // Cheapest first
+     private List<ProductsDto> offers;
+}
@@ -0,0 +1,18 @@
+package com.example.mercado.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class ResultPageDto {
+     // Products offset..offset+limit of the price-sorted result
+     private List<ProductsDto> products;
+     private int offset;
+     private int limit;
+     // Products in the whole result
+     private int total;
+     private List<String> omittedStores;
+}
@@ -0,0 +1,18 @@
+package com.example.mercado.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class SearchResultDto {
+     private List<ProductsDto> products;
+     // Stores that failed or missed the search deadline, so their products are missing
+     private List<String> omittedStores;
+     // Each store's own answer, so a search served from the cache streams the same events its load did
+     private List<StoreResultsDto> stores;
+     // Products sold by more than one store; grouped on first use and kept with the cached result
+     private List<ProductGroupDto> groups;
+}
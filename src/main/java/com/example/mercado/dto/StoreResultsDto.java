@@ -0,0 +1,18 @@
+package com.example.mercado.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class StoreResultsDto {
+     private String store;
+     private List<ProductsDto> products;
+     // Products the store had for the query; products may hold only the cheapest of them
+     private int total;
+     private long elapsedMs;
+     // True when the store failed or missed the deadline
+     private boolean omitted;
+}
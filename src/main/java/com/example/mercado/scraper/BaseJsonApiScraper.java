@@ -0,0 +1,93 @@
+package com.example.mercado.scraper;
+
+import com.example.mercado.dto.ProductsDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.jsoup.HttpStatusException;
+import org.jsoup.parser.Parser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.nio.channels.UnresolvedAddressException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * A store read through the JSON API its own search page calls, instead of its HTML or a browser render:
+ * one small request, streamed straight into products.
+ * <p>
+ * When the API breaks its contract (its host cannot be resolved, connected to or negotiated TLS with, the
+ * endpoint is gone or rejects the request, the body is not JSON, or the items are not where
+ * {@link JsonProductReader.Fields} says) the store is scraped the old way, and the API is left alone for
+ * {@link #API_RETRY_MS} before it is tried again. Timeouts and server errors are not contract changes and
+ * fail the scrape as usual.
+ */
+public abstract class BaseJsonApiScraper extends BaseJsoupScraper {
+
+    private final Logger logger = LoggerFactory.getLogger(BaseJsonApiScraper.class);
+
+    static final long API_RETRY_MS = 10 * 60_000;
+
+    private volatile long apiRetryAt;
+
+    /**
+     * Products for the API response at {@code apiUrl}, or from {@code fallback} while the API is broken.
+     */
+    protected List<ProductsDto> scrapeApi(String apiUrl, JsonProductReader.Fields fields, String base, String path,
+                                          Callable<List<ProductsDto>> fallback) throws Exception {
+        if (System.currentTimeMillis() < apiRetryAt) return fallback.call();
+        try {
+            HttpTransport.Response response = fetchPage(apiUrl, null, "api");
+            long start = System.nanoTime();
+            List<JsonProductReader.Item> items = JsonProductReader.read(response.body(), fields);
+            List<ProductsDto> out = new ArrayList<>(items.size());
+            for (JsonProductReader.Item item : items) {
+                // Names come as the store shows them, HTML entities included
+                String name = Parser.unescapeEntities(item.name(), false);
+                out.add(product(name, item.price(), "GS", resolve(response.uri(), item.image()), base, path + name));
+            }
+            return parsed(start, out);
+        } catch (JsonProductReader.ContractException | JsonProcessingException ex) {
+            brokeContract(ex.getMessage());
+        } catch (HttpStatusException ex) {
+            if (ex.getStatusCode() >= 500 || ex.getStatusCode() == 429) throw ex;
+            brokeContract("HTTP " + ex.getStatusCode());
+        } catch (IOException ex) {
+            if (!unreachable(ex)) throw ex;
+            brokeContract("host unreachable: " + ex);
+        }
+        return fallback.call();
+    }
+
+    // The API host moved or never was: no DNS record, nothing listening, or a TLS setup that fails
+    static boolean unreachable(Throwable ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof UnknownHostException || t instanceof UnresolvedAddressException
+                    || t instanceof ConnectException || t instanceof SSLException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void brokeContract(String reason) {
+        apiRetryAt = System.currentTimeMillis() + API_RETRY_MS;
+        fellBack("api");
+        logger.warn("{} API contract broken ({}); scraping the page for the next {} s", name(), reason,
+                API_RETRY_MS / 1000);
+    }
+
+    private static String resolve(URI apiUri, String image) {
+        if (image.isEmpty()) return image;
+        try {
+            return apiUri.resolve(image).toString();
+        } catch (IllegalArgumentException ex) {
+            return image;
+        }
+    }
+}
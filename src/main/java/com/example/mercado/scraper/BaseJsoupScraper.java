@@ -1,36 +1,294 @@
 package com.example.mercado.scraper;
 
 import com.example.mercado.dto.ProductsDto;
-import org.jsoup.Jsoup;
+import com.example.mercado.service.ProductQuery;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLHandshakeException;
 import java.net.URL;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
 
 public abstract class BaseJsoupScraper implements ProductScraper {
 
-    protected Document fetch(String url) throws Exception {
-        return Jsoup
-            .connect(url)
-            .userAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 Chrome/120 Safari/537.36")
-            .referrer("https://www.google.com")
-            .timeout(8000)
-            .maxBodySize(1_200_000)
-            .get();
+    private final Logger logger = LoggerFactory.getLogger(BaseJsoupScraper.class);
+
+    // Result pages are fetched on virtual threads; nothing to shut down
+    private static final ExecutorService PAGES = Executors.newVirtualThreadPerTaskExecutor();
+
+    private HostLimiter hostLimiter = HostLimiter.unlimited();
+    private RequestHedger hedger = RequestHedger.disabled();
+    private ScraperMetrics metrics = ScraperMetrics.noop();
+    private RenderModeRouter router = RenderModeRouter.defaults();
+    private HttpTransport transport;
+    // One page unless configured, so scrapers run outside Spring behave as before
+    private int maxPages = 1;
+    private int enoughProducts = Integer.MAX_VALUE;
+    private long pagingRecheckMs = 600_000;
+    // Set when page 2 came back as a copy of page 1, the store ignoring the page parameter: one page is read
+    // until then, and the next scrape after it probes paging again
+    private volatile long singlePageUntil;
+
+    @Autowired
+    void setHostLimiter(HostLimiter hostLimiter) {
+        this.hostLimiter = hostLimiter;
+    }
+
+    @Autowired
+    void setHedger(RequestHedger hedger) {
+        this.hedger = hedger;
+    }
+
+    @Autowired
+    void setMetrics(ScraperMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Autowired
+    void setRouter(RenderModeRouter router) {
+        this.router = router;
+    }
+
+    @Autowired
+    void setPaging(@Value("${mercado.pages.max:3}") int maxPages,
+                   @Value("${mercado.pages.enough-products:72}") int enoughProducts,
+                   @Value("${mercado.pages.recheck-ms:600000}") long pagingRecheckMs) {
+        this.maxPages = Math.max(1, maxPages);
+        this.enoughProducts = Math.max(1, enoughProducts);
+        this.pagingRecheckMs = pagingRecheckMs;
+    }
+
+    @Autowired
+    void setTransport(HttpTransport transport) {
+        this.transport = transport;
+    }
+
+    protected HttpTransport transport() {
+        if (transport == null) transport = HttpTransport.defaults();
+        return transport;
+    }
+
+    /**
+     * Results from up to {@code max} pages of {@link #scrapePage}: every page is requested at once, each
+     * through the host limit, and read in order until one of them says there is nothing more worth having:
+     * <ul>
+     *     <li>it has fewer products than a full page, so it is the last</li>
+     *     <li>{@code enough-products} products matching every query word are in</li>
+     *     <li>none of its products match the query any more, the store is padding with loose matches</li>
+     *     <li>it failed; the pages read so far are kept</li>
+     *     <li>it adds nothing new: a store that clamps an out-of-range page to its last one</li>
+     * </ul>
+     * Products already read on an earlier page (same name, price and url) are dropped, as overlapping pages of
+     * an unstable sort would otherwise list them twice. The pages not needed are cancelled. A store whose
+     * page 2 repeats page 1 is read one page at a time for {@code recheck-ms}, then probed again.
+     */
+    protected List<ProductsDto> scrapePages(String encodedQuery) throws Exception {
+        int pages = System.currentTimeMillis() < singlePageUntil ? 1 : maxPages;
+        if (pages == 1) return scrapePage(encodedQuery, 1);
+
+        List<Future<List<ProductsDto>>> pending = new ArrayList<>(pages);
+        try {
+            for (int page = 1; page <= pages; page++) {
+                int n = page;
+                pending.add(PAGES.submit(() -> scrapePage(encodedQuery, n)));
+            }
+            List<ProductsDto> first = page(pending.get(0));
+            List<ProductsDto> out = new ArrayList<>(first);
+            Set<Listing> seen = new HashSet<>();
+            for (ProductsDto p : first) seen.add(Listing.of(p));
+            Predicate<ProductsDto> relevant = relevance(encodedQuery);
+            int fullPage = first.size();
+            int matching = (int) first.stream().filter(relevant).count();
+            List<ProductsDto> last = first;
+            for (int page = 2; page <= pages; page++) {
+                if (last.size() < fullPage || matching >= enoughProducts || last.stream().noneMatch(relevant)) break;
+                List<ProductsDto> next;
+                try {
+                    next = page(pending.get(page - 1));
+                } catch (InterruptedException ex) {
+                    throw ex;
+                } catch (Exception ex) {
+                    logger.debug("{} page {} failed, keeping {} pages: {}", name(), page, page - 1, ex.toString());
+                    break;
+                }
+                if (page == 2 && !next.isEmpty() && sameProduct(next.get(0), first.get(0))) {
+                    singlePageUntil = System.currentTimeMillis() + pagingRecheckMs;
+                    logger.info("{} answers page 2 with page 1; reading one page for the next {} s", name(),
+                            pagingRecheckMs / 1000);
+                    break;
+                }
+                List<ProductsDto> fresh = new ArrayList<>(next.size());
+                for (ProductsDto p : next) {
+                    if (seen.add(Listing.of(p))) fresh.add(p);
+                }
+                if (fresh.isEmpty() && !next.isEmpty()) {
+                    logger.debug("{} page {} repeats earlier pages; stopping", name(), page);
+                    break;
+                }
+                out.addAll(fresh);
+                matching += (int) fresh.stream().filter(relevant).count();
+                fullPage = Math.max(fullPage, next.size());
+                last = next;
+            }
+            return out;
+        } finally {
+            for (Future<List<ProductsDto>> f : pending) f.cancel(true);
+        }
+    }
+
+    private static List<ProductsDto> page(Future<List<ProductsDto>> page) throws Exception {
+        try {
+            return page.get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof Exception cause) throw cause;
+            throw ex;
+        }
+    }
+
+    // What makes two listings on different pages the same product
+    private record Listing(String name, Long price, String url) {
+        static Listing of(ProductsDto p) {
+            return new Listing(p.getName(), p.getPrice(), p.getUrl());
+        }
+    }
+
+    private static boolean sameProduct(ProductsDto a, ProductsDto b) {
+        return Objects.equals(a.getName(), b.getName()) && Objects.equals(a.getPrice(), b.getPrice());
+    }
+
+    // A product is relevant when the search would keep it: the same matching the store results are filtered by
+    static Predicate<ProductsDto> relevance(String encodedQuery) {
+        ProductQuery query = ProductQuery.parse(URLDecoder.decode(encodedQuery, StandardCharsets.UTF_8));
+        if (query.isEmpty()) return p -> true;
+        return p -> query.matches(p.getName());
+    }
+
+    // Raw page bytes, for the streaming extraction path
+    protected HttpTransport.Response fetchPage(String url) throws Exception {
+        return fetchPage(url, null);
+    }
+
+    // A copy of a slow fetch may be raced against it; each copy holds its own host permit
+    protected HttpTransport.Response fetchPage(String url, SSLContext sslContext) throws Exception {
+        return fetchPage(url, sslContext, "static");
+    }
+
+    // mode tags the fetch metrics: static for a page, api for a store's JSON endpoint
+    protected HttpTransport.Response fetchPage(String url, SSLContext sslContext, String mode) throws Exception {
+        long start = System.nanoTime();
+        HttpTransport.Response page = hedger.call(url, () -> withHostPermit(url, () -> transport().get(url, sslContext)));
+        metrics.fetched(name(), mode, System.nanoTime() - start, page.body().length);
+        return page;
+    }
+
+    /**
+     * Cards of a store that may need the browser: the static page, the rendered one, or the static one with the
+     * rendered one as fallback, as {@link RenderModeRouter} has learned for this store.
+     */
+    protected List<ProductsDto> scrapeCards(String url, CardSelectors cards, String base, String path,
+                                            SeleniumPageFetcher renderer, String cssToWaitFor,
+                                            int timeoutSeconds) throws Exception {
+        RenderModeRouter.Mode mode = router.route(name());
+        if (mode == RenderModeRouter.Mode.RENDERED) {
+            return extractCards(fetchRendered(renderer, url, cssToWaitFor, timeoutSeconds), cards, base, path);
+        }
+
+        List<ProductsDto> products = List.of();
+        try {
+            products = extractCards(fetchPage(url), cards, base, path);
+        } catch (SSLHandshakeException ex) {
+            // No verdict on the static page; the browser may still get through
+            if (mode == RenderModeRouter.Mode.STATIC) throw ex;
+            fellBack("ssl");
+            return extractCards(fetchRendered(renderer, url, cssToWaitFor, timeoutSeconds), cards, base, path);
+        }
+        if (mode == RenderModeRouter.Mode.STATIC) {
+            if (products.isEmpty()) router.staticEmpty(name());
+            return products;
+        }
+        if (!products.isEmpty()) {
+            router.staticFound(name());
+            return products;
+        }
+
+        // No cards in the static HTML: load with Selenium (JS-rendered)
+        fellBack("selenium");
+        products = extractCards(fetchRendered(renderer, url, cssToWaitFor, timeoutSeconds), cards, base, path);
+        if (!products.isEmpty()) router.renderedOnly(name());
+        return products;
+    }
+
+    // Render the page in the browser, waiting up to timeoutSeconds for cssToWaitFor
+    protected Document fetchRendered(SeleniumPageFetcher renderer, String url, String cssToWaitFor,
+                                     int timeoutSeconds) throws Exception {
+        long start = System.nanoTime();
+        SeleniumPageFetcher.Rendered page = renderer.render(url, cssToWaitFor, timeoutSeconds);
+        long nanos = System.nanoTime() - start;
+        metrics.fetched(name(), "rendered", nanos, -1);
+        metrics.rendered(name(), renderer.profile(), nanos, page.bytes(), page.requests());
+        return page.doc();
+    }
+
+    // The first fetch failed in a way another trust or transport setup may fix, e.g. an SSL handshake
+    protected void fellBack(String type) {
+        metrics.fellBack(name(), type);
+    }
+
+    // Every connection to a store goes through here so the per-host limit holds
+    protected <T> T withHostPermit(String url, Callable<T> work) throws Exception {
+        return hostLimiter.call(url, work);
+    }
+
+    // Single pass over the raw page; never builds a document
+    protected List<ProductsDto> extractCards(HttpTransport.Response page, CardSelectors cards,
+                                             String base, String path) throws Exception {
+        long start = System.nanoTime();
+        return parsed(start, toProducts(CardExtractor.scan(page, cards, this::resolveImage), base, path));
+    }
+
+    // Same rules over a document that is already parsed, such as a browser-rendered page
+    protected List<ProductsDto> extractCards(Document doc, CardSelectors cards,
+                                             String base, String path) throws Exception {
+        long start = System.nanoTime();
+        return parsed(start, toProducts(CardExtractor.select(doc, cards, this::resolveImage), base, path));
+    }
+
+    // For stores that read products their own way
+    protected List<ProductsDto> parsed(long startNanos, List<ProductsDto> products) {
+        metrics.parsed(name(), System.nanoTime() - startNanos, products.size());
+        return products;
+    }
+
+    private List<ProductsDto> toProducts(CardExtractor.Fields fields, String base, String path) throws Exception {
+        int count = fields.count();
+        List<ProductsDto> out = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String name = fields.names().get(i);
+            long price = parsePrice(fields.prices().get(i));
+            out.add(product(name, price, "GS", fields.images().get(i), base, path + name));
+        }
+        return out;
     }
 
     protected long parsePrice(String raw) {
-        if (raw == null) return 0L;
-        String cleaned = raw.replace(".", "").replace(",", "");
-        Matcher m = Pattern.compile("(\\d+)").matcher(cleaned);
-        if (m.find()) {
-            try {
-                return Long.parseLong(m.group(1));
-            } catch (NumberFormatException ignored) { }
-        }
-        return 0L;
+        return PriceParser.parse(raw);
     }
 
     protected String resolveImage(Element imgEl) {
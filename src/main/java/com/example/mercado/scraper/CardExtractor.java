@@ -0,0 +1,46 @@
+package com.example.mercado.scraper;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Pulls card fields out of a page. {@link #scan} works on the raw page in one pass without building a
+ * document; {@link #select} is the same extraction over an already parsed document (e.g. a browser-rendered page).
+ */
+final class CardExtractor {
+
+    record Fields(List<String> names, List<String> prices, List<String> images) {
+        int count() {
+            return Math.min(names.size(), Math.min(prices.size(), images.size()));
+        }
+    }
+
+    private CardExtractor() {}
+
+    static Fields scan(HttpTransport.Response page, CardSelectors selectors,
+                       Function<Element, String> image) throws IOException {
+        if (!selectors.scannable()) return select(HttpTransport.parse(page), selectors, image);
+        String html = new String(page.body(), HttpTransport.charsetOf(page));
+        return CardScanner.scan(html, page.uri().toString(), selectors.steps(), image);
+    }
+
+    static Fields select(Document doc, CardSelectors selectors, Function<Element, String> image) {
+        Elements names = doc.select(selectors.css(CardSelectors.NAME));
+        Elements prices = doc.select(selectors.css(CardSelectors.PRICE));
+        Elements images = doc.select(selectors.css(CardSelectors.IMAGE));
+        return new Fields(textOf(names), textOf(prices), images.stream().map(image).toList());
+    }
+
+    // Elements.eachText() skips empty elements, which would shift the zip by index
+    private static List<String> textOf(Elements elements) {
+        List<String> out = new ArrayList<>(elements.size());
+        for (Element el : elements) out.add(el.text());
+        return out;
+    }
+}
@@ -0,0 +1,553 @@
+package com.example.mercado.scraper;
+
+import org.jsoup.internal.StringUtil;
+import org.jsoup.nodes.Attributes;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Entities;
+import org.jsoup.parser.Tag;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Forward-only tag scanner that pulls card fields straight out of the page text. No nodes are built:
+ * it keeps a stack of open tag names plus, per rule, which selector steps matched on the way down,
+ * and only copies out the text of matched name/price elements and the attributes of matched images.
+ * <p>
+ * Understands the selector subset the stores use (tag, classes, id, attributes, descendant and child
+ * combinators) and the implicit closes that matter for product grids ({@code li}, {@code p}, table cells);
+ * anything fancier is left to the DOM path by {@link CardSelectors}.
+ */
+final class CardScanner {
+
+    /** One compound selector: tag, classes and attributes, and whether it must be a child of the previous step. */
+    record Step(String tag, String[] classes, String[] attrNames, String[] attrValues, boolean childOfPrevious) {}
+
+    private static final int RULES = 3;
+
+    // Tags that never have content and are not pushed
+    private static final List<String> VOID = List.of("area", "base", "br", "col", "embed", "hr", "img", "input",
+            "link", "meta", "param", "source", "track", "wbr");
+    // Content is not markup; skipped up to the matching end tag
+    private static final List<String> RAW_TEXT = List.of("script", "style", "textarea", "title", "xmp",
+            "iframe", "noembed", "noframes");
+    // Opening one of these ends an open paragraph
+    private static final List<String> CLOSES_P = List.of("address", "article", "aside", "blockquote", "div", "dl",
+            "fieldset", "figure", "footer", "form", "h1", "h2", "h3", "h4", "h5", "h6", "header", "hr", "main",
+            "nav", "ol", "p", "pre", "section", "table", "ul");
+    // Tag.valueOf builds a fresh tag set on every call, so tags are looked up once per name
+    private static final Map<String, Tag> TAGS = new ConcurrentHashMap<>();
+    private static final int MAX_CACHED_TAGS = 1024;
+    // Common tag names, so reading a tag does not allocate a new string
+    private static final String[] KNOWN = {"a", "b", "i", "p", "s", "u", "br", "dd", "dl", "dt", "em", "h1", "h2",
+            "h3", "h4", "h5", "h6", "hr", "li", "ol", "td", "th", "tr", "ul", "bdi", "del", "div", "img", "ins",
+            "nav", "sup", "svg", "body", "form", "head", "html", "link", "main", "meta", "path", "span", "abbr",
+            "label", "input", "small", "style", "table", "tbody", "thead", "title", "aside", "button", "figure",
+            "footer", "header", "iframe", "option", "script", "select", "strong", "source", "article", "picture",
+            "section", "noscript", "template", "textarea"};
+
+    private final String html;
+    private final String baseUri;
+    private final Step[][] rules;
+    private final Function<Element, String> image;
+    private int pos;
+
+    // Open elements: tag name and, per rule, bitsets of the selector steps matched at / above that element
+    private String[] stack = new String[64];
+    private long[] matchedHere = new long[64 * RULES];
+    private long[] matchedAbove = new long[64 * RULES];
+    private int depth;
+
+    // Attributes of the tag being read, as offsets into html; value start is -1 when there is no value
+    private int[] attrs = new int[32];
+    private int attrCount;
+
+    private final long[] here = new long[RULES];
+    private final List<Capture> captures = new ArrayList<>();
+    private final List<List<String>> out = List.of(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+
+    private static final class Capture {
+        final int rule;
+        final int depth;
+        final int index;
+        final StringBuilder text = new StringBuilder();
+
+        Capture(int rule, int depth, int index) {
+            this.rule = rule;
+            this.depth = depth;
+            this.index = index;
+        }
+    }
+
+    private CardScanner(String html, String baseUri, Step[][] rules, Function<Element, String> image) {
+        this.html = html;
+        this.baseUri = baseUri;
+        this.rules = rules;
+        this.image = image;
+    }
+
+    /**
+     * @param rules name, price and image selectors as compiled by {@link #compile}
+     */
+    static CardExtractor.Fields scan(String html, String baseUri, Step[][] rules, Function<Element, String> image) {
+        CardScanner scanner = new CardScanner(html, baseUri, rules, image);
+        scanner.run();
+        return new CardExtractor.Fields(scanner.out.get(CardSelectors.NAME),
+                scanner.out.get(CardSelectors.PRICE), scanner.out.get(CardSelectors.IMAGE));
+    }
+
+    // ---- selectors
+
+    /**
+     * Compiles a selector into steps, or returns null when it uses anything beyond the supported subset.
+     */
+    static Step[] compile(String css) {
+        List<Step> steps = new ArrayList<>();
+        String s = css.trim();
+        int i = 0;
+        boolean child = false;
+        while (i < s.length()) {
+            String tag = null;
+            List<String> classes = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            List<String> values = new ArrayList<>();
+            int start = i;
+            if (s.charAt(i) == '*') {
+                i++;
+            } else {
+                int end = identEnd(s, i);
+                if (end > i) tag = s.substring(i, end).toLowerCase(Locale.ROOT);
+                i = end;
+            }
+            while (i < s.length() && ".#[".indexOf(s.charAt(i)) >= 0) {
+                char c = s.charAt(i);
+                if (c == '[') {
+                    int close = s.indexOf(']', i);
+                    if (close < 0) return null;
+                    String body = s.substring(i + 1, close);
+                    int eq = body.indexOf('=');
+                    if (eq < 0) {
+                        names.add(body.trim().toLowerCase(Locale.ROOT));
+                        values.add(null);
+                    } else {
+                        String name = body.substring(0, eq).trim();
+                        // ~=, ^=, *= and friends are not supported
+                        if (name.isEmpty() || !Character.isLetterOrDigit(name.charAt(name.length() - 1))) return null;
+                        names.add(name.toLowerCase(Locale.ROOT));
+                        values.add(unquote(body.substring(eq + 1).trim()));
+                    }
+                    i = close + 1;
+                } else {
+                    int end = identEnd(s, i + 1);
+                    if (end == i + 1) return null;
+                    if (c == '.') {
+                        classes.add(s.substring(i + 1, end));
+                    } else {
+                        names.add("id");
+                        values.add(s.substring(i + 1, end));
+                    }
+                    i = end;
+                }
+            }
+            if (i == start || steps.size() == 63) return null;
+            steps.add(new Step(tag, classes.toArray(String[]::new), names.toArray(String[]::new),
+                    values.toArray(String[]::new), child));
+
+            int afterCompound = i;
+            while (i < s.length() && Character.isWhitespace(s.charAt(i))) i++;
+            if (i == s.length()) break;
+            if (s.charAt(i) == '>') {
+                child = true;
+                i++;
+                while (i < s.length() && Character.isWhitespace(s.charAt(i))) i++;
+            } else if (i > afterCompound) {
+                child = false;
+            } else {
+                // Pseudo selectors, sibling combinators and groups
+                return null;
+            }
+        }
+        return steps.isEmpty() ? null : steps.toArray(Step[]::new);
+    }
+
+    private static int identEnd(String s, int i) {
+        while (i < s.length() && (Character.isLetterOrDigit(s.charAt(i)) || s.charAt(i) == '-' || s.charAt(i) == '_')) i++;
+        return i;
+    }
+
+    private static String unquote(String v) {
+        if (v.length() >= 2 && (v.charAt(0) == '"' || v.charAt(0) == '\'') && v.charAt(v.length() - 1) == v.charAt(0)) {
+            return v.substring(1, v.length() - 1);
+        }
+        return v;
+    }
+
+    // ---- scanning
+
+    private void run() {
+        int n = html.length();
+        while (pos < n) {
+            int lt = html.indexOf('<', pos);
+            if (lt < 0) {
+                text(pos, n);
+                break;
+            }
+            if (lt > pos) text(pos, lt);
+            pos = lt;
+            char next = lt + 1 < n ? html.charAt(lt + 1) : 0;
+            if (isLetter(next)) {
+                startTag();
+            } else if (next == '/' && lt + 2 < n && isLetter(html.charAt(lt + 2))) {
+                endTag();
+            } else if (html.startsWith("<!--", lt)) {
+                int end = html.indexOf("-->", lt + 4);
+                pos = end < 0 ? n : end + 3;
+            } else if (next == '!' || next == '?' || next == '/') {
+                int end = html.indexOf('>', lt);
+                pos = end < 0 ? n : end + 1;
+            } else {
+                // A lone '<' is just text
+                text(lt, lt + 1);
+                pos = lt + 1;
+            }
+        }
+        while (depth > 0) pop();
+    }
+
+    private void startTag() {
+        int nameStart = pos + 1;
+        int nameEnd = tagNameEnd(nameStart);
+        String tag = tagName(nameStart, nameEnd);
+        boolean selfClosing = readAttributes(nameEnd);
+
+        closeImplied(tag);
+        boolean isVoid = VOID.contains(tag);
+        if (!captures.isEmpty() && ("br".equals(tag) || isBlock(tag))) boundary();
+
+        // Steps of every rule that match here, given what matched at the parent and further up
+        int parent = (depth - 1) * RULES;
+        for (int r = 0; r < RULES; r++) {
+            here[r] = 0;
+            Step[] steps = rules[r];
+            long parentHere = depth > 0 ? matchedHere[parent + r] : 0;
+            long parentAbove = depth > 0 ? matchedAbove[parent + r] : 0;
+            for (int j = 0; j < steps.length; j++) {
+                Step step = steps[j];
+                boolean reachable = j == 0
+                        || ((step.childOfPrevious() ? parentHere : parentAbove) & (1L << (j - 1))) != 0;
+                if (reachable && matches(step, tag)) here[r] |= 1L << j;
+            }
+        }
+
+        boolean pushed = !isVoid && !selfClosing;
+        if (pushed) {
+            push(tag, parent);
+        }
+        for (int r = 0; r < RULES; r++) {
+            if ((here[r] & (1L << (rules[r].length - 1))) == 0) continue;
+            List<String> values = out.get(r);
+            if (r == CardSelectors.IMAGE) {
+                values.add(image.apply(element(tag)));
+            } else if (pushed) {
+                captures.add(new Capture(r, depth - 1, values.size()));
+                values.add("");
+            } else {
+                values.add("");
+            }
+        }
+
+        if (pushed && RAW_TEXT.contains(tag)) skipRawText(tag);
+    }
+
+    private void endTag() {
+        int nameStart = pos + 2;
+        int nameEnd = tagNameEnd(nameStart);
+        String tag = tagName(nameStart, nameEnd);
+        int end = html.indexOf('>', nameEnd);
+        pos = end < 0 ? html.length() : end + 1;
+
+        // Unmatched end tags are ignored, as the HTML parser does
+        for (int d = depth - 1; d >= 0; d--) {
+            if (stack[d].equals(tag)) {
+                while (depth > d) pop();
+                return;
+            }
+        }
+        if ("br".equals(tag) && !captures.isEmpty()) boundary();
+    }
+
+    private void push(String tag, int parent) {
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+            matchedHere = Arrays.copyOf(matchedHere, depth * 2 * RULES);
+            matchedAbove = Arrays.copyOf(matchedAbove, depth * 2 * RULES);
+        }
+        int at = depth * RULES;
+        for (int r = 0; r < RULES; r++) {
+            matchedHere[at + r] = here[r];
+            matchedAbove[at + r] = here[r] | (depth > 0 ? matchedAbove[parent + r] : 0);
+        }
+        stack[depth++] = tag;
+    }
+
+    private void pop() {
+        depth--;
+        if (captures.isEmpty()) return;
+        if (isBlock(stack[depth])) boundary();
+        for (int i = captures.size() - 1; i >= 0; i--) {
+            Capture c = captures.get(i);
+            if (c.depth < depth) continue;
+            captures.remove(i);
+            out.get(c.rule).set(c.index, finish(c.text));
+        }
+    }
+
+    // The HTML parser closes these implicitly; without it every later card would nest inside the first
+    private void closeImplied(String tag) {
+        switch (tag) {
+            case "li" -> closeOpen("li", "ul", "ol");
+            case "dd", "dt" -> { if (!closeOpen("dd", "dl")) closeOpen("dt", "dl"); }
+            case "tr" -> closeOpen("tr", "table");
+            case "td", "th" -> { if (!closeOpen("td", "tr", "table")) closeOpen("th", "tr", "table"); }
+            case "option" -> closeOpen("option", "select");
+            default -> { }
+        }
+        if (depth > 0 && "p".equals(stack[depth - 1]) && CLOSES_P.contains(tag)) pop();
+    }
+
+    private boolean closeOpen(String tag, String... boundaries) {
+        for (int d = depth - 1; d >= 0; d--) {
+            String open = stack[d];
+            if (open.equals(tag)) {
+                while (depth > d) pop();
+                return true;
+            }
+            for (String b : boundaries) if (open.equals(b)) return false;
+        }
+        return false;
+    }
+
+    private void skipRawText(String tag) {
+        int i = pos;
+        while (true) {
+            int lt = html.indexOf("</", i);
+            if (lt < 0) {
+                pos = html.length();
+                return;
+            }
+            if (html.regionMatches(true, lt + 2, tag, 0, tag.length())) {
+                pos = lt;
+                return;
+            }
+            i = lt + 2;
+        }
+    }
+
+    private void text(int from, int to) {
+        for (int i = 0; i < captures.size(); i++) captures.get(i).text.append(html, from, to);
+    }
+
+    // Block elements and <br> separate words, as in Element.text()
+    private void boundary() {
+        for (int i = 0; i < captures.size(); i++) captures.get(i).text.append(' ');
+    }
+
+    private static String finish(StringBuilder raw) {
+        String text = unescape(raw.toString());
+        StringBuilder sb = StringUtil.borrowBuilder();
+        StringUtil.appendNormalisedWhitespace(sb, text, true);
+        return StringUtil.releaseBuilder(sb).trim();
+    }
+
+    // ---- tags and attributes
+
+    private int tagNameEnd(int i) {
+        int n = html.length();
+        while (i < n) {
+            char c = html.charAt(i);
+            if (c == '>' || c == '/' || Character.isWhitespace(c)) break;
+            i++;
+        }
+        return i;
+    }
+
+    private String tagName(int start, int end) {
+        int len = end - start;
+        for (String known : KNOWN) {
+            if (known.length() == len && html.regionMatches(true, start, known, 0, len)) return known;
+        }
+        return html.substring(start, end).toLowerCase(Locale.ROOT);
+    }
+
+    // Reads attributes up to the closing '>' and reports whether the tag was written self-closing
+    private boolean readAttributes(int i) {
+        attrCount = 0;
+        int n = html.length();
+        boolean selfClosing = false;
+        while (i < n) {
+            char c = html.charAt(i);
+            if (c == '>') {
+                pos = i + 1;
+                return selfClosing;
+            }
+            if (Character.isWhitespace(c) || c == '/') {
+                selfClosing = c == '/';
+                i++;
+                continue;
+            }
+            selfClosing = false;
+            int nameStart = i;
+            while (i < n && html.charAt(i) != '=' && html.charAt(i) != '>' && html.charAt(i) != '/'
+                    && !Character.isWhitespace(html.charAt(i))) i++;
+            int nameEnd = i;
+            while (i < n && Character.isWhitespace(html.charAt(i))) i++;
+            int valueStart = -1;
+            int valueEnd = -1;
+            if (i < n && html.charAt(i) == '=') {
+                i++;
+                while (i < n && Character.isWhitespace(html.charAt(i))) i++;
+                if (i < n && (html.charAt(i) == '"' || html.charAt(i) == '\'')) {
+                    char quote = html.charAt(i);
+                    valueStart = i + 1;
+                    int close = html.indexOf(quote, valueStart);
+                    valueEnd = close < 0 ? n : close;
+                    i = close < 0 ? n : close + 1;
+                } else {
+                    valueStart = i;
+                    while (i < n && html.charAt(i) != '>' && !Character.isWhitespace(html.charAt(i))) i++;
+                    valueEnd = i;
+                }
+            }
+            addAttribute(nameStart, nameEnd, valueStart, valueEnd);
+        }
+        pos = n;
+        return selfClosing;
+    }
+
+    private void addAttribute(int nameStart, int nameEnd, int valueStart, int valueEnd) {
+        if (attrCount * 4 == attrs.length) attrs = Arrays.copyOf(attrs, attrs.length * 2);
+        int at = attrCount++ * 4;
+        attrs[at] = nameStart;
+        attrs[at + 1] = nameEnd;
+        attrs[at + 2] = valueStart;
+        attrs[at + 3] = valueEnd;
+    }
+
+    private int attribute(String name) {
+        for (int a = 0; a < attrCount; a++) {
+            int at = a * 4;
+            int len = attrs[at + 1] - attrs[at];
+            if (len == name.length() && html.regionMatches(true, attrs[at], name, 0, len)) return at;
+        }
+        return -1;
+    }
+
+    private boolean matches(Step step, String tag) {
+        if (step.tag() != null && !step.tag().equals(tag)) return false;
+        for (String cls : step.classes()) {
+            if (!hasClass(cls)) return false;
+        }
+        String[] names = step.attrNames();
+        for (int k = 0; k < names.length; k++) {
+            int at = attribute(names[k]);
+            if (at < 0) return false;
+            String expected = step.attrValues()[k];
+            if (expected == null) continue;
+            int start = attrs[at + 2];
+            int end = attrs[at + 3];
+            if (start < 0) {
+                if (!expected.isEmpty()) return false;
+                continue;
+            }
+            // Same comparison as Jsoup's [attr=value]: trimmed and case-insensitive
+            while (start < end && Character.isWhitespace(html.charAt(start))) start++;
+            while (end > start && Character.isWhitespace(html.charAt(end - 1))) end--;
+            if (end - start != expected.length() || !html.regionMatches(true, start, expected, 0, end - start)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean hasClass(String cls) {
+        int at = attribute("class");
+        if (at < 0 || attrs[at + 2] < 0) return false;
+        int i = attrs[at + 2];
+        int end = attrs[at + 3];
+        while (i < end) {
+            while (i < end && Character.isWhitespace(html.charAt(i))) i++;
+            int start = i;
+            while (i < end && !Character.isWhitespace(html.charAt(i))) i++;
+            if (i - start == cls.length() && html.regionMatches(true, start, cls, 0, cls.length())) return true;
+        }
+        return false;
+    }
+
+    // A detached element carrying the tag's attributes, so image rules resolve URLs exactly as on the DOM path
+    private Element element(String tag) {
+        Attributes attributes = new Attributes();
+        for (int a = 0; a < attrCount; a++) {
+            int at = a * 4;
+            String name = html.substring(attrs[at], attrs[at + 1]).toLowerCase(Locale.ROOT);
+            String value = attrs[at + 2] < 0 ? "" : html.substring(attrs[at + 2], attrs[at + 3]);
+            value = unescape(value);
+            if (!attributes.hasKey(name)) attributes.put(name, value);
+        }
+        return new Element(tag(tag), baseUri, attributes);
+    }
+
+    // Character references, decoded without spinning up a parser (and its buffers) per string
+    private static String unescape(String s) {
+        int amp = s.indexOf('&');
+        if (amp < 0) return s;
+        StringBuilder sb = new StringBuilder(s.length());
+        int i = 0;
+        while (amp >= 0) {
+            sb.append(s, i, amp);
+            int semi = s.indexOf(';', amp + 1);
+            String decoded = semi > amp + 1 && semi - amp <= 32 ? reference(s.substring(amp + 1, semi)) : null;
+            if (decoded == null) {
+                sb.append('&');
+                i = amp + 1;
+            } else {
+                sb.append(decoded);
+                i = semi + 1;
+            }
+            amp = s.indexOf('&', i);
+        }
+        return sb.append(s, i, s.length()).toString();
+    }
+
+    private static String reference(String name) {
+        if (name.charAt(0) != '#') return Entities.isNamedEntity(name) ? Entities.getByName(name) : null;
+        try {
+            boolean hex = name.length() > 1 && (name.charAt(1) == 'x' || name.charAt(1) == 'X');
+            int cp = hex ? Integer.parseInt(name.substring(2), 16) : Integer.parseInt(name.substring(1));
+            return Character.isValidCodePoint(cp) ? Character.toString(cp) : null;
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private static boolean isBlock(String tag) {
+        return tag(tag).isBlock();
+    }
+
+    private static Tag tag(String name) {
+        Tag tag = TAGS.get(name);
+        if (tag == null) {
+            tag = Tag.valueOf(name);
+            if (TAGS.size() < MAX_CACHED_TAGS) TAGS.put(name, tag);
+        }
+        return tag;
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+}
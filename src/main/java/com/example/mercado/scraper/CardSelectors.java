@@ -0,0 +1,47 @@
+package com.example.mercado.scraper;
+
+/**
+ * A store's product-card rules: one CSS selector each for the name, price and image elements.
+ * Matches are zipped by position, so the n-th name goes with the n-th price and image.
+ * <p>
+ * Rules within the subset {@link CardScanner} understands are extracted straight from the page text;
+ * anything else falls back to parsing the document and selecting.
+ */
+public final class CardSelectors {
+
+    static final int NAME = 0;
+    static final int PRICE = 1;
+    static final int IMAGE = 2;
+
+    private final String[] css;
+    private final CardScanner.Step[][] steps;
+
+    private CardSelectors(String names, String prices, String images) {
+        this.css = new String[]{names, prices, images};
+        CardScanner.Step[][] compiled = new CardScanner.Step[css.length][];
+        for (int i = 0; i < css.length; i++) {
+            compiled[i] = CardScanner.compile(css[i]);
+            if (compiled[i] == null) {
+                compiled = null;
+                break;
+            }
+        }
+        this.steps = compiled;
+    }
+
+    public static CardSelectors of(String names, String prices, String images) {
+        return new CardSelectors(names, prices, images);
+    }
+
+    String css(int field) {
+        return css[field];
+    }
+
+    boolean scannable() {
+        return steps != null;
+    }
+
+    CardScanner.Step[][] steps() {
+        return steps;
+    }
+}
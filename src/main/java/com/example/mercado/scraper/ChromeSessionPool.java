@@ -0,0 +1,192 @@
+package com.example.mercado.scraper;
+
+import org.openqa.selenium.WebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool of warm browser sessions. Sessions are created lazily, health-checked on checkout,
+ * and recycled after a fixed number of pages or as soon as they crash. Sessions idle for longer than
+ * {@code maxIdle} are closed by {@link #closeExpired(long)}, called on a schedule by the owner.
+ */
+final class ChromeSessionPool implements AutoCloseable {
+
+    private final Logger logger = LoggerFactory.getLogger(ChromeSessionPool.class);
+
+    private final Supplier<WebDriver> driverFactory;
+    private final int maxSessions;
+    private final int maxPagesPerSession;
+    private final long checkoutTimeoutMs;
+    private final long maxIdleMs;
+
+    // One permit per session that may exist; idle sessions are reused LIFO so the warmest one goes first
+    private final Semaphore permits;
+    private final Deque<Session> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger live = new AtomicInteger();
+    private volatile boolean closed;
+
+    // Metrics
+    private final AtomicLong checkouts = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong recycled = new AtomicLong();
+    private final AtomicLong crashed = new AtomicLong();
+    private final AtomicLong checkoutTimeouts = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    static final class Session {
+        final WebDriver driver;
+        int pages;
+        long lastUsed = System.currentTimeMillis();
+
+        Session(WebDriver driver) {
+            this.driver = driver;
+        }
+    }
+
+    record Stats(int maxSessions, int live, int idle, int inUse, int queued,
+                 long checkouts, long created, long recycled, long crashed, long checkoutTimeouts,
+                 double avgWaitMs, double maxWaitMs) {}
+
+    ChromeSessionPool(Supplier<WebDriver> driverFactory, int maxSessions, int maxPagesPerSession,
+                      Duration checkoutTimeout, Duration maxIdle) {
+        this.driverFactory = driverFactory;
+        this.maxSessions = Math.max(1, maxSessions);
+        this.maxPagesPerSession = Math.max(1, maxPagesPerSession);
+        this.checkoutTimeoutMs = checkoutTimeout.toMillis();
+        this.maxIdleMs = maxIdle.toMillis();
+        this.permits = new Semaphore(this.maxSessions, true);
+    }
+
+    Session checkout() throws InterruptedException {
+        if (closed) throw new IllegalStateException("Browser pool is closed");
+
+        long start = System.nanoTime();
+        if (!permits.tryAcquire(checkoutTimeoutMs, TimeUnit.MILLISECONDS)) {
+            checkoutTimeouts.incrementAndGet();
+            throw new IllegalStateException("No browser session available within " + checkoutTimeoutMs + " ms");
+        }
+        long waited = System.nanoTime() - start;
+        totalWaitNanos.addAndGet(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        checkouts.incrementAndGet();
+
+        try {
+            Session s;
+            while ((s = idle.pollFirst()) != null) {
+                if (System.currentTimeMillis() - s.lastUsed > maxIdleMs) {
+                    discard(s, false);
+                } else if (!isHealthy(s)) {
+                    discard(s, true);
+                } else {
+                    return s;
+                }
+            }
+            Session fresh = new Session(driverFactory.get());
+            live.incrementAndGet();
+            created.incrementAndGet();
+            return fresh;
+        } catch (RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    void release(Session s, boolean broken) {
+        try {
+            s.pages++;
+            s.lastUsed = System.currentTimeMillis();
+            if (broken) {
+                discard(s, true);
+            } else if (closed || s.pages >= maxPagesPerSession) {
+                discard(s, false);
+            } else {
+                idle.offerFirst(s);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Give back a session whose last command may still be running in the browser, e.g. a navigation cut off
+     * by an interrupt. Its permit is free at once; the driver is quit on a thread of its own, since the
+     * caller's thread is interrupted and the quit may have to wait for that command.
+     */
+    void abandon(Session s) {
+        try {
+            Thread.ofVirtual().name("browser-quit").start(() -> discard(s, false));
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Close the idle sessions not used for longer than {@code maxIdle}, so Chrome processes left over from
+     * a burst do not stay up until the next checkout.
+     *
+     * @return number of sessions closed
+     */
+    int closeExpired(long nowMs) {
+        int closedNow = 0;
+        for (Session s : idle) {
+            // A checkout may take the session first; whoever removes it owns it
+            if (nowMs - s.lastUsed > maxIdleMs && idle.removeFirstOccurrence(s)) {
+                discard(s, false);
+                closedNow++;
+            }
+        }
+        return closedNow;
+    }
+
+    Stats stats() {
+        long n = checkouts.get();
+        int idleNow = idle.size();
+        int liveNow = live.get();
+        return new Stats(
+                maxSessions, liveNow, idleNow, Math.max(0, liveNow - idleNow), permits.getQueueLength(),
+                n, created.get(), recycled.get(), crashed.get(), checkoutTimeouts.get(),
+                n == 0 ? 0 : totalWaitNanos.get() / 1e6 / n,
+                maxWaitNanos.get() / 1e6
+        );
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Session s;
+        while ((s = idle.pollFirst()) != null) {
+            discard(s, false);
+        }
+    }
+
+    // A cheap round-trip to the driver; a dead Chrome process fails here instead of mid-scrape
+    private boolean isHealthy(Session s) {
+        try {
+            s.driver.getWindowHandle();
+            return true;
+        } catch (Exception ex) {
+            return false;
+        }
+    }
+
+    private void discard(Session s, boolean crash) {
+        if (crash) {
+            crashed.incrementAndGet();
+            logger.warn("Discarding crashed browser session after {} pages", s.pages);
+        } else {
+            recycled.incrementAndGet();
+        }
+        live.decrementAndGet();
+        try { s.driver.quit(); } catch (Exception ignored) {}
+    }
+}
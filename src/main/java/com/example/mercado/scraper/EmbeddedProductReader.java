@@ -0,0 +1,302 @@
+package com.example.mercado.scraper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pulls {@code {"product": {"name": ..., "price": ..., "photosUrl": [...]}}} objects out of the JSON a page
+ * embeds in its scripts, either as plain JSON or inside a JavaScript string literal where every quote
+ * arrives escaped: {@code \"}, or the hex escapes {@code \x22} and backslash-{@code u0022}. Scripts that never mention the key are skipped with one {@code indexOf}; in the
+ * rest, string escapes are decoded lazily while a small pull parser reads each product object, so no
+ * unescaped copy of a script is ever made. Member order inside the object does not matter.
+ */
+final class EmbeddedProductReader {
+
+    record Item(String name, long price, String photo) {}
+
+    private static final String KEY = "product";
+    // A quote inside a JS string literal, in each form the stores' scripts use
+    private static final String[] ESCAPED_QUOTES = {"\\\"", "\\u0022", "\\x22"};
+
+    private final String html;
+    private final List<Item> out = new ArrayList<>();
+
+    // Current parse position; escaped means the JSON sits inside a JS string literal
+    private int pos;
+    private int end;
+    private boolean escaped;
+
+    private EmbeddedProductReader(String html) {
+        this.html = html;
+    }
+
+    static List<Item> read(String html) {
+        EmbeddedProductReader reader = new EmbeddedProductReader(html);
+        reader.scanScripts();
+        return reader.out;
+    }
+
+    private void scanScripts() {
+        int i = 0;
+        while ((i = indexOfIgnoreCase(html, "<script", i)) >= 0) {
+            int open = html.indexOf('>', i);
+            if (open < 0) return;
+            int close = indexOfIgnoreCase(html, "</script", open);
+            if (close < 0) close = html.length();
+            scanScript(open + 1, close);
+            i = close + 1;
+        }
+    }
+
+    private void scanScript(int from, int to) {
+        int k = from;
+        while ((k = html.indexOf(KEY, k)) >= 0 && k < to) {
+            int next = k + KEY.length();
+            // The key must be a whole JSON string: "product" or, inside a JS string, \"product\" or a hex-escaped quote
+            boolean plain = k > from && html.charAt(k - 1) == '"' && next < to && html.charAt(next) == '"'
+                    && !(k > from + 1 && html.charAt(k - 2) == '\\');
+            int closing = escapedQuoteAt(next, to);
+            boolean quoted = !plain && closing > 0 && escapedQuoteBefore(k, from);
+            if (plain || quoted) {
+                int after = skipWhitespace(next + (plain ? 1 : closing), to);
+                if (after < to && html.charAt(after) == ':') {
+                    int value = skipWhitespace(after + 1, to);
+                    if (value < to && html.charAt(value) == '{') {
+                        pos = value;
+                        end = to;
+                        escaped = quoted;
+                        try {
+                            readProduct();
+                            k = pos;
+                        } catch (IllegalStateException malformed) {
+                            // Not the JSON we are after; keep scanning right after the key, so a product
+                            // nested in the part that did parse is still found
+                            k = next;
+                        }
+                        continue;
+                    }
+                }
+            }
+            k = next;
+        }
+    }
+
+    // Length of the escaped quote starting at i, or 0
+    private int escapedQuoteAt(int i, int to) {
+        for (String q : ESCAPED_QUOTES) {
+            if (i + q.length() <= to && html.startsWith(q, i)) return q.length();
+        }
+        return 0;
+    }
+
+    private boolean escapedQuoteBefore(int i, int from) {
+        for (String q : ESCAPED_QUOTES) {
+            if (i - q.length() >= from && html.startsWith(q, i - q.length())) return true;
+        }
+        return false;
+    }
+
+    private void readProduct() {
+        expect('{');
+        String name = null;
+        long price = 0;
+        String photo = null;
+        if (peek() == '}') {
+            readSkippingWhitespace();
+            return;
+        }
+        while (true) {
+            String key = readString(true);
+            expect(':');
+            switch (key) {
+                case "name" -> name = readStringOrSkip();
+                case "price" -> price = readPrice();
+                case "photosUrl" -> photo = peek() == '[' ? readFirstString() : readStringOrSkip();
+                default -> skipValue();
+            }
+            int c = readSkippingWhitespace();
+            if (c == '}') break;
+            if (c != ',') throw malformed();
+        }
+        if (name != null) out.add(new Item(name, price, photo == null ? "" : photo));
+    }
+
+    private long readPrice() {
+        int c = peek();
+        if (c == '"') return PriceParser.parse(readString(true));
+        if (c != '-' && (c < '0' || c > '9')) {
+            skipValue();
+            return 0;
+        }
+        long value = 0;
+        boolean fraction = false;
+        readSkippingWhitespace();
+        if (c != '-') value = c - '0';
+        while (true) {
+            int save = pos;
+            int d = read();
+            if (d >= '0' && d <= '9') {
+                if (!fraction) value = value * 10 + (d - '0');
+            } else if (d == '.' || d == 'e' || d == 'E' || d == '+' || d == '-') {
+                fraction = true;
+            } else {
+                pos = save;
+                break;
+            }
+        }
+        return Math.max(0, value);
+    }
+
+    private String readFirstString() {
+        expect('[');
+        String first = null;
+        if (peek() == ']') {
+            readSkippingWhitespace();
+            return null;
+        }
+        while (true) {
+            if (first == null && peek() == '"') first = readString(true);
+            else skipValue();
+            int c = readSkippingWhitespace();
+            if (c == ']') return first;
+            if (c != ',') throw malformed();
+        }
+    }
+
+    private String readStringOrSkip() {
+        if (peek() == '"') return readString(true);
+        skipValue();
+        return null;
+    }
+
+    private void skipValue() {
+        int c = readSkippingWhitespace();
+        if (c == '"') {
+            readStringBody(false);
+        } else if (c == '{' || c == '[') {
+            int depth = 1;
+            while (depth > 0) {
+                int d = read();
+                if (d < 0) throw malformed();
+                if (d == '"') readStringBody(false);
+                else if (d == '{' || d == '[') depth++;
+                else if (d == '}' || d == ']') depth--;
+            }
+        } else {
+            // Numbers, true, false, null
+            while (true) {
+                int save = pos;
+                int d = read();
+                if (d < 0 || d == ',' || d == '}' || d == ']' || Character.isWhitespace(d)) {
+                    pos = save;
+                    return;
+                }
+            }
+        }
+    }
+
+    private String readString(boolean keep) {
+        if (readSkippingWhitespace() != '"') throw malformed();
+        return readStringBody(keep);
+    }
+
+    // Reads up to the closing quote; builds the string only when keep is set
+    private String readStringBody(boolean keep) {
+        StringBuilder sb = keep ? new StringBuilder() : null;
+        while (true) {
+            int c = read();
+            if (c < 0) throw malformed();
+            if (c == '"') return keep ? sb.toString() : null;
+            if (c == '\\') {
+                int e = read();
+                c = switch (e) {
+                    case 'b' -> '\b';
+                    case 'f' -> '\f';
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    case 't' -> '\t';
+                    case 'u' -> hex(4);
+                    case -1 -> throw malformed();
+                    default -> e;
+                };
+            }
+            if (keep) sb.append((char) c);
+        }
+    }
+
+    private int hex(int digits) {
+        int value = 0;
+        for (int i = 0; i < digits; i++) {
+            int d = Character.digit(read(), 16);
+            if (d < 0) throw malformed();
+            value = value * 16 + d;
+        }
+        return value;
+    }
+
+    private void expect(char expected) {
+        if (readSkippingWhitespace() != expected) throw malformed();
+    }
+
+    private int peek() {
+        int save = pos;
+        int c = readSkippingWhitespace();
+        pos = save;
+        return c;
+    }
+
+    private int readSkippingWhitespace() {
+        int c;
+        do {
+            c = read();
+        } while (c >= 0 && Character.isWhitespace(c));
+        return c;
+    }
+
+    /**
+     * Next JSON character. Inside a JS string literal, the literal's own escapes are decoded first,
+     * so {@code \"} reads as a quote and {@code \\} as the backslash that starts a JSON escape.
+     */
+    private int read() {
+        if (pos >= end) return -1;
+        char c = html.charAt(pos++);
+        if (!escaped || c != '\\') return c;
+        if (pos >= end) return -1;
+        char e = html.charAt(pos++);
+        return switch (e) {
+            case 'n' -> '\n';
+            case 'r' -> '\r';
+            case 't' -> '\t';
+            case 'u' -> jsHex(4);
+            case 'x' -> jsHex(2);
+            default -> e;
+        };
+    }
+
+    private int jsHex(int digits) {
+        if (pos + digits > end) throw malformed();
+        int value = 0;
+        for (int i = 0; i < digits; i++) {
+            int d = Character.digit(html.charAt(pos++), 16);
+            if (d < 0) throw malformed();
+            value = value * 16 + d;
+        }
+        return value;
+    }
+
+    private int skipWhitespace(int i, int to) {
+        while (i < to && Character.isWhitespace(html.charAt(i))) i++;
+        return i;
+    }
+
+    private static int indexOfIgnoreCase(String s, String needle, int from) {
+        for (int i = s.indexOf('<', from); i >= 0; i = s.indexOf('<', i + 1)) {
+            if (s.regionMatches(true, i, needle, 0, needle.length())) return i;
+        }
+        return -1;
+    }
+
+    private static IllegalStateException malformed() {
+        return new IllegalStateException("Malformed embedded product JSON");
+    }
+}
@@ -1,60 +1,34 @@
 package com.example.mercado.scraper;
 
 import com.example.mercado.dto.ProductsDto;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Node;
-import org.jsoup.select.Elements;
 import org.springframework.stereotype.Component;
 
-import javax.net.ssl.SSLHandshakeException;
-import java.util.ArrayList;
 import java.util.List;
 
 @Component
-public class FarmaTotallScraper extends BaseJsoupScraper {
+public class FarmaTotallScraper extends BaseJsonApiScraper {
     private static final String BASE = "https://www.farmatotal.com.py";
     private static final String PATH = "/?s=";
+    // WooCommerce Store API: [{"name", "prices": {"price", "currency_minor_unit"}, "images": [{"src"}]}],
+    // prices as integer strings in minor units
+    private static final String API = BASE + "/wp-json/wc/store/v1/products?per_page=48&search=";
+    static final JsonProductReader.Fields API_FIELDS = JsonProductReader.Fields.of(
+            "", "/name", "/prices/price", "/images/0/src", "/prices/currency_minor_unit");
+    static final CardSelectors CARDS = CardSelectors.of(
+            "div.content-wrapper > h3 > a",
+            "span.woocommerce-Price-amount.amount > bdi",
+            "div.thumbnail-wrapper > a > img");
+
+    private final SeleniumPageFetcher renderer;
+
+    public FarmaTotallScraper(SeleniumPageFetcher renderer) {
+        this.renderer = renderer;
+    }
 
     @Override
     public List<ProductsDto> scrape(String encodedQuery) throws Exception {
         String url = BASE + PATH + encodedQuery;
-
-
-        Document doc;
-        try {
-            // Try regular fetch first
-            doc = fetch(url);
-        } catch (SSLHandshakeException ex) {
-            // If SSL issues appear with regular fetch (unlikely here), still try Selenium
-            doc = null;
-        }
-
-        if (doc == null || doc.select("woocommerce-multi-inventory-popup-close-icon").isEmpty()) {
-            doc = SeleniumPageFetcher.fetchRendered(url, "woocommerce-multi-inventory-popup-close-icon", 15);
-            doc.getAllElements().forEach(Node::remove);
-        }
-
-
-
-        // If no content or looks empty, load with Selenium (JS-rendered)
-        if (doc.select("div.content-wrapper > h3 > a").isEmpty()) {
-            doc = SeleniumPageFetcher.fetchRendered(url, "div.content-wrapper > h3 > a", 15);
-        }
-
-        Elements names = doc.select("div.content-wrapper > h3 > a");
-        Elements prices = doc.select("span.woocommerce-Price-amount.amount > bdi > span");
-        Elements images = doc.select("div.thumbnail-wrapper > a > img");
-
-        int count = Math.min(names.size(), Math.min(prices.size(), images.size()));
-        List<ProductsDto> out = new ArrayList<>(count);
-        for (int i = 0; i < count; i++) {
-            String name = names.get(i).text();
-            long price = parsePrice(prices.get(i).text());
-            String image = resolveImage(images.get(i));
-            out.add(product(name, price, "GS", image, BASE, PATH + name));
-        }
-        return out;
+        return scrapeApi(API + encodedQuery, API_FIELDS, BASE, PATH,
+                () -> scrapeCards(url, CARDS, BASE, PATH, renderer, "div.content-wrapper > h3 > a", 15));
     }
-    
-    
 }
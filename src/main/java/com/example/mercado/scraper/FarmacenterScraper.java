@@ -1,13 +1,8 @@
 package com.example.mercado.scraper;
 
 import com.example.mercado.dto.ProductsDto;
-import org.jsoup.nodes.Document;
-import org.jsoup.select.Elements;
 import org.springframework.stereotype.Component;
-import org.jsoup.Connection;
-import org.jsoup.Jsoup;
 import javax.net.ssl.SSLHandshakeException;
-import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManagerFactory;
 import javax.net.ssl.SSLContext;
 import java.io.InputStream;
@@ -18,60 +13,57 @@ import java.security.SecureRandom;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
 
-import java.util.ArrayList;
 import java.util.List;
 
 @Component
 public class FarmacenterScraper extends BaseJsoupScraper {
     private static final String BASE = "https://www.farmacenter.com.py";
     private static final String PATH = "/catalogo?q=";
+    static final CardSelectors CARDS = CardSelectors.of(
+            "h2.ecommercepro-loop-product__title",
+            "span.price > span",
+            "img.wp-post-image");
 
     // Lazily initialized, only used for Farmacenter connections
-    private volatile SSLSocketFactory farmacenterSslFactory;
+    private volatile SSLContext farmacenterSslContext;
+    private volatile boolean useCustomTrust;
 
     @Override
     public List<ProductsDto> scrape(String encodedQuery) throws Exception {
         String url = BASE + PATH + encodedQuery;
 
-        Document doc;
-        try {
-            // First try with normal validation
-            doc = fetch(url);
-        } catch (SSLHandshakeException ex) {
-            // Retry ONLY for this domain using a PEM-backed trust store via a custom SSL context
-            doc = Jsoup.connect(url)
-                    .sslSocketFactory(getFarmacenterSslFactory())
-                    .userAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 Chrome/120 Safari/537.36")
-                    .referrer("https://www.google.com")
-                    .timeout(8000)
-                    .maxBodySize(1_200_000)
-                    .followRedirects(true)
-                    .method(Connection.Method.GET)
-                    .get();
+        HttpTransport.Response page;
+        if (useCustomTrust) {
+            page = fetchWithCustomTrust(url);
+        } else {
+            try {
+                // First try with normal validation
+                page = fetchPage(url);
+            } catch (SSLHandshakeException ex) {
+                // Retry ONLY for this domain using a PEM-backed trust store via a custom SSL context,
+                // and keep using it so later searches skip the failing handshake
+                fellBack("ssl");
+                page = fetchWithCustomTrust(url);
+                useCustomTrust = true;
+            }
         }
 
-        Elements names = doc.select("h2.ecommercepro-loop-product__title");
-        Elements prices = doc.select("span.price > span");
-        Elements images = doc.select("img.wp-post-image");
-
-        int count = Math.min(names.size(), Math.min(prices.size(), images.size()));
-        List<ProductsDto> out = new ArrayList<>(count);
-        for (int i = 0; i < count; i++) {
-            String name = names.get(i).text();
-            long price = parsePrice(prices.get(i).text());
-            String image = resolveImage(images.get(i));
-            out.add(product(name, price, "GS", image, BASE, PATH + name));
-        }
-        return out;
+        return extractCards(page, CARDS, BASE, PATH);
+    }
+
+    // The transport keeps one client per SSL context, so TLS sessions with this store are reused too
+    private HttpTransport.Response fetchWithCustomTrust(String url) throws Exception {
+        SSLContext ctx = getFarmacenterSslContext();
+        return fetchPage(url, ctx);
     }
 
-    // Build an SSL socket factory that trusts the Farmacenter certificate (PEM) only
-    private SSLSocketFactory getFarmacenterSslFactory() throws Exception {
-        SSLSocketFactory local = farmacenterSslFactory;
+    // Build an SSL context that trusts the Farmacenter certificate (PEM) only
+    private SSLContext getFarmacenterSslContext() throws Exception {
+        SSLContext local = farmacenterSslContext;
         if (local != null) return local;
 
         synchronized (this) {
-            if (farmacenterSslFactory != null) return farmacenterSslFactory;
+            if (farmacenterSslContext != null) return farmacenterSslContext;
 
             // Load PEM from classpath: src/main/resources/ssl/farmacenter.pem
             byte[] pemBytes;
@@ -117,8 +109,8 @@ public class FarmacenterScraper extends BaseJsoupScraper {
             SSLContext ctx = SSLContext.getInstance("TLS");
             ctx.init(null, tmf.getTrustManagers(), new SecureRandom());
 
-            farmacenterSslFactory = ctx.getSocketFactory();
-            return farmacenterSslFactory;
+            farmacenterSslContext = ctx;
+            return farmacenterSslContext;
         }
     }
 }
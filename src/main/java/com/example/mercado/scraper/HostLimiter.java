@@ -0,0 +1,113 @@
+package com.example.mercado.scraper;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps concurrent connections per origin host, so parallel searches don't hammer a single store.
+ */
+@Component
+public class HostLimiter {
+
+    private final Environment env;
+    private final int defaultLimit;
+    private final long waitTimeoutMs;
+
+    private final ConcurrentHashMap<String, Lane> lanes = new ConcurrentHashMap<>();
+
+    private static final class Lane {
+        final int limit;
+        final Semaphore permits;
+        final AtomicInteger queued = new AtomicInteger();
+        final AtomicLong acquired = new AtomicLong();
+        final AtomicLong totalWaitNanos = new AtomicLong();
+        final AtomicLong maxWaitNanos = new AtomicLong();
+
+        Lane(int limit) {
+            this.limit = limit;
+            this.permits = new Semaphore(limit, true);
+        }
+    }
+
+    public record HostStats(String host, int limit, int active, int queued, long acquired,
+                            double avgWaitMs, double maxWaitMs) {}
+
+    @Autowired
+    public HostLimiter(Environment env,
+                       @Value("${mercado.scrape.max-connections-per-host:4}") int defaultLimit,
+                       @Value("${mercado.scrape.host-wait-timeout-ms:10000}") long waitTimeoutMs) {
+        this.env = env;
+        this.defaultLimit = Math.max(1, defaultLimit);
+        this.waitTimeoutMs = waitTimeoutMs;
+    }
+
+    // No limits; used when a scraper runs outside the Spring context (benchmarks)
+    static HostLimiter unlimited() {
+        return new HostLimiter(null, Integer.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Run {@code work} while holding one connection slot for the host of {@code url}.
+     */
+    public <T> T call(String url, Callable<T> work) throws Exception {
+        String host = hostOf(url);
+        Lane lane = lanes.computeIfAbsent(host, h -> new Lane(limitFor(h)));
+
+        long start = System.nanoTime();
+        boolean acquired;
+        lane.queued.incrementAndGet();
+        try {
+            acquired = lane.permits.tryAcquire(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } finally {
+            lane.queued.decrementAndGet();
+        }
+        long waited = System.nanoTime() - start;
+        lane.totalWaitNanos.addAndGet(waited);
+        lane.maxWaitNanos.accumulateAndGet(waited, Math::max);
+        if (!acquired) {
+            throw new TimeoutException("Waited " + waitTimeoutMs + " ms for a connection to " + host);
+        }
+        lane.acquired.incrementAndGet();
+        try {
+            return work.call();
+        } finally {
+            lane.permits.release();
+        }
+    }
+
+    public List<HostStats> stats() {
+        return lanes.entrySet().stream()
+                .map(e -> {
+                    Lane l = e.getValue();
+                    long n = l.acquired.get();
+                    return new HostStats(e.getKey(), l.limit, l.limit - l.permits.availablePermits(), l.queued.get(), n,
+                            n == 0 ? 0 : l.totalWaitNanos.get() / 1e6 / n, l.maxWaitNanos.get() / 1e6);
+                })
+                .sorted(Comparator.comparing(HostStats::host))
+                .toList();
+    }
+
+    // Per-host override, e.g. mercado.scrape.max-connections-per-host.biggie.com.py=2
+    private int limitFor(String host) {
+        if (env == null) return defaultLimit;
+        return Math.max(1, env.getProperty("mercado.scrape.max-connections-per-host." + host, Integer.class, defaultLimit));
+    }
+
+    static String hostOf(String url) {
+        String host = URI.create(url).getHost();
+        return host == null ? url : host;
+    }
+}
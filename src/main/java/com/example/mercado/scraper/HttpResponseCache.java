@@ -0,0 +1,188 @@
+package com.example.mercado.scraper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * On-disk store of page bodies plus their validators (ETag / Last-Modified), so a repeat fetch can be
+ * sent as a conditional request and a 304 reuses the stored body. Entries are never served without
+ * revalidating, so prices are never stale. Validators sit at the head of each file and are read on their own;
+ * the body is only read back when the server answers 304.
+ */
+final class HttpResponseCache {
+
+    private final Logger logger = LoggerFactory.getLogger(HttpResponseCache.class);
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final Path dir;
+    private final long maxBytes;
+    private final AtomicLong totalBytes = new AtomicLong(-1);
+
+    private final AtomicLong conditionalRequests = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+    private final AtomicLong stored = new AtomicLong();
+
+    record Entry(String etag, String lastModified, URI uri, String charset, byte[] body) {}
+
+    record Validators(String etag, String lastModified) {}
+
+    record Stats(long conditionalRequests, long notModified, long bytesSaved, long stored, long diskBytes) {}
+
+    /**
+     * @param dir directory for cache files, or {@code null} to disable caching
+     */
+    HttpResponseCache(Path dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+    }
+
+    boolean enabled() {
+        return dir != null;
+    }
+
+    /**
+     * Validators to send with the next request for {@code url}, or {@code null} when nothing is stored.
+     */
+    Validators validators(String url) {
+        if (!enabled()) return null;
+        Path file = fileFor(url);
+        if (!Files.exists(file)) return null;
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            if (in.readInt() != FORMAT_VERSION || !url.equals(in.readUTF())) return null;
+            Validators validators = new Validators(emptyToNull(in.readUTF()), emptyToNull(in.readUTF()));
+            conditionalRequests.incrementAndGet();
+            return validators;
+        } catch (IOException | RuntimeException ex) {
+            logger.debug("Dropping unreadable cache file for {}: {}", url, ex.toString());
+            delete(file);
+            return null;
+        }
+    }
+
+    /**
+     * The stored response for {@code url}, body included, or {@code null} when it is gone or unreadable.
+     */
+    Entry read(String url) {
+        if (!enabled()) return null;
+        Path file = fileFor(url);
+        if (!Files.exists(file)) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FORMAT_VERSION || !url.equals(in.readUTF())) return null;
+            String etag = emptyToNull(in.readUTF());
+            String lastModified = emptyToNull(in.readUTF());
+            URI uri = URI.create(in.readUTF());
+            String charset = emptyToNull(in.readUTF());
+            byte[] body = in.readNBytes(in.readInt());
+            return new Entry(etag, lastModified, uri, charset, body);
+        } catch (IOException | RuntimeException ex) {
+            logger.debug("Dropping unreadable cache file for {}: {}", url, ex.toString());
+            delete(file);
+            return null;
+        }
+    }
+
+    void recordNotModified(Entry entry) {
+        notModified.incrementAndGet();
+        bytesSaved.addAndGet(entry.body().length);
+    }
+
+    void store(String url, Entry entry) {
+        if (!enabled() || (entry.etag() == null && entry.lastModified() == null)) return;
+        try {
+            Files.createDirectories(dir);
+            Path file = fileFor(url);
+            Path tmp = Files.createTempFile(dir, "entry", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(url);
+                out.writeUTF(nullToEmpty(entry.etag()));
+                out.writeUTF(nullToEmpty(entry.lastModified()));
+                out.writeUTF(entry.uri().toString());
+                out.writeUTF(nullToEmpty(entry.charset()));
+                out.writeInt(entry.body().length);
+                out.write(entry.body());
+            }
+            long previous = Files.exists(file) ? Files.size(file) : 0;
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            stored.incrementAndGet();
+            if (diskBytes() >= 0 && totalBytes.addAndGet(Files.size(file) - previous) > maxBytes) trim();
+        } catch (IOException | UncheckedIOException ex) {
+            logger.debug("Could not cache response for {}: {}", url, ex.toString());
+        }
+    }
+
+    Stats stats() {
+        return new Stats(conditionalRequests.get(), notModified.get(), bytesSaved.get(), stored.get(), Math.max(0, totalBytes.get()));
+    }
+
+    // Size of the cache directory, computed once and then tracked incrementally
+    private long diskBytes() throws IOException {
+        long current = totalBytes.get();
+        if (current >= 0) return current;
+        long sum = 0;
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path p : files.toList()) sum += Files.size(p);
+        }
+        totalBytes.compareAndSet(-1, sum);
+        return totalBytes.get();
+    }
+
+    // Drop the least recently written entries until the directory is back under 80% of the limit
+    private synchronized void trim() throws IOException {
+        List<Path> files;
+        try (Stream<Path> s = Files.list(dir)) {
+            files = s.sorted(Comparator.comparing(p -> p.toFile().lastModified())).toList();
+        }
+        long sum = 0;
+        for (Path p : files) sum += Files.size(p);
+        for (Path p : files) {
+            if (sum <= maxBytes * 0.8) break;
+            long size = Files.size(p);
+            delete(p);
+            sum -= size;
+        }
+        totalBytes.set(sum);
+    }
+
+    private Path fileFor(String url) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+            return dir.resolve(HexFormat.of().formatHex(hash, 0, 16) + ".page");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static void delete(Path file) {
+        try { Files.deleteIfExists(file); } catch (IOException ignored) {}
+    }
+
+    private static String emptyToNull(String s) {
+        return s.isEmpty() ? null : s;
+    }
+
+    private static String nullToEmpty(String s) {
+        return s == null ? "" : s;
+    }
+}
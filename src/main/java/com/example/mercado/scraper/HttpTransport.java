@@ -0,0 +1,324 @@
+package com.example.mercado.scraper;
+
+import org.jsoup.HttpStatusException;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Shared HTTP transport for every store. One long-lived {@link HttpClient} keeps per-host connection pools,
+ * HTTP/2 and TLS sessions warm across searches; stores with a custom trust store get their own client,
+ * kept just as long. Bodies are requested compressed and handed to Jsoup's parser as bytes.
+ * Pages seen before are revalidated with If-None-Match / If-Modified-Since, and a 304 reuses the stored body.
+ * {@code mercado.http.timeout-ms} bounds the whole exchange, body included, so a store that trickles its
+ * page cannot hold a host permit past it.
+ */
+@Component
+public class HttpTransport {
+
+    static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 Chrome/120 Safari/537.36";
+    private static final String REFERRER = "https://www.google.com";
+    private static final int META_SNIFF_BYTES = 1024;
+
+    private final Duration timeout;
+    private final int maxBodySize;
+    private final HttpClient defaultClient;
+    private final Map<SSLContext, HttpClient> customClients = new ConcurrentHashMap<>();
+    private final HttpResponseCache responseCache;
+
+    // A TLS session id we have not seen before means a full handshake happened
+    private final Set<String> seenSessions = ConcurrentHashMap.newKeySet();
+    private static final int MAX_TRACKED_SESSIONS = 10_000;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong http2Responses = new AtomicLong();
+    private final AtomicLong compressedResponses = new AtomicLong();
+    private final AtomicLong bytesOnWire = new AtomicLong();
+    private final AtomicLong bytesDecoded = new AtomicLong();
+    private final AtomicLong handshakes = new AtomicLong();
+    private final AtomicLong resumedSessions = new AtomicLong();
+
+    public record Response(URI uri, int status, byte[] body, String charset) {}
+
+    public record Stats(long requests, long http2Responses, long compressedResponses,
+                        long bytesOnWire, long bytesDecoded, long handshakes, long resumedSessions,
+                        long conditionalRequests, long notModified, long bytesSavedByRevalidation) {}
+
+    @Autowired
+    public HttpTransport(@Value("${mercado.http.timeout-ms:8000}") long timeoutMs,
+                         @Value("${mercado.http.max-body-size:1200000}") int maxBodySize,
+                         @Value("${mercado.http.cache-dir:${java.io.tmpdir}/mercado-http-cache}") String cacheDir,
+                         @Value("${mercado.http.cache-max-bytes:268435456}") long cacheMaxBytes) {
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.maxBodySize = maxBodySize;
+        this.defaultClient = newClient(null);
+        this.responseCache = new HttpResponseCache(
+                cacheDir == null || cacheDir.isBlank() ? null : Path.of(cacheDir), cacheMaxBytes);
+    }
+
+    // Same settings as the Spring bean, without the response cache; used when a scraper runs outside Spring
+    static HttpTransport defaults() {
+        return new HttpTransport(8000, 1_200_000, null, 0);
+    }
+
+    /**
+     * Fetch {@code url}; with {@code sslContext}, through a dedicated client that trusts it, cached per context.
+     */
+    public Response get(String url, SSLContext sslContext) throws IOException, InterruptedException {
+        return get(url, sslContext, true);
+    }
+
+    private Response get(String url, SSLContext sslContext, boolean conditional) throws IOException, InterruptedException {
+        HttpClient client = sslContext == null
+                ? defaultClient
+                : customClients.computeIfAbsent(sslContext, this::newClient);
+
+        HttpResponseCache.Validators cached = conditional ? responseCache.validators(url) : null;
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                .timeout(timeout)
+                .header("User-Agent", USER_AGENT)
+                .header("Referer", REFERRER)
+                .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8")
+                .header("Accept-Language", "es-ES,es;q=0.9,en;q=0.8")
+                .header("Accept-Encoding", "gzip, deflate")
+                .GET();
+        if (cached != null) {
+            if (cached.etag() != null) builder.header("If-None-Match", cached.etag());
+            if (cached.lastModified() != null) builder.header("If-Modified-Since", cached.lastModified());
+        }
+
+        requests.incrementAndGet();
+        HttpResponse<byte[]> response = exchange(client, builder.build());
+        recordConnection(response);
+
+        if (response.statusCode() == 304 && cached != null) {
+            HttpResponseCache.Entry stored = responseCache.read(url);
+            // The stored body went away after its validators were sent: ask for the page itself
+            if (stored == null) return get(url, sslContext, false);
+            responseCache.recordNotModified(stored);
+            return new Response(stored.uri(), 200, stored.body(), stored.charset());
+        }
+
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("").trim().toLowerCase(Locale.ROOT);
+        byte[] wire = response.body();
+        bytesOnWire.addAndGet(wire.length);
+        byte[] body;
+        try (InputStream decoded = decode(new ByteArrayInputStream(wire), encoding)) {
+            body = readUpTo(decoded, maxBodySize, wire.length >= maxBodySize);
+        }
+        bytesDecoded.addAndGet(body.length);
+        if (!encoding.isEmpty() && !"identity".equals(encoding)) compressedResponses.incrementAndGet();
+
+        if (response.statusCode() >= 400) {
+            throw new HttpStatusException("HTTP error fetching URL", response.statusCode(), url);
+        }
+        String contentType = response.headers().firstValue("Content-Type").orElse("");
+        Response result = new Response(response.uri(), response.statusCode(), body, charsetOf(contentType));
+        if (response.statusCode() == 200) {
+            responseCache.store(url, new HttpResponseCache.Entry(
+                    response.headers().firstValue("ETag").orElse(null),
+                    response.headers().firstValue("Last-Modified").orElse(null),
+                    result.uri(), result.charset(), body));
+        }
+        return result;
+    }
+
+    // Headers and body within one timeout; past it the exchange is cancelled, which closes its stream
+    private HttpResponse<byte[]> exchange(HttpClient client, HttpRequest request) throws IOException, InterruptedException {
+        CompletableFuture<HttpResponse<byte[]>> pending = client.sendAsync(request, info -> new BoundedBody(maxBodySize));
+        try {
+            return pending.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            pending.cancel(true);
+            throw new HttpTimeoutException("No complete response from " + request.uri() + " within "
+                    + timeout.toMillis() + " ms");
+        } catch (InterruptedException ex) {
+            pending.cancel(true);
+            throw ex;
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException io) throw io;
+            throw new IOException(ex.getCause());
+        }
+    }
+
+    // A body cut at the size limit may end inside a compressed block; what decodes up to there is kept
+    private static byte[] readUpTo(InputStream in, int limit, boolean truncated) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.min(limit, 64 * 1024));
+        byte[] buffer = new byte[8192];
+        try {
+            int n;
+            while (out.size() < limit && (n = in.read(buffer, 0, Math.min(buffer.length, limit - out.size()))) > 0) {
+                out.write(buffer, 0, n);
+            }
+        } catch (EOFException ex) {
+            if (!truncated) throw ex;
+        }
+        return out.toByteArray();
+    }
+
+    public Stats stats() {
+        HttpResponseCache.Stats cache = responseCache.stats();
+        return new Stats(requests.get(), http2Responses.get(), compressedResponses.get(),
+                bytesOnWire.get(), bytesDecoded.get(), handshakes.get(), resumedSessions.get(),
+                cache.conditionalRequests(), cache.notModified(), cache.bytesSaved());
+    }
+
+    static Document parse(Response response) throws IOException {
+        return Jsoup.parse(new ByteArrayInputStream(response.body()), response.charset(), response.uri().toString());
+    }
+
+    /**
+     * Charset for decoding a body as text: the Content-Type header, else a BOM or a meta charset near the top
+     * of the page, else UTF-8. {@link #parse} gets the same sniffing from Jsoup.
+     */
+    static Charset charsetOf(Response response) {
+        Charset declared = lookup(response.charset());
+        if (declared != null) return declared;
+        byte[] body = response.body();
+        if (body.length >= 3 && (body[0] & 0xFF) == 0xEF && (body[1] & 0xFF) == 0xBB && (body[2] & 0xFF) == 0xBF) {
+            return StandardCharsets.UTF_8;
+        }
+        String head = new String(body, 0, Math.min(body.length, META_SNIFF_BYTES), StandardCharsets.ISO_8859_1)
+                .toLowerCase(Locale.ROOT);
+        int i = head.indexOf("charset=");
+        if (i >= 0) {
+            int start = i + "charset=".length();
+            while (start < head.length() && (head.charAt(start) == '"' || head.charAt(start) == '\'')) start++;
+            int end = start;
+            while (end < head.length() && " \"';/>".indexOf(head.charAt(end)) < 0) end++;
+            Charset sniffed = lookup(head.substring(start, end));
+            if (sniffed != null) return sniffed;
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private static Charset lookup(String name) {
+        if (name == null || name.isEmpty()) return null;
+        try {
+            return Charset.forName(name);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    private HttpClient newClient(SSLContext sslContext) {
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(timeout);
+        if (sslContext != null) builder.sslContext(sslContext);
+        return builder.build();
+    }
+
+    private void recordConnection(HttpResponse<?> response) {
+        if (response.version() == HttpClient.Version.HTTP_2) http2Responses.incrementAndGet();
+        response.sslSession().map(SSLSession::getId).ifPresent(id -> {
+            if (id.length == 0) return;
+            if (seenSessions.size() > MAX_TRACKED_SESSIONS) seenSessions.clear();
+            if (seenSessions.add(HexFormat.of().formatHex(id))) handshakes.incrementAndGet();
+            else resumedSessions.incrementAndGet();
+        });
+    }
+
+    // Brotli is not available in the JDK, so only gzip/deflate are negotiated
+    private static InputStream decode(InputStream in, String encoding) throws IOException {
+        return switch (encoding) {
+            case "gzip", "x-gzip" -> new GZIPInputStream(in);
+            case "deflate" -> new InflaterInputStream(in);
+            default -> in;
+        };
+    }
+
+    static String charsetOf(String contentType) {
+        int i = contentType.toLowerCase(Locale.ROOT).indexOf("charset=");
+        if (i < 0) return null;
+        String cs = contentType.substring(i + "charset=".length()).trim();
+        int end = cs.indexOf(';');
+        if (end >= 0) cs = cs.substring(0, end);
+        cs = cs.replace("\"", "").trim();
+        return cs.isEmpty() ? null : cs;
+    }
+
+    // Collects the raw body up to limit bytes and then stops reading, like readNBytes on a stream
+    private static final class BoundedBody implements HttpResponse.BodySubscriber<byte[]> {
+        private final int limit;
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private final CompletableFuture<byte[]> body = new CompletableFuture<>();
+        private Flow.Subscription subscription;
+
+        BoundedBody(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public CompletionStage<byte[]> getBody() {
+            return body;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            if (body.isDone()) return;
+            for (ByteBuffer b : buffers) {
+                int n = Math.min(b.remaining(), limit - out.size());
+                byte[] chunk = new byte[n];
+                b.get(chunk);
+                out.write(chunk, 0, n);
+            }
+            if (out.size() >= limit) {
+                subscription.cancel();
+                body.complete(out.toByteArray());
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            body.completeExceptionally(error);
+        }
+
+        @Override
+        public void onComplete() {
+            body.complete(out.toByteArray());
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.mercado.scraper;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads products out of a store's search API response. The parser streams to the items array, skipping
+ * everything else without building it, then reads one item at a time; only the current item is ever held
+ * as a tree. Where each field sits inside an item is given as a JSON pointer, so the same reader serves
+ * any store whose API returns a list of products.
+ */
+final class JsonProductReader {
+
+    record Item(String name, long price, String image) {}
+
+    /**
+     * JSON pointers to the items array in the response (empty when the response is the array) and to the
+     * name, price and image of an item. {@code minorUnit}, when set, points to the number of decimals the
+     * price is given in minor units of (WooCommerce's {@code currency_minor_unit}); {@code null} when the
+     * price is already in guaraníes.
+     */
+    record Fields(JsonPointer items, JsonPointer name, JsonPointer price, JsonPointer image, JsonPointer minorUnit) {
+        static Fields of(String items, String name, String price, String image) {
+            return of(items, name, price, image, null);
+        }
+
+        static Fields of(String items, String name, String price, String image, String minorUnit) {
+            return new Fields(JsonPointer.compile(items), JsonPointer.compile(name), JsonPointer.compile(price),
+                    JsonPointer.compile(image), minorUnit == null ? null : JsonPointer.compile(minorUnit));
+        }
+    }
+
+    /**
+     * The response no longer has the shape the fields describe.
+     */
+    static final class ContractException extends IOException {
+        ContractException(String message) {
+            super(message);
+        }
+    }
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final JsonFactory FACTORY = MAPPER.getFactory();
+
+    private JsonProductReader() {}
+
+    static List<Item> read(byte[] body, Fields fields) throws IOException {
+        try (JsonParser parser = FACTORY.createParser(body)) {
+            if (parser.nextToken() == null || !seek(parser, fields.items())) {
+                throw new ContractException("no items at " + fields.items());
+            }
+            if (parser.currentToken() != JsonToken.START_ARRAY) {
+                throw new ContractException("items at " + fields.items() + " are not an array");
+            }
+            List<Item> out = new ArrayList<>();
+            int seen = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                JsonNode item = MAPPER.readTree(parser);
+                seen++;
+                String name = text(item.at(fields.name()));
+                long price = toWhole(price(item.at(fields.price())), item, fields);
+                if (name == null || name.isBlank() || price <= 0) continue;
+                String image = text(item.at(fields.image()));
+                out.add(new Item(name, price, image == null ? "" : image));
+            }
+            // An empty list is a search with no results; items none of which map is a changed contract
+            if (seen > 0 && out.isEmpty()) {
+                throw new ContractException(seen + " items, none with a name at " + fields.name()
+                        + " and a price at " + fields.price());
+            }
+            return out;
+        }
+    }
+
+    // Advance the parser, sitting on the current value, to the value at pointer; false when there is none
+    private static boolean seek(JsonParser parser, JsonPointer pointer) throws IOException {
+        while (!pointer.matches()) {
+            JsonToken token = parser.currentToken();
+            if (token == JsonToken.START_OBJECT) {
+                String property = pointer.getMatchingProperty();
+                boolean found = false;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String key = parser.currentName();
+                    parser.nextToken();
+                    if (key.equals(property)) {
+                        found = true;
+                        break;
+                    }
+                    parser.skipChildren();
+                }
+                if (!found) return false;
+            } else if (token == JsonToken.START_ARRAY && pointer.getMatchingIndex() >= 0) {
+                int index = pointer.getMatchingIndex();
+                for (int i = 0; ; i++) {
+                    if (parser.nextToken() == JsonToken.END_ARRAY) return false;
+                    if (i == index) break;
+                    parser.skipChildren();
+                }
+            } else {
+                return false;
+            }
+            pointer = pointer.tail();
+        }
+        return true;
+    }
+
+    private static String text(JsonNode node) {
+        return node.isValueNode() && !node.isNull() ? node.asText() : null;
+    }
+
+    // A price given in minor units, divided down to guaraníes and rounded; a scale that is not a small
+    // whole number means the field no longer says what it used to
+    private static long toWhole(long price, JsonNode item, Fields fields) throws ContractException {
+        if (fields.minorUnit() == null) return price;
+        JsonNode unit = item.at(fields.minorUnit());
+        if (unit.isMissingNode() || unit.isNull()) return price;
+        int decimals = unit.isIntegralNumber() ? unit.intValue()
+                : unit.isTextual() && unit.textValue().matches("\\d") ? Integer.parseInt(unit.textValue()) : -1;
+        if (decimals < 0 || decimals > 9) {
+            throw new ContractException("minor unit " + unit + " at " + fields.minorUnit() + " is not 0-9");
+        }
+        long scale = 1;
+        for (int i = 0; i < decimals; i++) scale *= 10;
+        return (price + scale / 2) / scale;
+    }
+
+    // Numbers as they are, strings through the same parser as page prices ("Gs. 12.500", "12500")
+    private static long price(JsonNode node) {
+        if (node.isNumber()) return Math.max(0, node.longValue());
+        if (node.isTextual()) return PriceParser.parse(node.textValue());
+        return 0;
+    }
+}
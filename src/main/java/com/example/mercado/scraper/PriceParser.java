@@ -0,0 +1,128 @@
+package com.example.mercado.scraper;
+
+/**
+ * Reads a guaraní amount out of a store's price text in one pass, without regex or intermediate strings.
+ * <p>
+ * Within a number, a '.' or ',' followed by exactly three digits groups thousands ("1.250.000", "12,500");
+ * any other separator starts decimals, which are dropped since the guaraní has no cents in use
+ * ("12.500,50" is 12500). When the text holds several amounts, as promo cards do ("Antes Gs. 15.000
+ * Ahora Gs. 12.500"), amounts marked with a currency ("Gs", "₲", "PYG") win over bare numbers,
+ * quantities ("2 x") and percentages ("-20%") are ignored, and the lowest remaining amount is the price.
+ */
+final class PriceParser {
+
+    private static final int MAX_DIGITS = 18;
+
+    private PriceParser() {}
+
+    /**
+     * @return the price in guaraníes, or 0 when the text has no amount
+     */
+    static long parse(CharSequence text) {
+        if (text == null) return 0L;
+        int n = text.length();
+        long bestMarked = -1;
+        long bestBare = -1;
+        // Set by a currency sign and kept across the spaces and dots that may follow it ("Gs. ")
+        boolean currencyBefore = false;
+
+        int i = 0;
+        while (i < n) {
+            char c = text.charAt(i);
+            if (!isDigit(c)) {
+                int marker = currencyLength(text, i);
+                if (marker > 0) {
+                    currencyBefore = true;
+                    i += marker;
+                } else {
+                    if (!isSpace(c) && c != '.' && c != ':') currencyBefore = false;
+                    i++;
+                }
+                continue;
+            }
+
+            // One number: digit groups joined by thousands separators, then optional decimals
+            long value = 0;
+            int digits = 0;
+            boolean overflow = false;
+            while (true) {
+                while (i < n && isDigit(text.charAt(i))) {
+                    if (++digits > MAX_DIGITS) overflow = true;
+                    else value = value * 10 + (text.charAt(i) - '0');
+                    i++;
+                }
+                if (i + 1 >= n || !isSeparator(text.charAt(i)) || !isDigit(text.charAt(i + 1))) break;
+                int group = groupLength(text, i + 1);
+                if (group != 3) {
+                    // Decimals: skip them, they end the number
+                    i += 1 + group;
+                    break;
+                }
+                i++;
+            }
+
+            int after = skipSpaces(text, i);
+            boolean marked = currencyBefore || currencyLength(text, after) > 0;
+            boolean ignored = overflow || after < n && (text.charAt(after) == '%'
+                    || (text.charAt(after) == 'x' || text.charAt(after) == 'X') && !isLetterAt(text, after + 1));
+            currencyBefore = false;
+            if (ignored) continue;
+            if (marked) {
+                if (bestMarked < 0 || (value > 0 && (value < bestMarked || bestMarked == 0))) bestMarked = value;
+            } else {
+                if (bestBare < 0 || (value > 0 && (value < bestBare || bestBare == 0))) bestBare = value;
+            }
+        }
+        if (bestMarked >= 0) return bestMarked;
+        return Math.max(0, bestBare);
+    }
+
+    // Length of a currency sign starting at i ("Gs", "₲", "PYG"), or 0
+    private static int currencyLength(CharSequence text, int i) {
+        int n = text.length();
+        if (i >= n) return 0;
+        char c = text.charAt(i);
+        if (c == '₲') return 1;
+        if (i > 0 && isLetter(text.charAt(i - 1))) return 0;
+        if ((c == 'G' || c == 'g') && i + 1 < n && (text.charAt(i + 1) == 's' || text.charAt(i + 1) == 'S')
+                && !isLetterAt(text, i + 2)) {
+            return 2;
+        }
+        if ((c == 'P' || c == 'p') && i + 2 < n && (text.charAt(i + 1) == 'Y' || text.charAt(i + 1) == 'y')
+                && (text.charAt(i + 2) == 'G' || text.charAt(i + 2) == 'g') && !isLetterAt(text, i + 3)) {
+            return 3;
+        }
+        return 0;
+    }
+
+    private static int groupLength(CharSequence text, int i) {
+        int start = i;
+        while (i < text.length() && isDigit(text.charAt(i))) i++;
+        return i - start;
+    }
+
+    private static int skipSpaces(CharSequence text, int i) {
+        while (i < text.length() && isSpace(text.charAt(i))) i++;
+        return i;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == '.' || c == ',';
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\u00A0' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    private static boolean isLetter(char c) {
+        return Character.isLetter(c);
+    }
+
+    private static boolean isLetterAt(CharSequence text, int i) {
+        return i < text.length() && isLetter(text.charAt(i));
+    }
+}
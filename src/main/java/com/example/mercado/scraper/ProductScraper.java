@@ -6,9 +6,24 @@ import java.util.List;
 
 public interface ProductScraper {
     /**
-     * Scrape products for the given URL-encoded query.
+     * Scrape products for the given URL-encoded query, from as many result pages as the store is read for.
      * @param encodedQuery query already encoded with UTF-8
      * @return list of products found
      */
     List<ProductsDto> scrape(String encodedQuery) throws Exception;
+
+    /**
+     * Scrape one page of the store's results for the query; pages count from 1. A store whose search is
+     * not paginated only has page 1, which is everything {@link #scrape} returns.
+     */
+    default List<ProductsDto> scrapePage(String encodedQuery, int page) throws Exception {
+        return page == 1 ? scrape(encodedQuery) : List.of();
+    }
+
+    /**
+     * Stable store name, used for per-store caching, limits and logging.
+     */
+    default String name() {
+        return getClass().getSimpleName();
+    }
 }
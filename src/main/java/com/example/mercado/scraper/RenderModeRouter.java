@@ -0,0 +1,153 @@
+package com.example.mercado.scraper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Learns, per store, whether its static HTML carries the product cards or only the browser-rendered page does,
+ * and picks how the next scrape fetches:
+ * <ul>
+ *     <li>{@link Mode#STATIC}: static page only; an empty page is taken as no results</li>
+ *     <li>{@link Mode#RENDERED}: straight to the browser, skipping a static fetch that never has cards</li>
+ *     <li>{@link Mode#STATIC_THEN_RENDERED}: static page, rendered when it has no cards; the only mode that
+ *     tells the two apart, so it is used until the store is known and as a periodic probe after that</li>
+ * </ul>
+ * Evidence is the last {@code window} probes that found products one way or the other: when at least
+ * {@code static-share} of them found them in the static page the store is static, at most
+ * {@code 1 - static-share} and it is rendered. Settled stores are probed again every {@code recheck-ms},
+ * and a static store whose page comes back empty is probed on its next scrape.
+ */
+@Component
+public class RenderModeRouter {
+
+    private final Logger logger = LoggerFactory.getLogger(RenderModeRouter.class);
+
+    public enum Mode { STATIC, RENDERED, STATIC_THEN_RENDERED }
+
+    public record StoreMode(String store, Mode mode, int staticFound, int renderedOnly, long recheckInMs) {}
+
+    private final int window;
+    private final int minSamples;
+    private final double staticShare;
+    private final long recheckMs;
+
+    private final ConcurrentHashMap<String, Store> stores = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RenderModeRouter(@Value("${mercado.render.window:10}") int window,
+                            @Value("${mercado.render.min-samples:3}") int minSamples,
+                            @Value("${mercado.render.static-share:0.9}") double staticShare,
+                            @Value("${mercado.render.recheck-ms:600000}") long recheckMs) {
+        this.window = Math.max(1, window);
+        this.minSamples = Math.max(1, Math.min(this.window, minSamples));
+        this.staticShare = Math.max(0.5, Math.min(1, staticShare));
+        this.recheckMs = recheckMs;
+    }
+
+    // Default settings; used when a scraper runs outside the Spring context (benchmarks)
+    static RenderModeRouter defaults() {
+        return new RenderModeRouter(10, 3, 0.9, 600_000);
+    }
+
+    /**
+     * How to fetch the next page of {@code store}; a probe is handed out at most once per recheck interval.
+     */
+    public Mode route(String store) {
+        return store(store).route(System.currentTimeMillis());
+    }
+
+    // Static-then-rendered: the static page had cards
+    void staticFound(String store) {
+        store(store).record(true);
+    }
+
+    // Static-then-rendered: the static page had none, the rendered one did
+    void renderedOnly(String store) {
+        store(store).record(false);
+    }
+
+    // Static mode came back empty: maybe no results, maybe the store moved to client-side rendering
+    void staticEmpty(String store) {
+        store(store).probeNext();
+    }
+
+    public List<StoreMode> status() {
+        long now = System.currentTimeMillis();
+        return stores.values().stream()
+                .map(s -> s.status(now))
+                .sorted(Comparator.comparing(StoreMode::store))
+                .toList();
+    }
+
+    private Store store(String name) {
+        return stores.computeIfAbsent(name, Store::new);
+    }
+
+    private final class Store {
+        final String name;
+
+        // Most recent probes that found products: true when the static page already had them
+        final boolean[] found = new boolean[window];
+        int next;
+        int size;
+
+        Mode mode = Mode.STATIC_THEN_RENDERED;
+        long recheckAt;
+
+        Store(String name) {
+            this.name = name;
+        }
+
+        synchronized Mode route(long now) {
+            if (mode == Mode.STATIC_THEN_RENDERED) return mode;
+            if (now < recheckAt) return mode;
+            recheckAt = now + recheckMs;
+            return Mode.STATIC_THEN_RENDERED;
+        }
+
+        synchronized void probeNext() {
+            recheckAt = 0;
+        }
+
+        synchronized void record(boolean staticHadCards) {
+            found[next] = staticHadCards;
+            next = (next + 1) % window;
+            size = Math.min(size + 1, window);
+
+            Mode learned = learned();
+            if (learned != mode) {
+                logger.info("Render mode for {} is now {} ({} of the last {} probes found cards in the static page)",
+                        name, learned, staticCount(), size);
+                if (mode == Mode.STATIC_THEN_RENDERED) recheckAt = System.currentTimeMillis() + recheckMs;
+                mode = learned;
+            }
+        }
+
+        private Mode learned() {
+            if (size < minSamples) return Mode.STATIC_THEN_RENDERED;
+            double share = (double) staticCount() / size;
+            if (share >= staticShare) return Mode.STATIC;
+            if (share <= 1 - staticShare) return Mode.RENDERED;
+            return Mode.STATIC_THEN_RENDERED;
+        }
+
+        private int staticCount() {
+            int n = 0;
+            for (int i = 0; i < size; i++) if (found[i]) n++;
+            return n;
+        }
+
+        synchronized StoreMode status(long now) {
+            int statics = staticCount();
+            return new StoreMode(name, mode, statics, size - statics,
+                    mode == Mode.STATIC_THEN_RENDERED ? 0 : Math.max(0, recheckAt - now));
+        }
+    }
+}
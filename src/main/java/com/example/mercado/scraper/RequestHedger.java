@@ -0,0 +1,186 @@
+package com.example.mercado.scraper;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hedged page fetches: when a host has not answered within its observed p95, the same fetch is issued once
+ * more and whichever answers first wins; the other is cancelled.
+ * <p>
+ * Hedges are paid for from a per-host budget that earns {@code budget-ratio} of a hedge per fetch (at most
+ * one), so a host never sees more than twice its normal load. A host is only hedged once {@code min-samples}
+ * fetches have been timed.
+ */
+@Component
+public class RequestHedger {
+
+    private static final int WINDOW = 128;
+    // Unused budget tops out here, so a quiet spell does not save up a burst of hedges
+    private static final double MAX_BUDGET = 10;
+
+    private final boolean enabled;
+    private final double budgetRatio;
+    private final int minSamples;
+    private final long minDelayMs;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ConcurrentHashMap<String, Host> hosts = new ConcurrentHashMap<>();
+
+    public record HostStats(String host, long requests, long hedged, long hedgeWins, long p95Ms,
+                            double hedgeRate, double winRate) {}
+
+    @Autowired
+    public RequestHedger(@Value("${mercado.hedge.enabled:true}") boolean enabled,
+                         @Value("${mercado.hedge.budget-ratio:0.1}") double budgetRatio,
+                         @Value("${mercado.hedge.min-samples:20}") int minSamples,
+                         @Value("${mercado.hedge.min-delay-ms:50}") long minDelayMs) {
+        this.enabled = enabled;
+        this.budgetRatio = Math.max(0, Math.min(1, budgetRatio));
+        this.minSamples = Math.max(1, Math.min(WINDOW, minSamples));
+        this.minDelayMs = minDelayMs;
+    }
+
+    // Never hedges; used when a scraper runs outside the Spring context (benchmarks)
+    static RequestHedger disabled() {
+        return new RequestHedger(false, 0, 1, 0);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Run {@code fetch} for {@code url}, racing a second copy of it if the first is slower than the host's p95.
+     */
+    public <T> T call(String url, Callable<T> fetch) throws Exception {
+        if (!enabled) return fetch.call();
+        Host host = hosts.computeIfAbsent(HostLimiter.hostOf(url), Host::new);
+        long delayMs = host.admit(budgetRatio, minSamples, minDelayMs);
+        long start = System.nanoTime();
+        if (delayMs < 0) {
+            T result = fetch.call();
+            host.record(elapsedMs(start));
+            return result;
+        }
+
+        ExecutorCompletionService<T> done = new ExecutorCompletionService<>(executor);
+        Future<T> primary = done.submit(fetch);
+        Future<T> hedge = null;
+        try {
+            Future<T> first = done.poll(delayMs, TimeUnit.MILLISECONDS);
+            if (first == null) {
+                if (host.tryHedge()) hedge = done.submit(fetch);
+                first = done.take();
+            }
+            try {
+                T result = first.get();
+                if (first == hedge) host.hedgeWon();
+                host.record(elapsedMs(start));
+                return result;
+            } catch (ExecutionException ex) {
+                // One attempt failed; the other may still succeed
+                if (hedge == null) throw unwrap(ex);
+                Future<T> second = done.take();
+                try {
+                    T result = second.get();
+                    if (second == hedge) host.hedgeWon();
+                    host.record(elapsedMs(start));
+                    return result;
+                } catch (ExecutionException again) {
+                    throw unwrap(again);
+                }
+            }
+        } finally {
+            primary.cancel(true);
+            if (hedge != null) hedge.cancel(true);
+        }
+    }
+
+    public List<HostStats> stats() {
+        return hosts.values().stream()
+                .map(Host::stats)
+                .sorted(Comparator.comparing(HostStats::host))
+                .toList();
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    private static Exception unwrap(ExecutionException ex) {
+        Throwable cause = ex.getCause();
+        if (cause instanceof Exception e) return e;
+        if (cause instanceof Error e) throw e;
+        return ex;
+    }
+
+    private static final class Host {
+        final String name;
+
+        // Latencies of the most recent fetches, as seen by the caller
+        final long[] latencies = new long[WINDOW];
+        int next;
+        int size;
+        long p95Ms = -1;
+
+        double budget;
+        long requests;
+        long hedged;
+        long hedgeWins;
+
+        Host(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Count a fetch and earn budget for it.
+         * @return how long to wait before hedging, or -1 when too few fetches have been timed
+         */
+        synchronized long admit(double ratio, int minSamples, long minDelayMs) {
+            requests++;
+            budget = Math.min(MAX_BUDGET, budget + ratio);
+            return size < minSamples ? -1 : Math.max(minDelayMs, p95Ms);
+        }
+
+        synchronized boolean tryHedge() {
+            if (budget < 1) return false;
+            budget -= 1;
+            hedged++;
+            return true;
+        }
+
+        synchronized void hedgeWon() {
+            hedgeWins++;
+        }
+
+        synchronized void record(long latencyMs) {
+            latencies[next] = latencyMs;
+            next = (next + 1) % WINDOW;
+            size = Math.min(size + 1, WINDOW);
+            long[] sorted = Arrays.copyOf(latencies, size);
+            Arrays.sort(sorted);
+            p95Ms = sorted[Math.max(0, (int) Math.ceil(0.95 * size) - 1)];
+        }
+
+        synchronized HostStats stats() {
+            return new HostStats(name, requests, hedged, hedgeWins, p95Ms,
+                    requests == 0 ? 0 : (double) hedged / requests,
+                    hedged == 0 ? 0 : (double) hedgeWins / hedged);
+        }
+    }
+}
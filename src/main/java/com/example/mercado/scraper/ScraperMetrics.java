@@ -0,0 +1,139 @@
+package com.example.mercado.scraper;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.jsoup.HttpStatusException;
+import org.openqa.selenium.WebDriverException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.net.ssl.SSLException;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Per-store scraping metrics, all tagged with the store name:
+ * <ul>
+ *     <li>{@code mercado.scraper.fetch} time to get a page, {@code mode} static, rendered or api</li>
+ *     <li>{@code mercado.scraper.parse} time to pull the product cards out of it</li>
+ *     <li>{@code mercado.scraper.bytes} decoded page size and {@code mercado.scraper.products} cards found</li>
+ *     <li>{@code mercado.browser.render} time of a browser render, {@code mercado.browser.render.bytes} and
+ *     {@code mercado.browser.render.requests} what it pulled in, tagged with the render {@code profile}
+ *     (lean or full) so the two can be compared</li>
+ *     <li>{@code mercado.scraper.fallbacks} by {@code type}: ssl (retried with another trust setup),
+ *     selenium (static page had no cards) or api (JSON API broke its contract, page scraped instead)</li>
+ * </ul>
+ * Also gauges for what scrapes wait on: connection slots per store host and browser sessions.
+ */
+@Component
+public class ScraperMetrics {
+
+    private final MeterRegistry registry;
+
+    @Autowired
+    public ScraperMetrics(MeterRegistry registry, HostLimiter hostLimiter, SeleniumPageFetcher renderer,
+                          HttpTransport transport, RequestHedger hedger) {
+        this(registry);
+        gauge("mercado.host.queued", hostLimiter, h -> h.stats().stream().mapToInt(HostLimiter.HostStats::queued).sum(),
+                "Fetches waiting for a connection slot to their store");
+        gauge("mercado.host.active", hostLimiter, h -> h.stats().stream().mapToInt(HostLimiter.HostStats::active).sum(),
+                "Connections to stores in use");
+        gauge("mercado.browser.queued", renderer, r -> r.poolStats().queued(), "Renders waiting for a browser session");
+        gauge("mercado.browser.in.use", renderer, r -> r.poolStats().inUse(), "Browser sessions rendering a page");
+        FunctionCounter.builder("mercado.http.bytes", transport, t -> t.stats().bytesOnWire())
+                .tag("kind", "wire").baseUnit("bytes").register(registry);
+        FunctionCounter.builder("mercado.http.bytes", transport, t -> t.stats().bytesDecoded())
+                .tag("kind", "decoded").baseUnit("bytes").register(registry);
+        FunctionCounter.builder("mercado.hedge.requests", hedger,
+                h -> h.stats().stream().mapToLong(RequestHedger.HostStats::requests).sum()).register(registry);
+        FunctionCounter.builder("mercado.hedge.hedged", hedger,
+                h -> h.stats().stream().mapToLong(RequestHedger.HostStats::hedged).sum()).register(registry);
+        FunctionCounter.builder("mercado.hedge.wins", hedger,
+                h -> h.stats().stream().mapToLong(RequestHedger.HostStats::hedgeWins).sum()).register(registry);
+    }
+
+    ScraperMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    // Records nothing; used when a scraper runs outside the Spring context (benchmarks)
+    static ScraperMetrics noop() {
+        return new ScraperMetrics(new CompositeMeterRegistry());
+    }
+
+    void fetched(String store, String mode, long nanos, long bytes) {
+        Timer.builder("mercado.scraper.fetch")
+                .tag("store", store).tag("mode", mode)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        if (bytes >= 0) {
+            DistributionSummary.builder("mercado.scraper.bytes")
+                    .tag("store", store).baseUnit("bytes")
+                    .register(registry)
+                    .record(bytes);
+        }
+    }
+
+    void parsed(String store, long nanos, int products) {
+        Timer.builder("mercado.scraper.parse")
+                .tag("store", store)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("mercado.scraper.products")
+                .tag("store", store)
+                .register(registry)
+                .record(products);
+    }
+
+    void rendered(String store, String profile, long nanos, long bytes, int requests) {
+        Timer.builder("mercado.browser.render")
+                .tag("store", store).tag("profile", profile)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        if (bytes < 0) return;
+        DistributionSummary.builder("mercado.browser.render.bytes")
+                .tag("store", store).tag("profile", profile).baseUnit("bytes")
+                .register(registry)
+                .record(bytes);
+        DistributionSummary.builder("mercado.browser.render.requests")
+                .tag("store", store).tag("profile", profile)
+                .register(registry)
+                .record(requests);
+    }
+
+    void fellBack(String store, String type) {
+        registry.counter("mercado.scraper.fallbacks", "store", store, "type", type).increment();
+    }
+
+    /**
+     * Low-cardinality failure label for a scrape that threw {@code ex}.
+     */
+    public static String failureType(Throwable ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof HttpTimeoutException || t instanceof SocketTimeoutException
+                    || t instanceof TimeoutException || t instanceof org.openqa.selenium.TimeoutException) {
+                return "timeout";
+            }
+            if (t instanceof SSLException) return "ssl";
+            if (t instanceof HttpStatusException) return "http_status";
+            if (t instanceof InterruptedException) return "interrupted";
+        }
+        if (ex instanceof WebDriverException) return "browser";
+        if (ex instanceof IOException) return "io";
+        return "error";
+    }
+
+    private <T> void gauge(String name, T source, ToDoubleFunction<T> value, String description) {
+        Gauge.builder(name, source, value).description(description).register(registry);
+    }
+}
@@ -1,22 +1,155 @@
 package com.example.mercado.scraper;
 
+import jakarta.annotation.PreDestroy;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.PageLoadStrategy;
+import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.chrome.ChromeOptions;
 import org.openqa.selenium.chrome.ChromeDriver;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
-final class SeleniumPageFetcher {
+/**
+ * Renders pages in pooled headless Chrome sessions, with one of two profiles:
+ * <ul>
+ *     <li>{@code lean} (default): returns at DOMContentLoaded and then waits only for {@code cssToWaitFor};
+ *     images are off, and stylesheets, fonts, media and the {@code blocked-hosts} (analytics, ads, chat
+ *     widgets) are blocked by Chrome itself, so nothing waits on an interception round trip</li>
+ *     <li>{@code full}: loads the page like a desktop browser, everything included</li>
+ * </ul>
+ * Every render reports the bytes the page pulled in and how many requests it made.
+ */
+@Component
+class SeleniumPageFetcher {
 
-    private SeleniumPageFetcher() {}
+    private final Logger logger = LoggerFactory.getLogger(SeleniumPageFetcher.class);
 
-    static Document fetchRendered(String url, String cssToWaitFor, int timeoutSeconds) {
+    // Resource kinds a product list never needs to be in the DOM
+    private static final List<String> BLOCKED_EXTENSIONS = List.of(
+            "css", "woff", "woff2", "ttf", "otf", "eot",
+            "png", "jpg", "jpeg", "gif", "webp", "avif", "svg", "ico",
+            "mp4", "webm", "mp3");
+
+    // Bytes moved by the document and every resource it loaded; cross-origin ones without
+    // Timing-Allow-Origin report 0, so this is a lower bound
+    private static final String TRANSFER_SCRIPT =
+            "const entries = performance.getEntriesByType('navigation')"
+            + ".concat(performance.getEntriesByType('resource'));"
+            + "return [entries.reduce((sum, e) => sum + (e.transferSize || 0), 0), entries.length];";
+
+    record Rendered(Document doc, long bytes, int requests) {}
+
+    private final ChromeSessionPool pool;
+    private final boolean lean;
+
+    SeleniumPageFetcher(@Value("${mercado.selenium.pool.max-sessions:2}") int maxSessions,
+                        @Value("${mercado.selenium.pool.max-pages-per-session:50}") int maxPagesPerSession,
+                        @Value("${mercado.selenium.pool.checkout-timeout-ms:20000}") long checkoutTimeoutMs,
+                        @Value("${mercado.selenium.pool.max-idle-ms:600000}") long maxIdleMs,
+                        @Value("${mercado.selenium.profile:lean}") String profile,
+                        @Value("${mercado.selenium.lean.blocked-hosts:}") List<String> blockedHosts) {
+        this.lean = !"full".equalsIgnoreCase(profile.trim());
+        List<String> blocked = blockedUrlPatterns(blockedHosts);
+        this.pool = new ChromeSessionPool(() -> newDriver(lean, blocked), maxSessions, maxPagesPerSession,
+                Duration.ofMillis(checkoutTimeoutMs), Duration.ofMillis(maxIdleMs));
+    }
+
+    /**
+     * Patterns for {@code Network.setBlockedURLs}, which match the whole URL: each extension is blocked both
+     * bare and followed by a query string, since WordPress stores version nearly every asset
+     * ({@code style.css?ver=6.4}).
+     */
+    static List<String> blockedUrlPatterns(List<String> blockedHosts) {
+        List<String> blocked = new ArrayList<>();
+        for (String ext : BLOCKED_EXTENSIONS) {
+            blocked.add("*." + ext);
+            blocked.add("*." + ext + "?*");
+        }
+        for (String host : blockedHosts) {
+            if (!host.isBlank()) blocked.add("*" + host.trim() + "*");
+        }
+        return blocked;
+    }
+
+    String profile() {
+        return lean ? "lean" : "full";
+    }
+
+    @Scheduled(fixedDelayString = "${mercado.selenium.pool.reap-interval-ms:60000}",
+            initialDelayString = "${mercado.selenium.pool.reap-interval-ms:60000}")
+    void closeIdleSessions() {
+        int closed = pool.closeExpired(System.currentTimeMillis());
+        if (closed > 0) logger.debug("Closed {} idle browser sessions", closed);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.close();
+    }
+
+    Document fetchRendered(String url, String cssToWaitFor, int timeoutSeconds) throws InterruptedException {
+        return render(url, cssToWaitFor, timeoutSeconds).doc();
+    }
+
+    Rendered render(String url, String cssToWaitFor, int timeoutSeconds) throws InterruptedException {
+        ChromeSessionPool.Session session = pool.checkout();
+        boolean broken = false;
+        boolean abandoned = false;
+        try {
+            WebDriver driver = session.driver;
+            driver.navigate().to(url);
+            if (cssToWaitFor != null && !cssToWaitFor.isEmpty()) {
+                new WebDriverWait(driver, Duration.ofSeconds(timeoutSeconds))
+                        .until(ExpectedConditions.presenceOfElementLocated(By.cssSelector(cssToWaitFor)));
+            }
+            String html = driver.getPageSource();
+            long bytes = -1;
+            int requests = 0;
+            if (driver instanceof JavascriptExecutor js
+                    && js.executeScript(TRANSFER_SCRIPT) instanceof List<?> transfer && transfer.size() == 2) {
+                bytes = ((Number) transfer.get(0)).longValue();
+                requests = ((Number) transfer.get(1)).intValue();
+            }
+            return new Rendered(Jsoup.parse(html, url), bytes, requests);
+        } catch (TimeoutException ex) {
+            // Selector never showed up; the browser itself is fine
+            throw ex;
+        } catch (WebDriverException ex) {
+            // An interrupt from the search deadline surfaces as a WebDriverException. Chrome is fine but may still
+            // be loading this page, so the session is not handed to the next render
+            abandoned = Thread.currentThread().isInterrupted();
+            broken = !abandoned;
+            throw ex;
+        } finally {
+            if (abandoned) {
+                pool.abandon(session);
+            } else {
+                pool.release(session, broken);
+            }
+            logger.debug("Browser pool after {}: {}", url, pool.stats());
+        }
+    }
+
+    ChromeSessionPool.Stats poolStats() {
+        return pool.stats();
+    }
+
+    private static WebDriver newDriver(boolean lean, List<String> blocked) {
         ChromeOptions options = new ChromeOptions();
         options.addArguments(
                 "--headless=new",
@@ -28,19 +161,22 @@ final class SeleniumPageFetcher {
                 "user-agent=Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 Chrome/120 Safari/537.36",
                 "referer=https://www.google.com"
         );
-        options.setPageLoadStrategy(PageLoadStrategy.NORMAL);
+        if (!lean) {
+            options.setPageLoadStrategy(PageLoadStrategy.NORMAL);
+            return new ChromeDriver(options);
+        }
 
-        WebDriver driver = new ChromeDriver(options);
+        // Images are off by content setting, which catches those without a file extension too
+        options.setExperimentalOption("prefs", Map.of("profile.managed_default_content_settings.images", 2));
+        options.setPageLoadStrategy(PageLoadStrategy.EAGER);
+        ChromeDriver driver = new ChromeDriver(options);
         try {
-            driver.navigate().to(url);
-            if (cssToWaitFor != null && !cssToWaitFor.isEmpty()) {
-                new WebDriverWait(driver, Duration.ofSeconds(timeoutSeconds))
-                        .until(ExpectedConditions.presenceOfElementLocated(By.cssSelector(cssToWaitFor)));
-            }
-            String html = driver.getPageSource();
-            return Jsoup.parse(html, url);
-        } finally {
-            try { driver.quit(); } catch (Exception ignored) {}
+            driver.executeCdpCommand("Network.enable", Map.of());
+            driver.executeCdpCommand("Network.setBlockedURLs", Map.of("urls", blocked));
+        } catch (WebDriverException ex) {
+            driver.quit();
+            throw ex;
         }
+        return driver;
     }
 }
@@ -1,35 +1,27 @@
 package com.example.mercado.scraper;
 
 import com.example.mercado.dto.ProductsDto;
-import org.jsoup.nodes.Document;
-import org.jsoup.select.Elements;
 import org.springframework.stereotype.Component;
 
-import java.util.ArrayList;
 import java.util.List;
 
 @Component
 public class SuperSeisScraper extends BaseJsoupScraper {
     private static final String BASE = "https://www.superseis.com.py";
     private static final String PATH = "/search.aspx?searchterms=";
+    static final CardSelectors CARDS = CardSelectors.of(
+            "h2.product-title",
+            "span.price-label",
+            "a.picture-link > img");
 
     @Override
     public List<ProductsDto> scrape(String encodedQuery) throws Exception {
-        String url = BASE + PATH + encodedQuery;
-        Document doc = fetch(url);
-
-        Elements names = doc.select("h2.product-title");
-        Elements prices = doc.select("span.price-label");
-        Elements images = doc.select("a.picture-link > img");
+        return scrapePages(encodedQuery);
+    }
 
-        int count = Math.min(names.size(), Math.min(prices.size(), images.size()));
-        List<ProductsDto> out = new ArrayList<>(count);
-        for (int i = 0; i < count; i++) {
-            String name = names.get(i).text();
-            long price = parsePrice(prices.get(i).text());
-            String image = resolveImage(images.get(i));
-            out.add(product(name, price, "GS", image, BASE, PATH + name));
-        }
-        return out;
+    @Override
+    public List<ProductsDto> scrapePage(String encodedQuery, int page) throws Exception {
+        String url = BASE + PATH + encodedQuery + (page > 1 ? "&pagenumber=" + page : "");
+        return extractCards(fetchPage(url), CARDS, BASE, PATH);
     }
 }
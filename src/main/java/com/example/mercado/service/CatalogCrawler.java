@@ -0,0 +1,167 @@
+package com.example.mercado.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the most searched queries warm. Every tick it looks at the top queries from {@link QueryPopularity};
+ * each store whose cached result for one of them expires within {@code refresh-ahead-ms} is scraped again,
+ * after a random delay so stores are not hit in bursts, and never more often than the store's
+ * {@code max-scrapes-per-minute}. Once every store is fresh again the merged search result is rebuilt
+ * from the per-store results, so a hot query is a cache hit for users.
+ */
+@Component
+public class CatalogCrawler {
+
+    private final Logger logger = LoggerFactory.getLogger(CatalogCrawler.class);
+
+    private final SearchService searchService;
+    private final QueryPopularity popularity;
+    private final Environment env;
+
+    private final boolean enabled;
+    private final int topQueries;
+    private final double minScore;
+    private final long refreshAheadMs;
+    private final long jitterMs;
+    private final int defaultScrapesPerMinute;
+
+    // Crawls run on virtual threads; they mostly sleep through jitter and wait on stores
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Queries with a crawl in progress, by ProductQuery key
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    // Earliest time each store may be crawled again
+    private final ConcurrentHashMap<String, AtomicLong> nextScrapeAt = new ConcurrentHashMap<>();
+
+    private final AtomicLong scrapes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong rebuilt = new AtomicLong();
+
+    public record Stats(boolean enabled, int trackedQueries, int inFlight, long scrapes, long failures,
+                        long rateLimited, long rebuilt) {}
+
+    public CatalogCrawler(SearchService searchService,
+                          QueryPopularity popularity,
+                          Environment env,
+                          @Value("${mercado.crawler.enabled:true}") boolean enabled,
+                          @Value("${mercado.crawler.top-queries:50}") int topQueries,
+                          @Value("${mercado.crawler.min-score:1.5}") double minScore,
+                          @Value("${mercado.crawler.refresh-ahead-ms:60000}") long refreshAheadMs,
+                          @Value("${mercado.crawler.jitter-ms:5000}") long jitterMs,
+                          @Value("${mercado.crawler.max-scrapes-per-minute:20}") int defaultScrapesPerMinute) {
+        this.searchService = searchService;
+        this.popularity = popularity;
+        this.env = env;
+        this.enabled = enabled;
+        this.topQueries = topQueries;
+        this.minScore = minScore;
+        this.refreshAheadMs = refreshAheadMs;
+        this.jitterMs = jitterMs;
+        this.defaultScrapesPerMinute = Math.max(1, defaultScrapesPerMinute);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Scheduled(fixedDelayString = "${mercado.crawler.interval-ms:15000}",
+            initialDelayString = "${mercado.crawler.initial-delay-ms:30000}")
+    void tick() {
+        if (enabled) crawl();
+    }
+
+    public Stats stats() {
+        return new Stats(enabled, popularity.tracked(), inFlight.size(), scrapes.get(), failures.get(),
+                rateLimited.get(), rebuilt.get());
+    }
+
+    /**
+     * Start a crawl of every popular query that is about to expire.
+     * @return completes when the crawls started by this call are done
+     */
+    CompletableFuture<Void> crawl() {
+        List<CompletableFuture<Void>> started = new ArrayList<>();
+        for (QueryPopularity.Popular popular : popularity.top(topQueries, minScore)) {
+            String rawQuery = popular.rawQuery();
+            String key = SearchService.normalize(rawQuery);
+            if (!inFlight.add(key)) continue;
+
+            List<String> due = new ArrayList<>();
+            for (String store : searchService.storeNames()) {
+                if (searchService.storeRemainingMs(store, rawQuery) > refreshAheadMs) continue;
+                if (tryReserve(store)) due.add(store);
+                else rateLimited.incrementAndGet();
+            }
+            if (due.isEmpty() && searchService.cachedRemainingMs(rawQuery) > refreshAheadMs) {
+                inFlight.remove(key);
+                continue;
+            }
+            started.add(crawl(rawQuery, due).whenComplete((v, ex) -> inFlight.remove(key)));
+        }
+        return CompletableFuture.allOf(started.toArray(CompletableFuture[]::new));
+    }
+
+    // Scrape the due stores, each after its own jitter, then rebuild the merged entry if no store is missing
+    private CompletableFuture<Void> crawl(String rawQuery, List<String> due) {
+        CompletableFuture<?>[] scrapesDone = due.stream()
+                .map(store -> CompletableFuture.runAsync(() -> scrape(store, rawQuery), executor))
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(scrapesDone).thenCompose(v -> {
+            boolean complete = searchService.storeNames().stream()
+                    .allMatch(store -> searchService.storeRemainingMs(store, rawQuery) > 0);
+            if (!complete) return CompletableFuture.completedFuture(null);
+            rebuilt.incrementAndGet();
+            return searchService.rebuild(rawQuery).<Void>thenApply(r -> null).exceptionally(ex -> {
+                logger.debug("Rebuilding '{}' failed: {}", rawQuery, ex.toString());
+                return null;
+            });
+        });
+    }
+
+    private void scrape(String store, String rawQuery) {
+        try {
+            if (jitterMs > 0) Thread.sleep(ThreadLocalRandom.current().nextLong(jitterMs));
+            scrapes.incrementAndGet();
+            if (!searchService.refreshStore(store, rawQuery)) failures.incrementAndGet();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException ex) {
+            failures.incrementAndGet();
+            logger.debug("Crawling {} for '{}' failed: {}", store, rawQuery, ex.toString());
+        }
+    }
+
+    // One slot every 60s / max-scrapes-per-minute per store; a store over its rate waits for a later tick
+    private boolean tryReserve(String store) {
+        long spacingMs = 60_000L / scrapesPerMinute(store);
+        AtomicLong next = nextScrapeAt.computeIfAbsent(store, s -> new AtomicLong());
+        long now = System.currentTimeMillis();
+        long at = next.get();
+        return at <= now && next.compareAndSet(at, now + spacingMs);
+    }
+
+    // Per-store override, e.g. mercado.crawler.max-scrapes-per-minute.BiggiesScraper=4
+    private int scrapesPerMinute(String store) {
+        return Math.max(1, env.getProperty("mercado.crawler.max-scrapes-per-minute." + store, Integer.class,
+                defaultScrapesPerMinute));
+    }
+}
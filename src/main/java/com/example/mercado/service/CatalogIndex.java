@@ -0,0 +1,337 @@
+package com.example.mercado.service;
+
+import com.example.mercado.dto.ProductsDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process inverted index over every product the scrapers have returned, keyed by (store, folded name).
+ * <ul>
+ *     <li>names are folded and tokenized by {@link ProductQuery}; a sorted term dictionary answers prefixes
+ *     and a trigram table finds near misses ("azucr" → azucar)</li>
+ *     <li>{@link #search} ranks by how well each query token matched (exact, prefix, fuzzy), then by price</li>
+ *     <li>{@link #answer} serves a whole search locally when the same query was scraped from every store
+ *     recently, with the same matching rule the store filter uses</li>
+ * </ul>
+ * Products not seen for {@code max-age-ms} are dropped, oldest first once over {@code max-products}.
+ */
+@Component
+public class CatalogIndex {
+
+    private static final int MAX_COVERED_QUERIES = 10_000;
+    private static final long PRUNE_INTERVAL_MS = 60_000;
+    private static final int MIN_FUZZY_LENGTH = 4;
+    private static final double MIN_FUZZY_SIMILARITY = 0.5;
+
+    public record Hit(ProductsDto product, double score) {}
+
+    private static final Comparator<Hit> BY_SCORE = Comparator.comparingDouble(Hit::score).reversed()
+            .thenComparing(Hit::product, SearchService.BY_PRICE);
+
+    /**
+     * A locally served search; {@code remainingMs} is how long it stays as fresh as the scrape it came from.
+     */
+    record Answer(List<ProductsDto> products, long remainingMs) {}
+
+    public record Stats(int products, int terms, int coveredQueries, long lookups, long answered, long evicted) {}
+
+    private static final class Doc {
+        int id;
+        final String key;
+        final String[] tokens;
+        ProductsDto product;
+        long seenAt;
+
+        Doc(int id, String key, String[] tokens) {
+            this.id = id;
+            this.key = key;
+            this.tokens = tokens;
+        }
+    }
+
+    // Doc ids in ascending order; ids of removed docs stay until the next rebuild and are skipped
+    private static final class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            if (size > 0 && ids[size - 1] == id) return;
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+    }
+
+    private record Coverage(long scrapedAt, long expiresAt) {}
+
+    private final long freshMs;
+    private final long maxAgeMs;
+    private final int maxProducts;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Guarded by lock
+    private final List<Doc> docs = new ArrayList<>();
+    private final Map<String, Doc> byKey = new HashMap<>();
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final Map<String, List<String>> trigrams = new HashMap<>();
+    private int removed;
+    private long lastPruneAt = System.currentTimeMillis();
+
+    // Access-ordered, so the least recently asked query goes first. Guarded by itself.
+    private final LinkedHashMap<String, Coverage> covered = new LinkedHashMap<>(64, 0.75f, true);
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong answered = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+
+    public CatalogIndex(@Value("${mercado.catalog.fresh-ms:300000}") long freshMs,
+                        @Value("${mercado.catalog.max-age-ms:86400000}") long maxAgeMs,
+                        @Value("${mercado.catalog.max-products:200000}") int maxProducts) {
+        this.freshMs = freshMs;
+        this.maxAgeMs = maxAgeMs;
+        this.maxProducts = Math.max(1, maxProducts);
+    }
+
+    /**
+     * Index (or refresh) everything a store returned for a query, matching or not.
+     */
+    void add(List<ProductsDto> products) {
+        long now = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            for (ProductsDto p : products) {
+                String[] tokens = ProductQuery.tokens(p.getName());
+                if (tokens.length == 0) continue;
+                String key = p.getOrigin() + '\n' + ProductQuery.normalizedName(p.getName());
+                Doc doc = byKey.get(key);
+                if (doc == null) {
+                    doc = new Doc(docs.size(), key, tokens);
+                    docs.add(doc);
+                    byKey.put(key, doc);
+                    index(doc);
+                }
+                doc.product = p;
+                doc.seenAt = now;
+            }
+            if (byKey.size() > maxProducts || now - lastPruneAt >= PRUNE_INTERVAL_MS) prune(now);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Record that every store answered {@code query}; {@link #answer} serves it until {@code ttlMs} passes.
+     */
+    void markCovered(ProductQuery query, long ttlMs) {
+        if (query.isEmpty()) return;
+        long now = System.currentTimeMillis();
+        synchronized (covered) {
+            covered.put(query.key(), new Coverage(now, now + Math.min(ttlMs, freshMs)));
+            if (covered.size() > MAX_COVERED_QUERIES) {
+                covered.remove(covered.keySet().iterator().next());
+            }
+        }
+    }
+
+    /**
+     * Every indexed product matching {@code query}, cheapest first, if the query is covered by a fresh
+     * scrape of every store; otherwise {@code null} and the stores have to be asked.
+     */
+    Answer answer(ProductQuery query) {
+        lookups.incrementAndGet();
+        long now = System.currentTimeMillis();
+        Coverage coverage;
+        synchronized (covered) {
+            coverage = covered.get(query.key());
+            if (coverage != null && coverage.expiresAt <= now) {
+                covered.remove(query.key());
+                coverage = null;
+            }
+        }
+        if (coverage == null) return null;
+
+        // Store results reused by that search may be up to one TTL older than the search itself
+        long seenSince = coverage.scrapedAt - freshMs;
+        List<ProductsDto> out = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Map<Integer, Double> ids = matching(query, false);
+            if (ids != null) {
+                for (Integer id : ids.keySet()) {
+                    Doc doc = docs.get(id);
+                    if (doc.seenAt >= seenSince) out.add(doc.product);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        out.sort(SearchService.BY_PRICE);
+        answered.incrementAndGet();
+        return new Answer(out, coverage.expiresAt - now);
+    }
+
+    /**
+     * Best {@code limit} products for {@code query} across everything indexed, including near-miss spellings;
+     * exact token matches rank above prefixes, prefixes above fuzzy matches, then cheaper first.
+     */
+    public List<Hit> search(ProductQuery query, int limit) {
+        TopK<Hit> best = new TopK<>(limit, BY_SCORE);
+        lock.readLock().lock();
+        try {
+            Map<Integer, Double> ids = matching(query, true);
+            if (ids == null) return List.of();
+            for (Map.Entry<Integer, Double> e : ids.entrySet()) {
+                best.offer(new Hit(docs.get(e.getKey()).product, e.getValue() / query.tokens().length));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return best.first();
+    }
+
+    public Stats stats() {
+        int products;
+        int termCount;
+        lock.readLock().lock();
+        try {
+            products = byKey.size();
+            termCount = terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+        int queries;
+        synchronized (covered) {
+            queries = covered.size();
+        }
+        return new Stats(products, termCount, queries, lookups.get(), answered.get(), evicted.get());
+    }
+
+    // Doc id → summed token scores for docs matching every query token, or null when none can match.
+    // Caller holds the read lock.
+    private Map<Integer, Double> matching(ProductQuery query, boolean fuzzy) {
+        String[] tokens = query.tokens();
+        if (tokens.length == 0) return null;
+        List<Map<Integer, Double>> perToken = new ArrayList<>(tokens.length);
+        for (String token : tokens) {
+            Map<Integer, Double> scores = new HashMap<>();
+            for (Map.Entry<String, Double> term : termsFor(token, fuzzy).entrySet()) {
+                Postings postings = terms.get(term.getKey());
+                for (int i = 0; i < postings.size; i++) {
+                    int id = postings.ids[i];
+                    if (docs.get(id) != null) scores.merge(id, term.getValue(), Math::max);
+                }
+            }
+            if (scores.isEmpty()) return null;
+            perToken.add(scores);
+        }
+        // Intersect, starting from the rarest token
+        perToken.sort(Comparator.comparingInt(Map::size));
+        Map<Integer, Double> result = perToken.get(0);
+        for (int t = 1; t < perToken.size(); t++) {
+            Map<Integer, Double> other = perToken.get(t);
+            result.entrySet().removeIf(e -> {
+                Double s = other.get(e.getKey());
+                if (s == null) return true;
+                e.setValue(e.getValue() + s);
+                return false;
+            });
+            if (result.isEmpty()) return null;
+        }
+        return result;
+    }
+
+    // Dictionary terms a query token matches, with a score: 1 for the token itself, less for longer
+    // terms it prefixes, and at most 0.5 for spellings that only share most of their trigrams
+    private Map<String, Double> termsFor(String token, boolean fuzzy) {
+        Map<String, Double> out = new HashMap<>();
+        for (String term : terms.subMap(token, true, token + Character.MAX_VALUE, false).keySet()) {
+            out.put(term, term.length() == token.length() ? 1.0 : 0.6 + 0.3 * token.length() / term.length());
+        }
+        if (!fuzzy || token.length() < MIN_FUZZY_LENGTH) return out;
+
+        String[] grams = trigramsOf(token);
+        Map<String, Integer> shared = new HashMap<>();
+        for (String gram : grams) {
+            for (String term : trigrams.getOrDefault(gram, List.of())) shared.merge(term, 1, Integer::sum);
+        }
+        for (Map.Entry<String, Integer> e : shared.entrySet()) {
+            if (out.containsKey(e.getKey())) continue;
+            // Dice coefficient; a padded word of n letters has n trigrams
+            double similarity = 2.0 * e.getValue() / (grams.length + e.getKey().length());
+            if (similarity >= MIN_FUZZY_SIMILARITY) out.put(e.getKey(), 0.5 * similarity);
+        }
+        return out;
+    }
+
+    private void index(Doc doc) {
+        for (String token : doc.tokens) {
+            Postings postings = terms.get(token);
+            if (postings == null) {
+                postings = new Postings();
+                terms.put(token, postings);
+                if (token.length() >= MIN_FUZZY_LENGTH - 1) {
+                    for (String gram : trigramsOf(token)) trigrams.computeIfAbsent(gram, g -> new ArrayList<>(2)).add(token);
+                }
+            }
+            postings.add(doc.id);
+        }
+    }
+
+    // Padded, so "leche" gives ^le lec ech che he$ and short words still have grams at both ends
+    private static String[] trigramsOf(String token) {
+        String padded = "^" + token + "$";
+        String[] out = new String[padded.length() - 2];
+        for (int i = 0; i < out.length; i++) out[i] = padded.substring(i, i + 3);
+        return out;
+    }
+
+    // Drop products not seen for max-age, then the least recently seen while over the limit.
+    // Caller holds the write lock.
+    private void prune(long now) {
+        lastPruneAt = now;
+        List<Doc> live = new ArrayList<>(byKey.values());
+        live.removeIf(doc -> {
+            if (now - doc.seenAt < maxAgeMs) return false;
+            drop(doc);
+            return true;
+        });
+        int excess = live.size() - maxProducts;
+        if (excess > 0) {
+            live.sort(Comparator.comparingLong(doc -> doc.seenAt));
+            for (Doc doc : live.subList(0, excess)) drop(doc);
+        }
+        if (removed > docs.size() / 2) rebuild();
+    }
+
+    private void drop(Doc doc) {
+        byKey.remove(doc.key);
+        docs.set(doc.id, null);
+        removed++;
+        evicted.incrementAndGet();
+    }
+
+    // Renumber the surviving docs and rebuild postings and trigrams without the removed ones
+    private void rebuild() {
+        List<Doc> live = new ArrayList<>(byKey.size());
+        for (Doc doc : docs) if (doc != null) live.add(doc);
+        docs.clear();
+        terms.clear();
+        trigrams.clear();
+        removed = 0;
+        for (Doc doc : live) {
+            doc.id = docs.size();
+            docs.add(doc);
+            index(doc);
+        }
+    }
+}
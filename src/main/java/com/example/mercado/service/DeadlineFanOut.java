@@ -0,0 +1,83 @@
+package com.example.mercado.service;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Runs fan-out tasks against a shared deadline. When the deadline passes, a task that has not answered
+ * is completed with its fallback value and its thread is interrupted, which aborts blocking socket
+ * reads, host-limit waits and browser waits instead of letting them run on in the background.
+ */
+final class DeadlineFanOut implements AutoCloseable {
+
+    private final ExecutorService executor;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "search-deadline");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong cutOff = new AtomicLong();
+    // Tasks whose thread has not returned yet, including cut-off ones still unwinding
+    private final AtomicInteger running = new AtomicInteger();
+
+    DeadlineFanOut(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @param deadlineAtMs wall-clock deadline shared by every task of one fan-out
+     * @param onDeadline   value used when the task has not answered by the deadline
+     */
+    <T> CompletableFuture<T> submit(Callable<T> work, long deadlineAtMs, Supplier<T> onDeadline) {
+        submitted.incrementAndGet();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        running.incrementAndGet();
+        Future<?> task = executor.submit(() -> {
+            try {
+                result.complete(work.call());
+            } catch (Throwable ex) {
+                result.completeExceptionally(ex);
+            } finally {
+                running.decrementAndGet();
+            }
+        });
+
+        long delay = Math.max(0, deadlineAtMs - System.currentTimeMillis());
+        ScheduledFuture<?> timeout = timer.schedule(() -> {
+            if (result.complete(onDeadline.get())) {
+                cutOff.incrementAndGet();
+                task.cancel(true);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+        result.whenComplete((v, ex) -> timeout.cancel(false));
+        return result;
+    }
+
+    long submittedCount() {
+        return submitted.get();
+    }
+
+    long cutOffCount() {
+        return cutOff.get();
+    }
+
+    int running() {
+        return running.get();
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+}
@@ -0,0 +1,561 @@
+package com.example.mercado.service;
+
+import com.example.mercado.dto.ProductsDto;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Append-only price history on local disk, indexed in memory by (origin, normalized product name).
+ * <p>
+ * Observations go to memory-mapped segment files of {@code segment-bytes} each. A segment is a header
+ * followed by records, and a zero byte where the records end:
+ * <pre>
+ *   KEY   0x01 id:varint origin:str name:str displayName:str url:str
+ *   PRICE 0x02 id:varint epochSeconds:varlong price:varlong
+ * </pre>
+ * Ids are local to a segment, so every segment can be read on its own; a price observation takes about ten
+ * bytes. The type byte is written last, so a process dying mid-record leaves the end marker in place.
+ * An unchanged price is written again at most every {@code min-interval-ms}.
+ * <p>
+ * Every restart appends to a new segment. Compaction, when there is anything to drop, keeps only where prices
+ * changed (plus the last sighting of each price) within the retention window. It prunes the index under the
+ * lock, writes a copy into temporary files while scrapers keep appending to the live segment, and then only
+ * renames: the rewritten segments take the places just before the live one and the older ones are deleted.
+ * Replaying an observation that is not newer than a series' last one is a no-op, so a crash at any step
+ * loses nothing.
+ */
+@Component
+public class PriceHistory {
+
+    private final Logger logger = LoggerFactory.getLogger(PriceHistory.class);
+
+    private static final int MAGIC = 0x4D504831; // "MPH1"
+    private static final byte END = 0;
+    private static final byte KEY = 1;
+    private static final byte PRICE = 2;
+    private static final int HEADER_BYTES = Integer.BYTES;
+    private static final int MAX_STRING_BYTES = 1024;
+    // Comfortably above the largest record, four strings of MAX_STRING_BYTES
+    private static final int MIN_SEGMENT_BYTES = 64 * 1024;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String COMPACT_PREFIX = "compact-";
+    private static final String COMPACT_SUFFIX = ".tmp";
+
+    public record Point(long at, long price) {}
+
+    public record History(String origin, String name, String url, List<Point> points, Point cheapest, Point latest) {}
+
+    public record Stats(boolean enabled, int products, long points, int segments, long appended,
+                        long unchanged, long compactions) {}
+
+    private record Key(String origin, String name) {}
+
+    private static final class Series {
+        final Key key;
+        String displayName;
+        String url;
+        long[] times = new long[2];
+        long[] prices = new long[2];
+        int size;
+
+        Series(Key key, String displayName, String url) {
+            this.key = key;
+            this.displayName = displayName;
+            this.url = url;
+        }
+
+        Series copy() {
+            Series c = new Series(key, displayName, url);
+            c.times = Arrays.copyOf(times, size);
+            c.prices = Arrays.copyOf(prices, size);
+            c.size = size;
+            return c;
+        }
+
+        long lastTime() {
+            return size == 0 ? Long.MIN_VALUE : times[size - 1];
+        }
+
+        void add(long epochSeconds, long price) {
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size * 2);
+                prices = Arrays.copyOf(prices, size * 2);
+            }
+            times[size] = epochSeconds;
+            prices[size] = price;
+            size++;
+        }
+    }
+
+    // One mapped segment being written, with the ids its KEY records declared
+    private static final class SegmentWriter {
+        Path file;
+        final MappedByteBuffer buf;
+        private final Map<Key, Integer> ids = new HashMap<>();
+        private ByteBuffer scratch = ByteBuffer.allocate(256);
+
+        SegmentWriter(Path file, int bytes, StandardOpenOption... options) throws IOException {
+            this.file = file;
+            try (FileChannel ch = FileChannel.open(file, options)) {
+                buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            }
+            buf.putInt(MAGIC);
+        }
+
+        boolean isEmpty() {
+            return buf.position() == HEADER_BYTES;
+        }
+
+        // False when the segment is full
+        boolean append(Series s, long epochSeconds, long price) {
+            Integer id = ids.get(s.key);
+            if (id == null) {
+                scratch.clear();
+                id = ids.size();
+                writeVarLong(id);
+                writeString(s.key.origin());
+                writeString(s.key.name());
+                writeString(s.displayName);
+                writeString(s.url);
+                if (!put(KEY)) return false;
+                ids.put(s.key, id);
+            }
+            scratch.clear();
+            writeVarLong(id);
+            writeVarLong(epochSeconds);
+            writeVarLong(price);
+            return put(PRICE);
+        }
+
+        // Copy the scratch body in after the type byte, then the type byte itself
+        private boolean put(byte type) {
+            scratch.flip();
+            int pos = buf.position();
+            // Room for the type byte and the end marker that follows
+            if (buf.remaining() < scratch.remaining() + 2) return false;
+            buf.position(pos + 1);
+            buf.put(scratch);
+            buf.put(pos, type);
+            return true;
+        }
+
+        private void writeString(String s) {
+            byte[] bytes = clip(s).getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            ensureScratch(bytes.length);
+            scratch.put(bytes);
+        }
+
+        private void writeVarLong(long value) {
+            ensureScratch(10);
+            while ((value & ~0x7FL) != 0) {
+                scratch.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            scratch.put((byte) value);
+        }
+
+        private void ensureScratch(int bytes) {
+            if (scratch.remaining() >= bytes) return;
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(scratch.capacity() * 2, scratch.position() + bytes));
+            scratch.flip();
+            bigger.put(scratch);
+            scratch = bigger;
+        }
+    }
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final long minIntervalSeconds;
+    private final long retentionSeconds;
+
+    // Everything below is guarded by "this"
+    private final Map<Key, Series> index = new HashMap<>();
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+    private SegmentWriter active;
+    private long points;
+    private boolean loaded;
+    private boolean compacting;
+
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong unchanged = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+
+    /**
+     * @param dir directory for segment files, or {@code null} to disable the history
+     */
+    @Autowired
+    public PriceHistory(@Value("${mercado.history.dir:${java.io.tmpdir}/mercado-price-history}") String dir,
+                        @Value("${mercado.history.segment-bytes:16777216}") int segmentBytes,
+                        @Value("${mercado.history.min-interval-ms:3600000}") long minIntervalMs,
+                        @Value("${mercado.history.retention-days:365}") int retentionDays) {
+        this.dir = dir == null || dir.isBlank() ? null : Path.of(dir);
+        this.segmentBytes = Math.max(MIN_SEGMENT_BYTES, segmentBytes);
+        this.minIntervalSeconds = TimeUnit.MILLISECONDS.toSeconds(minIntervalMs);
+        this.retentionSeconds = TimeUnit.DAYS.toSeconds(retentionDays);
+    }
+
+    boolean enabled() {
+        return dir != null;
+    }
+
+    /**
+     * Record the prices a store just returned; products without a price are skipped.
+     */
+    void record(List<ProductsDto> products) {
+        record(products, System.currentTimeMillis());
+    }
+
+    synchronized void record(List<ProductsDto> products, long nowMs) {
+        if (!enabled() || !ensureLoaded()) return;
+        long now = TimeUnit.MILLISECONDS.toSeconds(nowMs);
+        try {
+            for (ProductsDto p : products) {
+                if (p.getPrice() == null || p.getPrice() <= 0 || p.getOrigin() == null) continue;
+                Key key = key(p.getOrigin(), p.getName());
+                if (key.name().isEmpty()) continue;
+                Series s = index.computeIfAbsent(key, k -> new Series(k, p.getName(), p.getUrl()));
+                long price = p.getPrice();
+                if (s.size > 0) {
+                    if (now <= s.lastTime()) continue;
+                    if (s.prices[s.size - 1] == price && now - s.lastTime() < minIntervalSeconds) {
+                        unchanged.incrementAndGet();
+                        continue;
+                    }
+                }
+                s.displayName = p.getName();
+                s.url = p.getUrl();
+                s.add(now, price);
+                points++;
+                append(s, now, price);
+                appended.incrementAndGet();
+            }
+        } catch (IOException | UncheckedIOException ex) {
+            logger.warn("Could not append to the price history: {}", ex.toString());
+        }
+    }
+
+    /**
+     * Every recorded price of one product, oldest first, with the cheapest and latest observations.
+     */
+    public synchronized Optional<History> history(String origin, String productName) {
+        if (!enabled() || !ensureLoaded()) return Optional.empty();
+        Series s = index.get(key(origin, productName));
+        if (s == null || s.size == 0) return Optional.empty();
+        List<Point> out = new ArrayList<>(s.size);
+        Point cheapest = null;
+        for (int i = 0; i < s.size; i++) {
+            Point p = new Point(TimeUnit.SECONDS.toMillis(s.times[i]), s.prices[i]);
+            out.add(p);
+            if (cheapest == null || p.price() < cheapest.price()) cheapest = p;
+        }
+        return Optional.of(new History(origin, s.displayName, s.url, out, cheapest, out.get(out.size() - 1)));
+    }
+
+    public synchronized Stats stats() {
+        if (enabled()) ensureLoaded();
+        return new Stats(enabled(), index.size(), points, segments.size(), appended.get(), unchanged.get(),
+                compactions.get());
+    }
+
+    @Scheduled(fixedDelayString = "${mercado.history.compact-interval-ms:3600000}",
+            initialDelayString = "${mercado.history.compact-interval-ms:3600000}")
+    void scheduledCompaction() {
+        compact(System.currentTimeMillis());
+    }
+
+    /**
+     * Rewrite the history into fresh segments without repeated prices or observations past retention; does
+     * nothing when there is nothing to drop.
+     */
+    void compact(long nowMs) {
+        List<Series> copies;
+        long liveSeq;
+        synchronized (this) {
+            if (!enabled() || !ensureLoaded() || compacting) return;
+            long cutoff = TimeUnit.MILLISECONDS.toSeconds(nowMs) - retentionSeconds;
+            if (index.values().stream().noneMatch(s -> prunable(s, cutoff))) return;
+            points = 0;
+            index.values().removeIf(s -> {
+                prune(s, cutoff);
+                return s.size == 0;
+            });
+            copies = new ArrayList<>(index.size());
+            for (Series s : index.values()) {
+                copies.add(s.copy());
+                points += s.size;
+            }
+            liveSeq = segments.lastKey();
+            compacting = true;
+        }
+        List<SegmentWriter> written = new ArrayList<>();
+        try {
+            writeCompacted(copies, written);
+            synchronized (this) {
+                install(liveSeq, written);
+            }
+            compactions.incrementAndGet();
+        } catch (IOException | UncheckedIOException ex) {
+            logger.warn("Price history compaction failed: {}", ex.toString());
+            for (SegmentWriter w : written) {
+                try {
+                    if (sequenceOf(w.file) < 0) Files.deleteIfExists(w.file);
+                } catch (IOException ignored) {
+                    // removed on the next start
+                }
+            }
+        } finally {
+            synchronized (this) {
+                compacting = false;
+            }
+        }
+    }
+
+    @PreDestroy
+    synchronized void flush() {
+        if (active != null) active.buf.force();
+    }
+
+    // Whether compaction would drop anything: a price past retention, or the middle of a run of equal prices
+    private static boolean prunable(Series s, long cutoff) {
+        if (s.size > 0 && s.times[0] < cutoff) return true;
+        for (int i = 2; i < s.size; i++) {
+            if (s.prices[i] == s.prices[i - 1] && s.prices[i - 1] == s.prices[i - 2]) return true;
+        }
+        return false;
+    }
+
+    // Write the pruned copies into temporary segments; runs without the lock
+    private void writeCompacted(List<Series> copies, List<SegmentWriter> written) throws IOException {
+        SegmentWriter out = null;
+        for (Series s : copies) {
+            for (int i = 0; i < s.size; i++) {
+                if (out != null && out.append(s, s.times[i], s.prices[i])) continue;
+                if (out != null) out.buf.force();
+                out = new SegmentWriter(dir.resolve(COMPACT_PREFIX + written.size() + COMPACT_SUFFIX), segmentBytes,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+                written.add(out);
+                if (!out.append(s, s.times[i], s.prices[i])) throw new IOException("record larger than a segment");
+            }
+        }
+        if (out != null) out.buf.force();
+    }
+
+    // Renames only, so the directory replays to the whole history at every step: the live segments (liveSeq and
+    // any opened since) move up to make room, the rewritten ones take the places before them, and what was
+    // there before is deleted
+    private void install(long liveSeq, List<SegmentWriter> written) throws IOException {
+        int k = written.size();
+        // Nothing appended since this process started: keep appending to the last rewritten segment instead
+        boolean adopt = k > 0 && active.isEmpty() && segments.lastKey() == liveSeq;
+        if (adopt) Files.deleteIfExists(segments.remove(liveSeq));
+        for (long seq : new ArrayList<>(segments.tailMap(liveSeq, true).descendingKeySet())) {
+            Path moved = segmentFile(seq + k);
+            Files.move(segments.remove(seq), moved, StandardCopyOption.ATOMIC_MOVE);
+            segments.put(seq + k, moved);
+            if (active.file.equals(segmentFile(seq))) active.file = moved;
+        }
+        for (int i = 0; i < k; i++) {
+            SegmentWriter w = written.get(i);
+            Path file = segmentFile(liveSeq + i);
+            Files.move(w.file, file, StandardCopyOption.ATOMIC_MOVE);
+            w.file = file;
+            segments.put(liveSeq + i, file);
+        }
+        for (Map.Entry<Long, Path> e : new ArrayList<>(segments.headMap(liveSeq).entrySet())) {
+            Files.deleteIfExists(e.getValue());
+            segments.remove(e.getKey());
+        }
+        if (adopt) active = written.get(k - 1);
+    }
+
+    // Keep, within retention, the first and last sighting of each run of equal prices
+    private static void prune(Series s, long cutoff) {
+        int out = 0;
+        for (int i = 0; i < s.size; i++) {
+            if (s.times[i] < cutoff) continue;
+            boolean sameAsPrevious = out > 0 && s.prices[out - 1] == s.prices[i];
+            boolean sameAsNext = i + 1 < s.size && s.prices[i + 1] == s.prices[i];
+            if (sameAsPrevious && sameAsNext) continue;
+            s.times[out] = s.times[i];
+            s.prices[out] = s.prices[i];
+            out++;
+        }
+        s.size = out;
+    }
+
+    // Replay every segment once, then start a new one for this process
+    private boolean ensureLoaded() {
+        if (loaded) return active != null;
+        loaded = true;
+        try {
+            Files.createDirectories(dir);
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : files.toList()) {
+                    // Left by a compaction that did not finish; the segments it was rewriting are still there
+                    if (file.getFileName().toString().startsWith(COMPACT_PREFIX)) {
+                        Files.deleteIfExists(file);
+                        continue;
+                    }
+                    long seq = sequenceOf(file);
+                    if (seq >= 0) segments.put(seq, file);
+                }
+            }
+            for (Map.Entry<Long, Path> e : new ArrayList<>(segments.entrySet())) {
+                if (replay(e.getValue()) == 0) {
+                    Files.deleteIfExists(e.getValue());
+                    segments.remove(e.getKey());
+                }
+            }
+            openSegment();
+            logger.info("Price history loaded: {} products, {} prices from {} segments", index.size(), points,
+                    segments.size() - 1);
+            return true;
+        } catch (IOException | UncheckedIOException ex) {
+            logger.warn("Price history disabled, {} is not usable: {}", dir, ex.toString());
+            active = null;
+            return false;
+        }
+    }
+
+    // Number of records read; stops quietly at the end marker or at a damaged record
+    private int replay(Path file) throws IOException {
+        MappedByteBuffer buf;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() < HEADER_BYTES + 1) return 0;
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+        if (buf.getInt() != MAGIC) {
+            logger.warn("Skipping {}, not a price history segment", file);
+            return 0;
+        }
+        Map<Integer, Series> ids = new HashMap<>();
+        int records = 0;
+        try {
+            while (buf.hasRemaining()) {
+                byte type = buf.get();
+                if (type == END) break;
+                if (type == KEY) {
+                    int id = (int) readVarLong(buf);
+                    Key key = new Key(readString(buf), readString(buf));
+                    String displayName = readString(buf);
+                    String url = readString(buf);
+                    Series s = index.computeIfAbsent(key, k -> new Series(k, displayName, url));
+                    s.displayName = displayName;
+                    s.url = url;
+                    ids.put(id, s);
+                } else if (type == PRICE) {
+                    Series s = ids.get((int) readVarLong(buf));
+                    long at = readVarLong(buf);
+                    long price = readVarLong(buf);
+                    if (s == null) throw new IllegalArgumentException("price for an undeclared product");
+                    if (at > s.lastTime()) {
+                        s.add(at, price);
+                        points++;
+                    }
+                } else {
+                    throw new IllegalArgumentException("unknown record type " + type);
+                }
+                records++;
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException ex) {
+            logger.warn("Price history segment {} is damaged after {} records: {}", file, records, ex.toString());
+        }
+        return records;
+    }
+
+    // Map a new, empty segment for appends
+    private void openSegment() throws IOException {
+        long seq = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+        Path file = segmentFile(seq);
+        if (active != null) active.buf.force();
+        active = new SegmentWriter(file, segmentBytes, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        segments.put(seq, file);
+    }
+
+    private void append(Series s, long epochSeconds, long price) throws IOException {
+        if (active.append(s, epochSeconds, price)) return;
+        openSegment();
+        if (!active.append(s, epochSeconds, price)) throw new IOException("record larger than a segment");
+    }
+
+    private Path segmentFile(long seq) {
+        return dir.resolve(String.format("%s%019d%s", SEGMENT_PREFIX, seq, SEGMENT_SUFFIX));
+    }
+
+    // The index key; both parts clipped the way they are stored, so a series replays under the key it was
+    // recorded with
+    private static Key key(String origin, String productName) {
+        return new Key(clip(origin), clip(ProductQuery.normalizedName(productName)));
+    }
+
+    // At most MAX_STRING_BYTES of UTF-8, cut before a character rather than inside one
+    static String clip(String s) {
+        if (s == null) return "";
+        // No UTF-16 char takes more than three bytes
+        if (s.length() * 3L <= MAX_STRING_BYTES) return s;
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= MAX_STRING_BYTES) return s;
+        int end = MAX_STRING_BYTES;
+        while ((bytes[end] & 0xC0) == 0x80) end--;
+        return new String(bytes, 0, end, StandardCharsets.UTF_8);
+    }
+
+    private static long readVarLong(ByteBuffer buf) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buf.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IllegalArgumentException("varint too long");
+    }
+
+    private static String readString(ByteBuffer buf) {
+        int length = (int) readVarLong(buf);
+        if (length > MAX_STRING_BYTES) throw new IllegalArgumentException("string too long");
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long sequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) return -1;
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.mercado.service;
+
+import com.example.mercado.dto.ProductGroupDto;
+import com.example.mercado.dto.ProductsDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Groups the same product sold by different stores, so a search can show the cheapest offer and the
+ * price spread per product instead of unrelated rows.
+ * <p>
+ * Each name is reduced to its sizes ("1 kg", "1.000 g" and "1000gr" are all 1000 g) and its remaining folded
+ * words. Offers only match when their sizes are identical, and a group never holds two different listings of
+ * one store. Word overlap is weighted by how rare a word is
+ * among the results, so brand words ("trebol", "lactolanda") decide a match far more than generic ones
+ * ("leche", "entera"). Identical names are joined through a hash; everything else is only compared within
+ * blocks of offers that share a size and one of their two rarest words, so the work grows with the number of
+ * offers instead of its square. Blocks too large to be telling are skipped.
+ */
+final class ProductMatcher {
+
+    static final double MIN_SIMILARITY = 0.6;
+    private static final int BLOCK_WORDS = 2;
+    private static final int MAX_BLOCK = 64;
+
+    private static final Set<String> STOPWORDS = Set.of(
+            "de", "del", "la", "las", "el", "los", "y", "e", "con", "en", "x", "para", "por", "al", "a");
+
+    // Unit spelling → canonical unit and factor
+    private record Unit(String canonical, double factor) {}
+
+    private static final Map<String, Unit> UNITS = new HashMap<>();
+    // Units whose amounts are written with a thousands separator ("1.000 g", "1.500 ml")
+    private static final Set<String> SMALL_UNITS = Set.of("g", "mg", "ml");
+
+    static {
+        for (String u : List.of("g", "gr", "grs", "gramo", "gramos", "grm")) UNITS.put(u, new Unit("g", 1));
+        for (String u : List.of("kg", "kgs", "kilo", "kilos")) UNITS.put(u, new Unit("g", 1000));
+        for (String u : List.of("mg")) UNITS.put(u, new Unit("mg", 1));
+        for (String u : List.of("ml", "cc", "mililitros")) UNITS.put(u, new Unit("ml", 1));
+        for (String u : List.of("cl")) UNITS.put(u, new Unit("ml", 10));
+        for (String u : List.of("l", "lt", "lts", "litro", "litros")) UNITS.put(u, new Unit("ml", 1000));
+        for (String u : List.of("u", "un", "und", "unid", "unidad", "unidades", "uds")) UNITS.put(u, new Unit("u", 1));
+        for (String u : List.of("m", "mt", "mts", "metro", "metros")) UNITS.put(u, new Unit("m", 1));
+    }
+
+    record Offer(ProductsDto product, String size, String[] words) {}
+
+    private ProductMatcher() {}
+
+    /**
+     * Every product in exactly one group; groups cheapest first.
+     */
+    static List<ProductGroupDto> group(List<ProductsDto> products) {
+        List<Offer> offers = new ArrayList<>(products.size());
+        for (ProductsDto p : products) {
+            if (p.getName() != null) offers.add(parse(p));
+        }
+        int n = offers.size();
+        int[] parent = new int[n];
+        // Stores in each group, kept at its root
+        List<Set<String>> origins = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            parent[i] = i;
+            origins.add(new HashSet<>(Set.of(String.valueOf(offers.get(i).product().getOrigin()))));
+        }
+
+        // Same size and same words: one hash lookup each
+        Map<String, Integer> exact = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            Offer o = offers.get(i);
+            Integer first = exact.putIfAbsent(o.size() + "|" + String.join(" ", o.words()), i);
+            if (first != null) union(parent, origins, first, i);
+        }
+
+        Map<String, Integer> documentFrequency = new HashMap<>();
+        for (Offer o : offers) {
+            for (String w : o.words()) documentFrequency.merge(w, 1, Integer::sum);
+        }
+        Map<String, Double> idf = new HashMap<>();
+        documentFrequency.forEach((w, df) -> idf.put(w, Math.log(1.0 + (double) n / df)));
+
+        Map<String, List<Integer>> blocks = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            Offer o = offers.get(i);
+            String[] rarest = o.words().clone();
+            Arrays.sort(rarest, Comparator.comparingInt((String w) -> documentFrequency.get(w)).thenComparing(w -> w));
+            for (int k = 0; k < Math.min(BLOCK_WORDS, rarest.length); k++) {
+                blocks.computeIfAbsent(o.size() + "|" + rarest[k], b -> new ArrayList<>()).add(i);
+            }
+        }
+        for (List<Integer> block : blocks.values()) {
+            if (block.size() < 2 || block.size() > MAX_BLOCK) continue;
+            for (int a = 0; a < block.size(); a++) {
+                for (int b = a + 1; b < block.size(); b++) {
+                    int i = block.get(a);
+                    int j = block.get(b);
+                    // A store listing two similar names sells two products ("Trebol entera" and "Trebol descremada"),
+                    // so groups sharing a store stay apart, even when a looser name elsewhere resembles both
+                    int ri = find(parent, i);
+                    int rj = find(parent, j);
+                    if (ri == rj || !Collections.disjoint(origins.get(ri), origins.get(rj))) continue;
+                    if (similarity(offers.get(i).words(), offers.get(j).words(), idf) >= MIN_SIMILARITY) {
+                        union(parent, origins, i, j);
+                    }
+                }
+            }
+        }
+
+        Map<Integer, List<Offer>> byRoot = new HashMap<>();
+        for (int i = 0; i < n; i++) byRoot.computeIfAbsent(find(parent, i), r -> new ArrayList<>()).add(offers.get(i));
+        List<ProductGroupDto> groups = new ArrayList<>(byRoot.size());
+        for (List<Offer> members : byRoot.values()) groups.add(toGroup(members));
+        groups.sort(Comparator.comparing(ProductGroupDto::getBestPrice, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(ProductGroupDto::getName, String.CASE_INSENSITIVE_ORDER));
+        return groups;
+    }
+
+    // Weighted Jaccard over the two word sets
+    static double similarity(String[] a, String[] b, Map<String, Double> idf) {
+        double shared = 0;
+        double total = 0;
+        Set<String> inB = new HashSet<>(Arrays.asList(b));
+        for (String w : a) {
+            double weight = idf.getOrDefault(w, 1.0);
+            total += weight;
+            if (inB.remove(w)) shared += weight;
+        }
+        for (String w : inB) total += idf.getOrDefault(w, 1.0);
+        return total == 0 ? 0 : shared / total;
+    }
+
+    /**
+     * Sizes and distinct words of a product name; sizes come out canonical and sorted, e.g. "1000g" or "6u+500ml".
+     */
+    static Offer parse(ProductsDto product) {
+        String folded = ProductQuery.fold(product.getName());
+        StringBuilder rest = new StringBuilder(folded.length());
+        TreeSet<String> sizes = new TreeSet<>();
+        int i = 0;
+        int sizeEnd = -1;
+        while (i < folded.length()) {
+            char c = folded.charAt(i);
+            boolean wordStart = i == 0 || i == sizeEnd || !Character.isLetterOrDigit(folded.charAt(i - 1));
+            if (isDigit(c) && (wordStart || afterX(folded, i))) {
+                int end = readSize(folded, i, afterX(folded, i), sizes);
+                if (end > i) {
+                    rest.append(' ');
+                    i = sizeEnd = end;
+                    continue;
+                }
+            }
+            rest.append(c);
+            i++;
+        }
+        TreeSet<String> words = new TreeSet<>();
+        for (String w : ProductQuery.tokens(rest.toString())) {
+            // Lone digits stay: "Arroz Tipo 1" and "Arroz Tipo 2" are different products
+            if ((w.length() > 1 || isDigit(w.charAt(0))) && !STOPWORDS.contains(w)) words.add(w);
+        }
+        return new Offer(product, sizes.isEmpty() ? "" : String.join("+", sizes), words.toArray(new String[0]));
+    }
+
+    // A number followed by a unit ("1,5 l", "900g", "1.000 ml"), or a bare pack count after "x" ("x 6", "x6");
+    // adds it to sizes and returns where it ends, or returns start when it is neither
+    private static int readSize(String s, int start, boolean packCount, Set<String> sizes) {
+        int i = start;
+        long whole = 0;
+        while (i < s.length() && isDigit(s.charAt(i))) whole = whole * 10 + (s.charAt(i++) - '0');
+        double value = whole;
+        boolean fraction = false;
+        // Three digits after a non-zero whole part may group thousands: "1.000 g", but "2.250 kg" is 2.25 kg
+        long thousands = -1;
+        if (i + 1 < s.length() && (s.charAt(i) == '.' || s.charAt(i) == ',') && isDigit(s.charAt(i + 1))) {
+            int fracStart = i + 1;
+            int j = fracStart;
+            while (j < s.length() && isDigit(s.charAt(j))) j++;
+            String digits = s.substring(fracStart, j);
+            if (digits.length() == 3 && whole > 0) thousands = whole * 1000 + Integer.parseInt(digits);
+            value = whole + Double.parseDouble("0." + digits);
+            fraction = true;
+            i = j;
+        }
+        int unitStart = i;
+        while (unitStart < s.length() && s.charAt(unitStart) == ' ') unitStart++;
+        int unitEnd = unitStart;
+        while (unitEnd < s.length() && Character.isLetter(s.charAt(unitEnd))) unitEnd++;
+        String unitText = s.substring(unitStart, unitEnd);
+        // "6 x 1 l": a count in front of the size
+        if (unitText.equals("x") && !fraction) {
+            sizes.add(whole + "u");
+            return unitEnd;
+        }
+        Unit unit = UNITS.get(unitText);
+        if (unit == null) {
+            if (!packCount || fraction || unitEnd > unitStart) return start;
+            sizes.add(whole + "u");
+            return i;
+        }
+        // Nobody writes 1.5 grams or millilitres with three decimals; in kilos and litres they are decimals
+        if (thousands >= 0 && unit.factor() == 1 && SMALL_UNITS.contains(unit.canonical())) value = thousands;
+        long amount = Math.round(value * unit.factor());
+        sizes.add(amount + unit.canonical());
+        return unitEnd;
+    }
+
+    private static ProductGroupDto toGroup(List<Offer> members) {
+        List<ProductsDto> offers = new ArrayList<>(members.size());
+        Set<String> origins = new HashSet<>();
+        for (Offer o : members) {
+            offers.add(o.product());
+            origins.add(String.valueOf(o.product().getOrigin()));
+        }
+        offers.sort(SearchService.BY_PRICE);
+        ProductsDto best = offers.get(0);
+        Long max = offers.get(offers.size() - 1).getPrice();
+        return ProductGroupDto.builder()
+                .name(best.getName())
+                .size(label(members.get(0).size()))
+                .bestPrice(best.getPrice())
+                .bestOrigin(best.getOrigin())
+                .maxPrice(max)
+                .spread(best.getPrice() == null || max == null ? null : max - best.getPrice())
+                .stores(origins.size())
+                .offers(offers)
+                .build();
+    }
+
+    // "1000g+6u" → "1 kg + 6 u"
+    static String label(String size) {
+        if (size.isEmpty()) return null;
+        List<String> parts = new ArrayList<>();
+        for (String part : size.split("\\+")) {
+            int k = 0;
+            while (k < part.length() && isDigit(part.charAt(k))) k++;
+            long amount = Long.parseLong(part.substring(0, k));
+            String unit = part.substring(k);
+            if (amount >= 1000 && amount % 100 == 0 && (unit.equals("g") || unit.equals("ml"))) {
+                String big = unit.equals("g") ? "kg" : "l";
+                parts.add((amount % 1000 == 0 ? String.valueOf(amount / 1000) : String.valueOf(amount / 1000.0)) + " " + big);
+            } else {
+                parts.add(amount + " " + unit);
+            }
+        }
+        return String.join(" + ", parts);
+    }
+
+    // "x6" or "x 6", with the x standing on its own
+    private static boolean afterX(String s, int i) {
+        int x = i - 1;
+        if (x >= 0 && s.charAt(x) == ' ') x--;
+        return x >= 0 && s.charAt(x) == 'x' && (x == 0 || !Character.isLetterOrDigit(s.charAt(x - 1)));
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parent, List<Set<String>> origins, int a, int b) {
+        int ra = find(parent, a);
+        int rb = find(parent, b);
+        if (ra == rb) return;
+        int root = Math.min(ra, rb);
+        int child = Math.max(ra, rb);
+        parent[child] = root;
+        origins.get(root).addAll(origins.get(child));
+        origins.set(child, Set.of());
+    }
+}
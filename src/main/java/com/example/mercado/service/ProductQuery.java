@@ -0,0 +1,125 @@
+package com.example.mercado.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A search query folded the way product names are indexed: accents stripped, lower case, split into
+ * letter and digit runs ("Azúcar 1kg" → azucar, 1, kg). A name matches when every query token starts
+ * one of its tokens, in any order, so "azucar" finds "Azúcar Blanca" and "leche ent" finds "Leche Entera".
+ */
+public final class ProductQuery {
+
+    private static final String[] NO_TOKENS = new String[0];
+
+    private final String raw;
+    private final String[] tokens;
+
+    private ProductQuery(String raw, String[] tokens) {
+        this.raw = raw;
+        this.tokens = tokens;
+    }
+
+    public static ProductQuery parse(String rawQuery) {
+        return new ProductQuery(rawQuery.trim(), tokens(rawQuery));
+    }
+
+    public String raw() {
+        return raw;
+    }
+
+    String[] tokens() {
+        return tokens;
+    }
+
+    public boolean isEmpty() {
+        return tokens.length == 0;
+    }
+
+    /**
+     * Cache key shared by queries that only differ in case, accents, punctuation or word order.
+     */
+    String key() {
+        if (tokens.length == 0) return raw.toLowerCase(Locale.ROOT);
+        String[] sorted = tokens.clone();
+        Arrays.sort(sorted);
+        return String.join(" ", sorted);
+    }
+
+    /**
+     * Whether every query token starts a token of {@code name}; the rule stores' results are filtered by.
+     */
+    public boolean matches(String name) {
+        if (name == null || tokens.length == 0) return false;
+        return matches(tokens(name));
+    }
+
+    boolean matches(String[] nameTokens) {
+        if (tokens.length == 0) return false;
+        for (String q : tokens) {
+            boolean found = false;
+            for (String t : nameTokens) {
+                if (t.startsWith(q)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Product name as the indexes key it: its folded tokens joined by single spaces.
+     */
+    static String normalizedName(String name) {
+        return String.join(" ", tokens(name));
+    }
+
+    /**
+     * Folded tokens of {@code text}; a change between letters and digits also splits ("500ml" → 500, ml).
+     */
+    static String[] tokens(String text) {
+        if (text == null || text.isEmpty()) return NO_TOKENS;
+        String folded = fold(text);
+        List<String> out = new ArrayList<>(8);
+        int start = -1;
+        boolean digits = false;
+        for (int i = 0; i <= folded.length(); i++) {
+            char c = i < folded.length() ? folded.charAt(i) : ' ';
+            boolean word = Character.isLetterOrDigit(c);
+            boolean digit = Character.isDigit(c);
+            if (start >= 0 && (!word || digit != digits)) {
+                out.add(folded.substring(start, i));
+                start = -1;
+            }
+            if (word && start < 0) {
+                start = i;
+                digits = digit;
+            }
+        }
+        return out.toArray(NO_TOKENS);
+    }
+
+    // Lower case without diacritics; ñ folds to n, as users rarely type it in searches
+    static String fold(String text) {
+        boolean ascii = true;
+        for (int i = 0; i < text.length() && ascii; i++) ascii = text.charAt(i) < 0x80;
+        if (ascii) return text.toLowerCase(Locale.ROOT);
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) sb.append(c);
+        }
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public String toString() {
+        return raw;
+    }
+}
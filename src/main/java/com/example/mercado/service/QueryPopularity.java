@@ -0,0 +1,79 @@
+package com.example.mercado.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * How often each query is searched, as a count that halves every {@code half-life-ms}, so yesterday's
+ * spike fades while today's regular queries stay on top. Queries are grouped by {@link ProductQuery#key()}.
+ */
+@Component
+public class QueryPopularity {
+
+    private static final int TRIM_TO_PERCENT = 80;
+
+    private final long halfLifeMs;
+    private final int maxTracked;
+
+    private final ConcurrentHashMap<String, Score> scores = new ConcurrentHashMap<>();
+
+    // Score as of updatedAt; rawQuery is the latest spelling, used when scraping
+    private record Score(String rawQuery, double value, long updatedAt) {
+        double at(long now, long halfLifeMs) {
+            return value * Math.pow(0.5, (double) (now - updatedAt) / halfLifeMs);
+        }
+    }
+
+    public record Popular(String rawQuery, double score) {}
+
+    public QueryPopularity(@Value("${mercado.crawler.popularity-half-life-ms:3600000}") long halfLifeMs,
+                           @Value("${mercado.crawler.max-tracked-queries:5000}") int maxTracked) {
+        this.halfLifeMs = Math.max(1, halfLifeMs);
+        this.maxTracked = Math.max(1, maxTracked);
+    }
+
+    void record(String rawQuery) {
+        ProductQuery query = ProductQuery.parse(rawQuery);
+        if (query.isEmpty()) return;
+        long now = System.currentTimeMillis();
+        scores.compute(query.key(), (k, old) ->
+                new Score(query.raw(), (old == null ? 0 : old.at(now, halfLifeMs)) + 1, now));
+        if (scores.size() > maxTracked) trim(now);
+    }
+
+    /**
+     * The {@code n} most searched queries scoring at least {@code minScore}, most popular first.
+     */
+    public List<Popular> top(int n, double minScore) {
+        long now = System.currentTimeMillis();
+        List<Popular> out = new ArrayList<>();
+        for (Score s : scores.values()) {
+            double value = s.at(now, halfLifeMs);
+            if (value >= minScore) out.add(new Popular(s.rawQuery(), value));
+        }
+        out.sort(Comparator.comparingDouble(Popular::score).reversed());
+        return out.size() > n ? new ArrayList<>(out.subList(0, n)) : out;
+    }
+
+    public int tracked() {
+        return scores.size();
+    }
+
+    // Forget the least popular queries until back under TRIM_TO_PERCENT of the limit
+    private synchronized void trim(long now) {
+        int excess = scores.size() - maxTracked * TRIM_TO_PERCENT / 100;
+        if (excess <= 0) return;
+        scores.entrySet().stream()
+                .sorted(Comparator.comparingDouble((Map.Entry<String, Score> e) -> e.getValue().at(now, halfLifeMs)))
+                .limit(excess)
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(scores::remove);
+    }
+}
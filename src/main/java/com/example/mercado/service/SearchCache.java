@@ -0,0 +1,289 @@
+package com.example.mercado.service;
+
+import com.example.mercado.dto.SearchResultDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Query result cache bounded by the total number of cached products.
+ * <ul>
+ *     <li>LRU eviction once the product weight exceeds the limit</li>
+ *     <li>concurrent misses for the same key share one load</li>
+ *     <li>entries older than their TTL are still served while a background refresh runs,
+ *     until they are older than TTL + max stale</li>
+ * </ul>
+ * A load may ask for a shorter TTL than the default, e.g. when one of the stores failed.
+ * Each entry remembers the query as the user typed it, since the key is folded and reordered and is not
+ * something to send a store; background refreshes load that raw query.
+ * Entries can be copied out with {@link #snapshot()} and put back after a restart with {@link #restore}.
+ */
+public final class SearchCache {
+
+    private final Logger logger = LoggerFactory.getLogger(SearchCache.class);
+
+    private final long ttlMs;
+    private final long maxStaleMs;
+    private final long maxWeight;
+    private final Function<String, CompletableFuture<Loaded>> refresher;
+
+    // Access-ordered, so iteration starts at the least recently used entry. Guarded by "this".
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long weight;
+
+    private final ConcurrentHashMap<String, CompletableFuture<SearchResultDto>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong loadFailures = new AtomicLong();
+    private final AtomicLong totalLoadMs = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong restored = new AtomicLong();
+    // Bumped on every change to the entries, so an unchanged cache is not snapshotted again
+    private final AtomicLong version = new AtomicLong();
+
+    private static final class Entry {
+        final String rawQuery;
+        final SearchResultDto data;
+        final long loadedAt;
+        final long ttlMs;
+        final long lastLoadMs;
+        long hits;
+        long misses;
+        long loads;
+        long totalLoadMs;
+
+        Entry(String rawQuery, SearchResultDto data, long loadedAt, long ttlMs, long lastLoadMs) {
+            this.rawQuery = rawQuery;
+            this.data = data;
+            this.loadedAt = loadedAt;
+            this.ttlMs = ttlMs;
+            this.lastLoadMs = lastLoadMs;
+        }
+
+        long weight() {
+            return Math.max(1, data.getProducts().size());
+        }
+    }
+
+    /**
+     * Result of a load; {@code ttlMs} is capped by the cache TTL.
+     */
+    record Loaded(SearchResultDto result, long ttlMs) {}
+
+    /**
+     * One entry as it is persisted; {@code loadedAt} is wall-clock time, so freshness carries over a restart.
+     */
+    record Snapshot(String key, String rawQuery, SearchResultDto data, long loadedAt, long ttlMs, long lastLoadMs) {}
+
+    public record Stats(long hits, long staleHits, long misses, long coalesced, long loads, long loadFailures,
+                        double avgLoadMs, long evictions, long restored, int entries, long weight, long maxWeight) {}
+
+    public record EntryStats(String key, long weight, long ageMs, long hits, long misses, long loads,
+                             long lastLoadMs, double avgLoadMs) {}
+
+    /**
+     * @param refresher loads an entry's raw query in the background when the stale entry is served
+     */
+    SearchCache(long ttlMs, long maxStaleMs, long maxWeight,
+                Function<String, CompletableFuture<Loaded>> refresher) {
+        this.ttlMs = ttlMs;
+        this.maxStaleMs = maxStaleMs;
+        this.maxWeight = Math.max(1, maxWeight);
+        this.refresher = refresher;
+    }
+
+    /**
+     * Return the cached list for {@code key}, or load it with {@code loader} on a miss.
+     * The loader is only called when this caller ends up owning the load; {@code rawQuery} is what it
+     * searches for, kept with the entry for later refreshes.
+     */
+    CompletableFuture<SearchResultDto> get(String key, String rawQuery, Supplier<CompletableFuture<Loaded>> loader) {
+        long now = System.currentTimeMillis();
+        Entry e;
+        synchronized (this) {
+            e = entries.get(key);
+            if (e != null && now - e.loadedAt >= e.ttlMs + maxStaleMs) {
+                entries.remove(key);
+                weight -= e.weight();
+                e = null;
+            }
+            if (e != null) e.hits++;
+        }
+
+        if (e != null) {
+            if (now - e.loadedAt < e.ttlMs) {
+                hits.incrementAndGet();
+            } else {
+                staleHits.incrementAndGet();
+                logger.debug("Serving stale result for '{}' while refreshing", key);
+                String raw = e.rawQuery;
+                load(key, raw, () -> refresher.apply(raw));
+            }
+            return CompletableFuture.completedFuture(e.data);
+        }
+
+        misses.incrementAndGet();
+        return load(key, rawQuery, loader);
+    }
+
+    /**
+     * Time left before the entry for {@code key} goes stale, or -1 when there is none; does not count as a hit.
+     */
+    synchronized long remainingMs(String key) {
+        Entry e = entries.get(key);
+        if (e == null) return -1;
+        return e.ttlMs - (System.currentTimeMillis() - e.loadedAt);
+    }
+
+    /**
+     * Load {@code key} again and replace the cached entry, sharing a load already in flight.
+     */
+    CompletableFuture<SearchResultDto> refresh(String key, String rawQuery, Supplier<CompletableFuture<Loaded>> loader) {
+        return load(key, rawQuery, loader);
+    }
+
+    public Stats stats() {
+        long n = loads.get();
+        int size;
+        long w;
+        synchronized (this) {
+            size = entries.size();
+            w = weight;
+        }
+        return new Stats(hits.get(), staleHits.get(), misses.get(), coalesced.get(), n, loadFailures.get(),
+                n == 0 ? 0 : (double) totalLoadMs.get() / n, evictions.get(), restored.get(), size, w, maxWeight);
+    }
+
+    long version() {
+        return version.get();
+    }
+
+    /**
+     * Every entry that can still be served, least recently used first.
+     */
+    synchronized List<Snapshot> snapshot() {
+        long now = System.currentTimeMillis();
+        List<Snapshot> out = new ArrayList<>(entries.size());
+        for (Map.Entry<String, Entry> me : entries.entrySet()) {
+            Entry e = me.getValue();
+            if (now - e.loadedAt < e.ttlMs + maxStaleMs) {
+                out.add(new Snapshot(me.getKey(), e.rawQuery, e.data, e.loadedAt, e.ttlMs, e.lastLoadMs));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Put back entries from a snapshot, keeping their original age: past TTL + max stale they are dropped,
+     * past TTL they are served stale and refreshed. Keys loaded since startup are left alone.
+     * @return how many entries were restored
+     */
+    synchronized int restore(List<Snapshot> snapshots) {
+        long now = System.currentTimeMillis();
+        int count = 0;
+        for (Snapshot s : snapshots) {
+            long ttl = Math.min(ttlMs, s.ttlMs());
+            if (now - s.loadedAt() >= ttl + maxStaleMs || entries.containsKey(s.key())) continue;
+            Entry e = new Entry(s.rawQuery(), s.data(), s.loadedAt(), ttl, s.lastLoadMs());
+            entries.put(s.key(), e);
+            weight += e.weight();
+            count++;
+        }
+        evictOverWeight(null);
+        restored.addAndGet(count);
+        version.incrementAndGet();
+        return count;
+    }
+
+    public synchronized List<EntryStats> entryStats() {
+        long now = System.currentTimeMillis();
+        List<EntryStats> out = new ArrayList<>(entries.size());
+        for (Map.Entry<String, Entry> me : entries.entrySet()) {
+            Entry e = me.getValue();
+            out.add(new EntryStats(me.getKey(), e.weight(), now - e.loadedAt, e.hits, e.misses, e.loads,
+                    e.lastLoadMs, e.loads == 0 ? 0 : (double) e.totalLoadMs / e.loads));
+        }
+        return out;
+    }
+
+    // Single flight: the first caller runs the loader, everyone else waits on the same future
+    private CompletableFuture<SearchResultDto> load(String key, String rawQuery,
+                                                    Supplier<CompletableFuture<Loaded>> loader) {
+        CompletableFuture<SearchResultDto> mine = new CompletableFuture<>();
+        CompletableFuture<SearchResultDto> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return existing;
+        }
+
+        long start = System.currentTimeMillis();
+        CompletableFuture<Loaded> source;
+        try {
+            source = loader.get();
+        } catch (RuntimeException ex) {
+            source = CompletableFuture.failedFuture(ex);
+        }
+        source.whenComplete((loaded, ex) -> {
+            long loadMs = System.currentTimeMillis() - start;
+            loads.incrementAndGet();
+            totalLoadMs.addAndGet(loadMs);
+            SearchResultDto data = loaded == null ? null : loaded.result();
+            if (ex == null && data != null) {
+                put(key, rawQuery, data, Math.min(ttlMs, loaded.ttlMs()), loadMs);
+            } else {
+                loadFailures.incrementAndGet();
+                logger.warn("Loading '{}' failed: {}", key, String.valueOf(ex));
+            }
+            inFlight.remove(key, mine);
+            if (ex != null) mine.completeExceptionally(ex);
+            else mine.complete(data);
+        });
+        return mine;
+    }
+
+    private synchronized void put(String key, String rawQuery, SearchResultDto data, long entryTtlMs, long loadMs) {
+        Entry fresh = new Entry(rawQuery, data, System.currentTimeMillis(), entryTtlMs, loadMs);
+        Entry old = entries.remove(key);
+        if (old != null) {
+            weight -= old.weight();
+            fresh.hits = old.hits;
+            fresh.misses = old.misses;
+            fresh.loads = old.loads;
+            fresh.totalLoadMs = old.totalLoadMs;
+        } else {
+            fresh.misses = 1;
+        }
+        fresh.loads++;
+        fresh.totalLoadMs += loadMs;
+        entries.put(key, fresh);
+        weight += fresh.weight();
+        evictOverWeight(fresh);
+        version.incrementAndGet();
+    }
+
+    // Drop least recently used entries until under the weight limit, never {@code keep}
+    private void evictOverWeight(Entry keep) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (weight > maxWeight && it.hasNext()) {
+            Entry victim = it.next();
+            if (victim == keep) continue;
+            it.remove();
+            weight -= victim.weight();
+            evictions.incrementAndGet();
+        }
+    }
+}
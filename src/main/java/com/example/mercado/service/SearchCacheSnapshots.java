@@ -0,0 +1,260 @@
+package com.example.mercado.service;
+
+import com.example.mercado.dto.ProductsDto;
+import com.example.mercado.dto.SearchResultDto;
+import com.example.mercado.dto.StoreResultsDto;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Periodically writes the search cache to {@code mercado.cache.snapshot-file} and reads it back after a restart,
+ * so a fresh instance answers its hot queries from the first request instead of scraping every store.
+ * <p>
+ * The file is a plain length-prefixed binary layout written with {@link DataOutputStream}; it is replaced
+ * atomically, only when the cache changed since the last snapshot, and once more on shutdown. Reading happens
+ * on a virtual thread once the application is up, so startup never waits on it; entries already past
+ * TTL + max stale are skipped.
+ */
+@Component
+public class SearchCacheSnapshots {
+
+    private final Logger logger = LoggerFactory.getLogger(SearchCacheSnapshots.class);
+
+    private static final int MAGIC = 0x4D534331; // "MSC1"
+    // 2: entries carry the raw query; 3: and each store's answer, as positions in the merged products
+    private static final int FORMAT_VERSION = 3;
+    // Sanity bounds on the counts read back, so a damaged file is rejected instead of sizing a huge list
+    private static final int MAX_ENTRIES = 1_000_000;
+    private static final int MAX_STORES = 10_000;
+    private static final int MAX_PRODUCTS = 10_000_000;
+
+    private final SearchCache cache;
+    private final Path file;
+
+    private long savedVersion = -1;
+    private volatile boolean restoring;
+
+    public SearchCacheSnapshots(SearchService searchService,
+                                @Value("${mercado.cache.snapshot-file:${java.io.tmpdir}/mercado-search-cache.bin}") String file) {
+        this.cache = searchService.cache();
+        this.file = file == null || file.isBlank() ? null : Path.of(file);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void restoreInBackground() {
+        if (file == null) return;
+        restoring = true;
+        Thread.ofVirtual().name("search-cache-restore").start(() -> {
+            try {
+                restore();
+            } finally {
+                restoring = false;
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${mercado.cache.snapshot-interval-ms:60000}",
+            initialDelayString = "${mercado.cache.snapshot-interval-ms:60000}")
+    void scheduledSave() {
+        // Saving before the old snapshot is read back would overwrite it with an almost empty cache
+        if (!restoring) save();
+    }
+
+    @PreDestroy
+    void saveOnShutdown() {
+        if (!restoring) save();
+    }
+
+    /**
+     * @return entries restored
+     */
+    int restore() {
+        if (file == null) return 0;
+        long start = System.currentTimeMillis();
+        try {
+            List<SearchCache.Snapshot> snapshots = read(file);
+            int restored = cache.restore(snapshots);
+            logger.info("Restored {} of {} cached searches from {} in {} ms", restored, snapshots.size(), file,
+                    System.currentTimeMillis() - start);
+            return restored;
+        } catch (NoSuchFileException ex) {
+            return 0;
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Ignoring unreadable search cache snapshot {}: {}", file, ex.toString());
+            return 0;
+        }
+    }
+
+    synchronized void save() {
+        if (file == null) return;
+        long version = cache.version();
+        if (version == savedVersion) return;
+        try {
+            write(file, cache.snapshot());
+            savedVersion = version;
+        } catch (IOException ex) {
+            logger.warn("Could not snapshot the search cache to {}: {}", file, ex.toString());
+        }
+    }
+
+    static void write(Path file, List<SearchCache.Snapshot> snapshots) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, "snapshot", ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(snapshots.size());
+                for (SearchCache.Snapshot s : snapshots) {
+                    out.writeUTF(s.key());
+                    out.writeUTF(s.rawQuery());
+                    out.writeLong(s.loadedAt());
+                    out.writeLong(s.ttlMs());
+                    out.writeLong(s.lastLoadMs());
+                    List<String> omitted = s.data().getOmittedStores() == null ? List.of() : s.data().getOmittedStores();
+                    out.writeInt(omitted.size());
+                    for (String store : omitted) out.writeUTF(store);
+                    List<ProductsDto> products = s.data().getProducts();
+                    out.writeInt(products.size());
+                    for (ProductsDto p : products) {
+                        writeNullable(out, p.getName());
+                        out.writeLong(p.getPrice() == null ? -1 : p.getPrice());
+                        writeNullable(out, p.getLabel());
+                        writeNullable(out, p.getImage());
+                        writeNullable(out, p.getOrigin());
+                        writeNullable(out, p.getUrl());
+                    }
+                    writeStores(out, s.data().getStores(), products);
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    static List<SearchCache.Snapshot> read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("not a search cache snapshot, or an older format");
+            }
+            int count = readCount(in, MAX_ENTRIES);
+            List<SearchCache.Snapshot> out = new ArrayList<>(Math.min(count, 10_000));
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                String rawQuery = in.readUTF();
+                long loadedAt = in.readLong();
+                long ttlMs = in.readLong();
+                long lastLoadMs = in.readLong();
+                int omittedCount = readCount(in, MAX_STORES);
+                List<String> omitted = new ArrayList<>(omittedCount);
+                for (int j = 0; j < omittedCount; j++) omitted.add(in.readUTF());
+                int productCount = readCount(in, MAX_PRODUCTS);
+                List<ProductsDto> products = new ArrayList<>(Math.min(productCount, 10_000));
+                for (int j = 0; j < productCount; j++) {
+                    String name = readNullable(in);
+                    long price = in.readLong();
+                    products.add(ProductsDto.builder()
+                            .name(name)
+                            .price(price < 0 ? null : price)
+                            .label(readNullable(in))
+                            .image(readNullable(in))
+                            .origin(readNullable(in))
+                            .url(readNullable(in))
+                            .build());
+                }
+                out.add(new SearchCache.Snapshot(key, rawQuery, SearchResultDto.builder()
+                        .products(products)
+                        .omittedStores(omitted)
+                        .stores(readStores(in, products))
+                        .build(), loadedAt, ttlMs, lastLoadMs));
+            }
+            return out;
+        }
+    }
+
+    // Store products are the same objects as the merged ones, so each is written as its position there
+    private static void writeStores(DataOutputStream out, List<StoreResultsDto> stores, List<ProductsDto> products)
+            throws IOException {
+        if (stores == null) stores = List.of();
+        out.writeInt(stores.size());
+        if (stores.isEmpty()) return;
+        Map<ProductsDto, Integer> positions = new IdentityHashMap<>(products.size());
+        for (int i = 0; i < products.size(); i++) positions.put(products.get(i), i);
+        for (StoreResultsDto store : stores) {
+            out.writeUTF(store.getStore());
+            out.writeLong(store.getElapsedMs());
+            out.writeBoolean(store.isOmitted());
+            out.writeInt(store.getTotal());
+            List<Integer> own = new ArrayList<>(store.getProducts().size());
+            for (ProductsDto p : store.getProducts()) {
+                Integer position = positions.get(p);
+                if (position != null) own.add(position);
+            }
+            out.writeInt(own.size());
+            for (int position : own) out.writeInt(position);
+        }
+    }
+
+    private static List<StoreResultsDto> readStores(DataInputStream in, List<ProductsDto> products) throws IOException {
+        int count = readCount(in, MAX_STORES);
+        List<StoreResultsDto> stores = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String store = in.readUTF();
+            long elapsedMs = in.readLong();
+            boolean omitted = in.readBoolean();
+            int total = in.readInt();
+            int productCount = readCount(in, products.size());
+            List<ProductsDto> own = new ArrayList<>(productCount);
+            for (int j = 0; j < productCount; j++) {
+                int position = in.readInt();
+                if (position < 0 || position >= products.size()) throw new IOException("product position out of range");
+                own.add(products.get(position));
+            }
+            stores.add(StoreResultsDto.builder()
+                    .store(store)
+                    .products(own)
+                    .total(total)
+                    .elapsedMs(elapsedMs)
+                    .omitted(omitted)
+                    .build());
+        }
+        return stores;
+    }
+
+    private static int readCount(DataInputStream in, int max) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > max) throw new IOException("damaged snapshot, count " + count + " is out of range");
+        return count;
+    }
+
+    private static void writeNullable(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) out.writeUTF(s);
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.mercado.service;
+
+import com.example.mercado.dto.SearchResultDto;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Search pipeline instrumentation.
+ * <ul>
+ *     <li>{@code mercado.search} observation per search, end to end: a latency histogram tagged with
+ *     {@code mode} (page or stream), {@code cache} (hit or miss) and {@code complete} (no store omitted),
+ *     and the root span of its trace</li>
+ *     <li>{@code mercado.scrape} observation per store scrape, a child span of the search that started it,
+ *     tagged with {@code store} and {@code outcome}: ok, failed, timeout (its own) or deadline (the search's)</li>
+ *     <li>{@code mercado.scrape.failures} by store and failure type, {@code mercado.scrape.skipped} while a
+ *     store's circuit is open</li>
+ *     <li>cache request counters and hit ratios, and the number of scrapes still running</li>
+ * </ul>
+ */
+@Component
+public class SearchMetrics {
+
+    static final String SEARCH = "mercado.search";
+    static final String SCRAPE = "mercado.scrape";
+
+    private final MeterRegistry registry;
+    private final ObservationRegistry observations;
+
+    public SearchMetrics(MeterRegistry registry, ObservationRegistry observations) {
+        this.registry = registry;
+        this.observations = observations;
+    }
+
+    // Records nothing; for services built outside the Spring context
+    static SearchMetrics noop() {
+        return new SearchMetrics(new CompositeMeterRegistry(), ObservationRegistry.NOOP);
+    }
+
+    Observation startSearch(String rawQuery, String mode) {
+        return Observation.createNotStarted(SEARCH, observations)
+                .contextualName("search")
+                .lowCardinalityKeyValue("mode", mode)
+                .highCardinalityKeyValue("query", rawQuery)
+                .start();
+    }
+
+    /**
+     * Tag and stop a search observation; {@code loaded} is false when the answer came from the cache.
+     */
+    void searched(Observation search, boolean loaded, SearchResultDto result, Throwable ex) {
+        search.lowCardinalityKeyValue("cache", loaded ? "miss" : "hit");
+        if (result != null) {
+            boolean complete = result.getOmittedStores() == null || result.getOmittedStores().isEmpty();
+            search.lowCardinalityKeyValue("complete", String.valueOf(complete));
+        }
+        if (ex != null) search.error(ex);
+        search.stop();
+    }
+
+    // The search running on this thread, if any, so scrapes started for it become its children
+    Observation current() {
+        return observations.getCurrentObservation();
+    }
+
+    Observation startScrape(String store, Observation parent) {
+        return Observation.createNotStarted(SCRAPE, observations)
+                .contextualName("scrape " + store)
+                .lowCardinalityKeyValue("store", store)
+                .parentObservation(parent)
+                .start();
+    }
+
+    void scraped(Observation scrape, String outcome, int products) {
+        scrape.lowCardinalityKeyValue("outcome", outcome)
+                .highCardinalityKeyValue("products", String.valueOf(products))
+                .stop();
+    }
+
+    void scrapeFailed(Observation scrape, String store, String type, Throwable ex) {
+        registry.counter("mercado.scrape.failures", "store", store, "type", type).increment();
+        scrape.lowCardinalityKeyValue("outcome", "timeout".equals(type) ? "timeout" : "failed")
+                .error(ex)
+                .stop();
+    }
+
+    void skipped(String store) {
+        registry.counter("mercado.scrape.skipped", "store", store).increment();
+    }
+
+    void bind(SearchCache cache, StoreResultCache storeCache, DeadlineFanOut fanOut) {
+        requests("search", "hit", cache, c -> c.stats().hits());
+        requests("search", "stale", cache, c -> c.stats().staleHits());
+        requests("search", "miss", cache, c -> c.stats().misses());
+        Gauge.builder("mercado.cache.hit.ratio", cache, c -> {
+                    SearchCache.Stats s = c.stats();
+                    return ratio(s.hits() + s.staleHits(), s.misses());
+                })
+                .tag("cache", "search").register(registry);
+        Gauge.builder("mercado.cache.products", cache, c -> c.stats().weight())
+                .tag("cache", "search").register(registry);
+
+        requests("store", "hit", storeCache, c -> c.stats().hits());
+        requests("store", "negative", storeCache, c -> c.stats().negativeHits());
+        requests("store", "miss", storeCache, c -> c.stats().misses());
+        Gauge.builder("mercado.cache.hit.ratio", storeCache, c -> {
+                    StoreResultCache.Stats s = c.stats();
+                    return ratio(s.hits() + s.negativeHits(), s.misses());
+                })
+                .tag("cache", "store").register(registry);
+
+        Gauge.builder("mercado.scrape.running", fanOut, DeadlineFanOut::running)
+                .description("Store scrapes whose thread has not returned, including cut-off ones still unwinding")
+                .register(registry);
+    }
+
+    private <T> void requests(String cacheName, String result, T cache, ToDoubleFunction<T> count) {
+        FunctionCounter.builder("mercado.cache.requests", cache, count)
+                .tag("cache", cacheName).tag("result", result)
+                .register(registry);
+    }
+
+    private static double ratio(long hits, long misses) {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
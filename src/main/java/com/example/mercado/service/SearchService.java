@@ -0,0 +1,494 @@
+package com.example.mercado.service;
+
+import com.example.mercado.dto.ProductGroupDto;
+import com.example.mercado.dto.ProductsDto;
+import com.example.mercado.dto.ResultPageDto;
+import com.example.mercado.dto.SearchResultDto;
+import com.example.mercado.dto.StoreResultsDto;
+import com.example.mercado.scraper.ProductScraper;
+import com.example.mercado.scraper.ScraperMetrics;
+import io.micrometer.observation.Observation;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+@Service
+public class SearchService {
+
+    private final Logger logger = LoggerFactory.getLogger(SearchService.class);
+
+    static final Comparator<ProductsDto> BY_PRICE = Comparator.comparingLong(ProductsDto::getPrice)
+            .thenComparing(ProductsDto::getName, String.CASE_INSENSITIVE_ORDER);
+
+    private final List<ProductScraper> scrapers;
+
+    // Query cache: bounded by cached products, stale entries are served while they refresh
+    private final SearchCache cache;
+
+    // Per-store results underneath the query cache, so a refresh only re-hits expired stores
+    private final StoreResultCache storeCache;
+
+    // Everything scraped so far; answers a query locally when every store was asked it recently
+    private final CatalogIndex catalog;
+
+    // Search traffic, so the crawler knows which queries to keep warm
+    private final QueryPopularity popularity;
+
+    // Every price ever scraped, on disk
+    private final PriceHistory history;
+
+    // Per-store failure and latency windows: skips stores that keep failing and sets each store's timeout
+    private final StoreCircuitBreakers breakers;
+
+    // Search latency, per-store scrape spans and outcomes, cache ratios
+    private final SearchMetrics metrics;
+
+    // Which store each product origin belongs to, learned from scrapes; names the stores of a catalog answer
+    private final Map<String, String> storeByOrigin = new ConcurrentHashMap<>();
+
+    private record StoreOutcome(StoreResultsDto result, long ttlMs) {}
+
+    // One virtual thread per scrape; blocking I/O is cheap here, and HostLimiter caps connections per store.
+    // Browser renders queue separately on the Chrome session pool.
+    private final ExecutorService scrapeExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Whole-search latency budget; stores still running when it expires are interrupted and reported as omitted
+    private final long deadlineMs;
+    private final DeadlineFanOut fanOut = new DeadlineFanOut(scrapeExecutor);
+
+    public SearchService(List<ProductScraper> scrapers,
+                         StoreResultCache storeCache,
+                         CatalogIndex catalog,
+                         QueryPopularity popularity,
+                         PriceHistory history,
+                         StoreCircuitBreakers breakers,
+                         SearchMetrics metrics,
+                         @Value("${mercado.cache.ttl-ms:300000}") long cacheTtlMs,
+                         @Value("${mercado.cache.max-stale-ms:1800000}") long cacheMaxStaleMs,
+                         @Value("${mercado.cache.max-products:50000}") long cacheMaxProducts,
+                         @Value("${mercado.search.deadline-ms:12000}") long deadlineMs) {
+        this.scrapers = scrapers;
+        this.storeCache = storeCache;
+        this.catalog = catalog;
+        this.popularity = popularity;
+        this.history = history;
+        this.breakers = breakers;
+        this.metrics = metrics;
+        this.deadlineMs = deadlineMs;
+        this.cache = new SearchCache(cacheTtlMs, cacheMaxStaleMs, cacheMaxProducts,
+                rawQuery -> loadAll(rawQuery, r -> {}, true));
+        metrics.bind(cache, storeCache, fanOut);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        fanOut.close();
+        scrapeExecutor.shutdownNow();
+    }
+
+    public int storeCount() {
+        return scrapers.size();
+    }
+
+    public List<String> storeNames() {
+        return scrapers.stream().map(SearchService::storeName).toList();
+    }
+
+    SearchCache cache() {
+        return cache;
+    }
+
+    public SearchCache.Stats cacheStats() {
+        return cache.stats();
+    }
+
+    public List<SearchCache.EntryStats> cacheEntryStats() {
+        return cache.entryStats();
+    }
+
+    public StoreResultCache.Stats storeCacheStats() {
+        return storeCache.stats();
+    }
+
+    public CatalogIndex.Stats catalogStats() {
+        return catalog.stats();
+    }
+
+    /**
+     * Rank everything already scraped against {@code rawQuery}, tolerating accents and small typos.
+     * Never contacts a store.
+     */
+    public List<CatalogIndex.Hit> searchCatalog(String rawQuery, int limit) {
+        return catalog.search(ProductQuery.parse(rawQuery), limit);
+    }
+
+    /**
+     * Recorded prices of one store's product, oldest first; answered from disk, never by scraping.
+     */
+    public Optional<PriceHistory.History> priceHistory(String origin, String productName) {
+        return history.history(origin, productName);
+    }
+
+    public List<StoreCircuitBreakers.Status> storeStatus() {
+        return breakers.status();
+    }
+
+    public PriceHistory.Stats priceHistoryStats() {
+        return history.stats();
+    }
+
+    /**
+     * The products sold by more than one store in {@code result}, one group per product with its
+     * cheapest offer first; groups ordered by best price. Grouped once per cached result: hits reuse it.
+     */
+    public List<ProductGroupDto> compare(SearchResultDto result) {
+        List<ProductGroupDto> groups = result.getGroups();
+        if (groups == null) {
+            // Two requests racing here both group the same products; either list is kept
+            List<ProductGroupDto> grouped = ProductMatcher.group(result.getProducts());
+            grouped.removeIf(g -> g.getStores() < 2);
+            groups = List.copyOf(grouped);
+            result.setGroups(groups);
+        }
+        return groups;
+    }
+
+    /**
+     * {@link #search} grouped by product across stores; reads the cached result without counting a search.
+     */
+    public List<ProductGroupDto> compare(String rawQuery) {
+        return compare(cached(rawQuery));
+    }
+
+    /**
+     * Search every store and return the merged, price-sorted list. Blocks at most until the search deadline.
+     */
+    public SearchResultDto search(String rawQuery) {
+        popularity.record(rawQuery);
+        Observation observation = metrics.startSearch(rawQuery, "page");
+        AtomicBoolean loaded = new AtomicBoolean();
+        SearchResultDto result = null;
+        Throwable failure = null;
+        try (Observation.Scope ignored = observation.openScope()) {
+            result = cache.get(normalize(rawQuery), rawQuery, () -> {
+                loaded.set(true);
+                return loadAll(rawQuery, r -> {}, true);
+            }).join();
+            return result;
+        } catch (RuntimeException | Error ex) {
+            failure = ex;
+            throw ex;
+        } finally {
+            metrics.searched(observation, loaded.get(), result, failure);
+        }
+    }
+
+    /**
+     * Products {@code offset} to {@code offset + limit} of {@link #search}. The cached result is the sorted
+     * view every page is cut from, so only the first page of a query pays for the search, and only it counts
+     * as one.
+     */
+    public ResultPageDto page(String rawQuery, int offset, int limit) {
+        return page(cached(rawQuery), offset, limit);
+    }
+
+    public static ResultPageDto page(SearchResultDto result, int offset, int limit) {
+        List<ProductsDto> products = result.getProducts();
+        int from = Math.min(Math.max(0, offset), products.size());
+        int to = (int) Math.min(products.size(), (long) from + Math.max(0, limit));
+        return ResultPageDto.builder()
+                .products(List.copyOf(products.subList(from, to)))
+                .offset(from)
+                .limit(limit)
+                .total(products.size())
+                .omittedStores(result.getOmittedStores())
+                .build();
+    }
+
+    // The cached result, loaded on a miss, without recording popularity or a search observation: later pages
+    // and comparisons of a search already counted must not count again
+    private SearchResultDto cached(String rawQuery) {
+        return cache.get(normalize(rawQuery), rawQuery, () -> loadAll(rawQuery, r -> {}, true)).join();
+    }
+
+    /**
+     * Search every store and hand each store's filtered, price-sorted products to {@code onStore}
+     * as soon as that store answers. The returned future completes once every store has reported.
+     */
+    public CompletableFuture<SearchResultDto> stream(String rawQuery, Consumer<StoreResultsDto> onStore) {
+        // Only the caller that owns the load gets per-store callbacks; hits and coalesced waits get the stored ones
+        popularity.record(rawQuery);
+        Observation observation = metrics.startSearch(rawQuery, "stream");
+        AtomicBoolean streamed = new AtomicBoolean();
+        CompletableFuture<SearchResultDto> pending;
+        try (Observation.Scope ignored = observation.openScope()) {
+            pending = cache.get(normalize(rawQuery), rawQuery, () -> {
+                streamed.set(true);
+                return loadAll(rawQuery, onStore, true);
+            });
+        }
+        return pending
+                .thenApply(result -> {
+                    if (!streamed.get()) replay(result.getStores(), onStore);
+                    return result;
+                })
+                .whenComplete((result, ex) -> metrics.searched(observation, streamed.get(), result, ex));
+    }
+
+    /**
+     * How long the merged result for {@code rawQuery} stays fresh, or a negative value when it is not cached.
+     */
+    long cachedRemainingMs(String rawQuery) {
+        return cache.remainingMs(normalize(rawQuery));
+    }
+
+    /**
+     * How long {@code store}'s own result for {@code rawQuery} stays cached, or a negative value when it is not.
+     */
+    long storeRemainingMs(String store, String rawQuery) {
+        return storeCache.remainingMs(store, normalize(rawQuery));
+    }
+
+    /**
+     * Scrape one store for {@code rawQuery} right away and cache its result, as a search would: skipped while
+     * its circuit is open, and interrupted at the store's own timeout or the search deadline.
+     * @return false when the store failed, was cut off, or is unknown
+     */
+    boolean refreshStore(String store, String rawQuery) {
+        ProductScraper scraper = scrapers.stream().filter(s -> storeName(s).equals(store)).findFirst().orElse(null);
+        if (scraper == null) return false;
+        ProductQuery query = ProductQuery.parse(rawQuery);
+        long deadlineAt = System.currentTimeMillis() + deadlineMs;
+        StoreOutcome outcome = submitScrape(scraper, URLEncoder.encode(rawQuery, StandardCharsets.UTF_8), query.key(),
+                query, deadlineAt, null).join();
+        return !outcome.result().isOmitted();
+    }
+
+    /**
+     * Replace the merged result for {@code rawQuery} with one built from the per-store results,
+     * scraping only the stores that have none.
+     */
+    CompletableFuture<SearchResultDto> rebuild(String rawQuery) {
+        return cache.refresh(normalize(rawQuery), rawQuery, () -> loadAll(rawQuery, r -> {}, false));
+    }
+
+    private void replay(List<StoreResultsDto> stores, Consumer<StoreResultsDto> onStore) {
+        if (stores == null) return;
+        for (StoreResultsDto store : stores) {
+            try {
+                onStore.accept(store);
+            } catch (RuntimeException listenerEx) {
+                logger.debug("Store listener failed for {}: {}", store.getStore(), listenerEx.toString());
+            }
+        }
+    }
+
+    // A catalog answer split back into one result per store, every store included, in scraper order
+    private List<StoreResultsDto> byStore(List<ProductsDto> products) {
+        Map<String, List<ProductsDto>> byStore = new LinkedHashMap<>();
+        for (ProductScraper scraper : scrapers) byStore.put(storeName(scraper), new ArrayList<>());
+        for (ProductsDto p : products) {
+            String origin = String.valueOf(p.getOrigin());
+            byStore.computeIfAbsent(storeByOrigin.getOrDefault(origin, origin), k -> new ArrayList<>()).add(p);
+        }
+        List<StoreResultsDto> out = new ArrayList<>(byStore.size());
+        byStore.forEach((store, list) -> out.add(StoreResultsDto.builder().store(store).products(list).build()));
+        return out;
+    }
+
+    // Answer from the catalog when every store was asked this query recently; otherwise fan out to every store
+    // and merge the per-store sorted lists once all of them have answered or been cut off.
+    // The merged entry lives no longer than the shortest-lived store result it was built from.
+    private CompletableFuture<SearchCache.Loaded> loadAll(String rawQuery, Consumer<StoreResultsDto> onStore,
+                                                          boolean allowLocal) {
+        ProductQuery query = ProductQuery.parse(rawQuery);
+        CatalogIndex.Answer local = allowLocal ? catalog.answer(query) : null;
+        if (local != null) {
+            logger.debug("Search '{}' answered from the catalog", rawQuery);
+            List<StoreResultsDto> stores = byStore(local.products());
+            replay(stores, onStore);
+            return CompletableFuture.completedFuture(new SearchCache.Loaded(SearchResultDto.builder()
+                    .products(local.products())
+                    .omittedStores(List.of())
+                    .stores(stores)
+                    .build(), local.remainingMs()));
+        }
+
+        List<CompletableFuture<StoreOutcome>> futures = fanOut(rawQuery, query, onStore);
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                .thenApply(v -> {
+                    List<StoreOutcome> outcomes = futures.stream().map(CompletableFuture::join).toList();
+                    List<ProductsDto> merged = merge(outcomes.stream().map(o -> o.result().getProducts()).toList());
+                    List<String> omitted = outcomes.stream()
+                            .map(StoreOutcome::result)
+                            .filter(StoreResultsDto::isOmitted)
+                            .map(StoreResultsDto::getStore)
+                            .sorted()
+                            .toList();
+                    if (!omitted.isEmpty()) logger.info("Search '{}' omitted stores: {}", rawQuery, omitted);
+                    long ttl = outcomes.stream().mapToLong(StoreOutcome::ttlMs).min().orElse(Long.MAX_VALUE);
+                    if (omitted.isEmpty()) catalog.markCovered(query, ttl);
+                    return new SearchCache.Loaded(SearchResultDto.builder()
+                            .products(merged)
+                            .omittedStores(omitted)
+                            .stores(outcomes.stream().map(StoreOutcome::result).toList())
+                            .build(), ttl);
+                });
+    }
+
+    // Queries differing only in case, accents or word order share cache entries
+    static String normalize(String rawQuery) {
+        return ProductQuery.parse(rawQuery).key();
+    }
+
+    // One future per store, all bound to the same deadline; each one filters and sorts its own products
+    // so they can be shown right away
+    private List<CompletableFuture<StoreOutcome>> fanOut(String rawQuery, ProductQuery p, Consumer<StoreResultsDto> onStore) {
+        String encodedQuery = URLEncoder.encode(rawQuery, StandardCharsets.UTF_8);
+        String query = p.key();
+        long deadlineAt = System.currentTimeMillis() + deadlineMs;
+        Observation search = metrics.current();
+
+        return scrapers.stream()
+                .map(scraper -> {
+                    String store = storeName(scraper);
+                    StoreResultCache.Hit hit = storeCache.get(store, query);
+                    CompletableFuture<StoreOutcome> future = hit != null
+                            ? CompletableFuture.completedFuture(new StoreOutcome(StoreResultsDto.builder()
+                                    .store(store)
+                                    .products(hit.products())
+                                    .omitted(hit.failed())
+                                    .build(), hit.remainingMs()))
+                            : submitScrape(scraper, encodedQuery, query, p, deadlineAt, search);
+                    return future.whenComplete((outcome, ex) -> {
+                        if (outcome == null) return;
+                        try {
+                            onStore.accept(outcome.result());
+                        } catch (RuntimeException listenerEx) {
+                            logger.debug("Store listener failed for {}: {}", store, listenerEx.toString());
+                        }
+                    });
+                })
+                .toList();
+    }
+
+    // Skipped while the store's circuit is open; otherwise stopped at the store's own timeout or the search
+    // deadline, whichever comes first
+    private CompletableFuture<StoreOutcome> submitScrape(ProductScraper scraper, String encodedQuery, String query,
+                                                         ProductQuery p, long deadlineAt, Observation search) {
+        String store = storeName(scraper);
+        if (!breakers.tryAcquire(store)) {
+            metrics.skipped(store);
+            return CompletableFuture.completedFuture(skipped(store));
+        }
+        long timeoutMs = breakers.timeoutMs(store);
+        long storeDeadlineAt = Math.min(deadlineAt, System.currentTimeMillis() + timeoutMs);
+        boolean ownTimeout = storeDeadlineAt < deadlineAt;
+        return fanOut.submit(() -> scrapeStore(scraper, encodedQuery, query, p, storeDeadlineAt, deadlineAt, search),
+                storeDeadlineAt, () -> cutOff(store, ownTimeout ? timeoutMs : -1));
+    }
+
+    private StoreOutcome scrapeStore(ProductScraper scraper, String encodedQuery, String query, ProductQuery p,
+                                     long storeDeadlineAt, long deadlineAt, Observation search) {
+        String store = storeName(scraper);
+        long start = System.currentTimeMillis();
+        Observation span = metrics.startScrape(store, search);
+        List<ProductsDto> products;
+        try (Observation.Scope ignored = span.openScope()) {
+            products = scraper.scrape(encodedQuery);
+        } catch (Exception ex) {
+            long elapsed = System.currentTimeMillis() - start;
+            boolean cutOff = start + elapsed >= storeDeadlineAt || Thread.currentThread().isInterrupted();
+            long ttl = storeCache.failureTtlMs();
+            if (cutOff && storeDeadlineAt >= deadlineAt) {
+                // Failures caused by the search deadline are not held against the store
+                breakers.onAbandoned(store);
+                metrics.scraped(span, "deadline", 0);
+            } else {
+                if (!cutOff) logger.warn("Scraper {} failed: {}", store, ex.toString());
+                breakers.onFailure(store, elapsed);
+                metrics.scrapeFailed(span, store, cutOff ? "timeout" : ScraperMetrics.failureType(ex), ex);
+                ttl = storeCache.putFailure(store, query);
+            }
+            return new StoreOutcome(StoreResultsDto.builder()
+                    .store(store)
+                    .products(Collections.emptyList())
+                    .elapsedMs(System.currentTimeMillis() - start)
+                    .omitted(true)
+                    .build(), ttl);
+        }
+        breakers.onSuccess(store, System.currentTimeMillis() - start);
+        metrics.scraped(span, "ok", products.size());
+        for (ProductsDto product : products) {
+            if (product.getOrigin() != null) storeByOrigin.putIfAbsent(product.getOrigin(), store);
+        }
+        catalog.add(products);
+        history.record(products);
+        List<ProductsDto> matching = filterAndSort(products, p);
+        long ttl = storeCache.put(store, query, matching);
+        return new StoreOutcome(StoreResultsDto.builder()
+                .store(store)
+                .products(matching)
+                .elapsedMs(System.currentTimeMillis() - start)
+                .build(), ttl);
+    }
+
+    // Products whose name has every query word, ignoring accents and case, cheapest first
+    static List<ProductsDto> filterAndSort(List<ProductsDto> products, ProductQuery query) {
+        List<ProductsDto> matching = new ArrayList<>();
+        for (ProductsDto c : products) {
+            if (query.matches(c.getName())) matching.add(c);
+        }
+        matching.sort(BY_PRICE);
+        return matching;
+    }
+
+    // Each store's list is already cheapest first, so they are interleaved rather than sorted again
+    static List<ProductsDto> merge(List<List<ProductsDto>> perStore) {
+        return TopK.merge(perStore, BY_PRICE);
+    }
+
+    // A store cut off by the deadline, or by its own timeout when that is positive, keeps the merged entry
+    // short-lived, so the next search retries it
+    private StoreOutcome cutOff(String store, long timeoutMs) {
+        if (timeoutMs > 0) logger.warn("Scraper {} exceeded its {} ms timeout", store, timeoutMs);
+        else logger.warn("Scraper {} missed the {} ms search deadline", store, deadlineMs);
+        return new StoreOutcome(StoreResultsDto.builder()
+                .store(store)
+                .products(List.of())
+                .elapsedMs(timeoutMs > 0 ? timeoutMs : deadlineMs)
+                .omitted(true)
+                .build(), storeCache.failureTtlMs());
+    }
+
+    private StoreOutcome skipped(String store) {
+        logger.debug("Skipping {}: its circuit is open", store);
+        return new StoreOutcome(StoreResultsDto.builder()
+                .store(store)
+                .products(List.of())
+                .omitted(true)
+                .build(), storeCache.failureTtlMs());
+    }
+
+    private static String storeName(ProductScraper scraper) {
+        return scraper.name();
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.mercado.service;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationView;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps the span tree of the last {@code keep} searches in memory: the search and, below it, one span per
+ * store it scraped, with start offsets and durations. Served at /status/traces so a slow search can be
+ * taken apart without a tracing backend; trace and span ids of the same searches are also on every log line.
+ */
+@Component
+public class SearchTraces implements ObservationHandler<Observation.Context> {
+
+    public record Span(String name, long startMs, long durationMs, Map<String, String> tags, String error) {}
+
+    public record Trace(String query, long startedAt, long durationMs, Map<String, String> tags, String error,
+                        List<Span> scrapes) {}
+
+    private final int keep;
+    private final Deque<Trace> recent = new ArrayDeque<>();
+
+    public SearchTraces(@Value("${mercado.traces.keep:50}") int keep) {
+        this.keep = Math.max(1, keep);
+    }
+
+    @Override
+    public boolean supportsContext(Observation.Context context) {
+        return SearchMetrics.SEARCH.equals(context.getName()) || SearchMetrics.SCRAPE.equals(context.getName());
+    }
+
+    @Override
+    public void onStart(Observation.Context context) {
+        if (SearchMetrics.SEARCH.equals(context.getName())) {
+            context.put(Recording.class, new Recording(System.currentTimeMillis(), System.nanoTime()));
+        } else {
+            context.put(Started.class, new Started(System.nanoTime()));
+        }
+    }
+
+    @Override
+    public void onStop(Observation.Context context) {
+        long now = System.nanoTime();
+        if (SearchMetrics.SEARCH.equals(context.getName())) {
+            Recording rec = context.get(Recording.class);
+            if (rec == null) return;
+            KeyValue query = context.getHighCardinalityKeyValue("query");
+            Trace trace = new Trace(query == null ? null : query.getValue(), rec.startedAt,
+                    (now - rec.startNanos) / 1_000_000, tags(context), error(context), rec.scrapes());
+            synchronized (recent) {
+                recent.addFirst(trace);
+                while (recent.size() > keep) recent.removeLast();
+            }
+            return;
+        }
+        ObservationView parent = context.getParentObservation();
+        Started started = context.get(Started.class);
+        if (parent == null || started == null) return;
+        long start = started.nanos();
+        Recording rec = parent.getContextView().get(Recording.class);
+        if (rec == null) return;
+        Map<String, String> tags = tags(context);
+        KeyValue products = context.getHighCardinalityKeyValue("products");
+        if (products != null) tags.put("products", products.getValue());
+        rec.add(new Span(context.getContextualName(), (start - rec.startNanos) / 1_000_000,
+                (now - start) / 1_000_000, tags, error(context)));
+    }
+
+    // Most recent first
+    public List<Trace> recent() {
+        synchronized (recent) {
+            return List.copyOf(recent);
+        }
+    }
+
+    private static Map<String, String> tags(Observation.Context context) {
+        Map<String, String> tags = new TreeMap<>();
+        for (KeyValue kv : context.getLowCardinalityKeyValues()) tags.put(kv.getKey(), kv.getValue());
+        return tags;
+    }
+
+    private static String error(Observation.Context context) {
+        return context.getError() == null ? null : context.getError().toString();
+    }
+
+    private record Started(long nanos) {}
+
+    private static final class Recording {
+        final long startedAt;
+        final long startNanos;
+        // Scrapes that finish after the search (cut off, still unwinding) are left out
+        final List<Span> scrapes = new ArrayList<>();
+
+        Recording(long startedAt, long startNanos) {
+            this.startedAt = startedAt;
+            this.startNanos = startNanos;
+        }
+
+        synchronized void add(Span span) {
+            scrapes.add(span);
+        }
+
+        synchronized List<Span> scrapes() {
+            return scrapes.stream().sorted((a, b) -> Long.compare(a.startMs(), b.startMs())).toList();
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.mercado.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One circuit breaker per store, fed with the outcome and latency of every scrape.
+ * <ul>
+ *     <li>each store keeps its last {@code window-size} scrapes younger than {@code window-ms}</li>
+ *     <li>the circuit opens after {@code consecutive-failures} failures in a row, or when at least
+ *     {@code failure-rate} of a window of {@code min-calls} or more failed; while open the store is skipped</li>
+ *     <li>after {@code open-ms} one probe scrape is let through (half-open): success closes the circuit,
+ *     failure opens it again for twice as long, up to {@code max-open-ms}</li>
+ *     <li>a store's timeout is its observed p99 times {@code timeout-p99-factor}, within
+ *     [{@code timeout-min-ms}, {@code timeout-max-ms}]; until min-calls scrapes succeeded it is the maximum</li>
+ * </ul>
+ */
+@Component
+public class StoreCircuitBreakers {
+
+    private final Logger logger = LoggerFactory.getLogger(StoreCircuitBreakers.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    public record Status(String store, State state, int calls, int failures, double failureRate,
+                         long p50Ms, long p99Ms, long timeoutMs, int consecutiveFailures,
+                         long retryInMs, long opened, long rejected) {}
+
+    private final int windowSize;
+    private final long windowMs;
+    private final int minCalls;
+    private final double failureRate;
+    private final int consecutiveFailures;
+    private final long openMs;
+    private final long maxOpenMs;
+    private final long minTimeoutMs;
+    private final long maxTimeoutMs;
+    private final double p99Factor;
+
+    private final ConcurrentHashMap<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+    public StoreCircuitBreakers(@Value("${mercado.breaker.window-size:50}") int windowSize,
+                                @Value("${mercado.breaker.window-ms:600000}") long windowMs,
+                                @Value("${mercado.breaker.min-calls:5}") int minCalls,
+                                @Value("${mercado.breaker.failure-rate:0.5}") double failureRate,
+                                @Value("${mercado.breaker.consecutive-failures:5}") int consecutiveFailures,
+                                @Value("${mercado.breaker.open-ms:30000}") long openMs,
+                                @Value("${mercado.breaker.max-open-ms:300000}") long maxOpenMs,
+                                @Value("${mercado.breaker.timeout-min-ms:1500}") long minTimeoutMs,
+                                @Value("${mercado.breaker.timeout-max-ms:15000}") long maxTimeoutMs,
+                                @Value("${mercado.breaker.timeout-p99-factor:1.5}") double p99Factor) {
+        this.windowSize = Math.max(1, windowSize);
+        this.windowMs = windowMs;
+        this.minCalls = Math.max(1, minCalls);
+        this.failureRate = failureRate;
+        this.consecutiveFailures = Math.max(1, consecutiveFailures);
+        this.openMs = Math.max(1, openMs);
+        this.maxOpenMs = Math.max(this.openMs, maxOpenMs);
+        this.minTimeoutMs = minTimeoutMs;
+        this.maxTimeoutMs = Math.max(minTimeoutMs, maxTimeoutMs);
+        this.p99Factor = p99Factor;
+    }
+
+    /**
+     * Whether a scrape of {@code store} may start now. Every permitted scrape must be reported back through
+     * {@link #onSuccess}, {@link #onFailure} or {@link #onAbandoned}.
+     */
+    boolean tryAcquire(String store) {
+        return breaker(store).tryAcquire(System.currentTimeMillis());
+    }
+
+    /**
+     * How long a scrape of {@code store} may take before it counts as failed.
+     */
+    long timeoutMs(String store) {
+        return breaker(store).timeoutMs;
+    }
+
+    void onSuccess(String store, long latencyMs) {
+        breaker(store).record(System.currentTimeMillis(), latencyMs, false);
+    }
+
+    void onFailure(String store, long latencyMs) {
+        breaker(store).record(System.currentTimeMillis(), latencyMs, true);
+    }
+
+    /**
+     * The scrape was stopped for reasons that say nothing about the store, such as the search deadline.
+     */
+    void onAbandoned(String store) {
+        breaker(store).abandon();
+    }
+
+    public State state(String store) {
+        return breaker(store).state;
+    }
+
+    public List<Status> status() {
+        long now = System.currentTimeMillis();
+        return breakers.entrySet().stream()
+                .map(e -> e.getValue().status(e.getKey(), now))
+                .sorted(Comparator.comparing(Status::store))
+                .toList();
+    }
+
+    private Breaker breaker(String store) {
+        return breakers.computeIfAbsent(store, Breaker::new);
+    }
+
+    private final class Breaker {
+        final String store;
+
+        // Ring of the most recent scrapes
+        final long[] at = new long[windowSize];
+        final long[] latency = new long[windowSize];
+        final boolean[] failed = new boolean[windowSize];
+        int next;
+        int size;
+
+        volatile State state = State.CLOSED;
+        volatile long timeoutMs = maxTimeoutMs;
+        long currentOpenMs = openMs;
+        long openUntil;
+        boolean probing;
+        int consecutive;
+        long opened;
+        long rejected;
+
+        Breaker(String store) {
+            this.store = store;
+        }
+
+        synchronized boolean tryAcquire(long now) {
+            switch (state) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (now < openUntil) break;
+                    state = State.HALF_OPEN;
+                    probing = true;
+                    return true;
+                case HALF_OPEN:
+                    if (probing) break;
+                    probing = true;
+                    return true;
+            }
+            rejected++;
+            return false;
+        }
+
+        synchronized void record(long now, long latencyMs, boolean fail) {
+            add(now, latencyMs, fail);
+            consecutive = fail ? consecutive + 1 : 0;
+
+            if (state == State.HALF_OPEN) {
+                probing = false;
+                if (fail) {
+                    open(now, Math.min(currentOpenMs * 2, maxOpenMs), "the probe scrape failed");
+                } else {
+                    // Failures from before the outage would trip the circuit again at once
+                    size = 0;
+                    next = 0;
+                    add(now, latencyMs, false);
+                    state = State.CLOSED;
+                    currentOpenMs = openMs;
+                    logger.info("Circuit for {} closed after a successful probe ({} ms)", store, latencyMs);
+                }
+            } else if (state == State.CLOSED && fail) {
+                int calls = 0;
+                int failures = 0;
+                for (int i = 0; i < size; i++) {
+                    if (now - at[i] > windowMs) continue;
+                    calls++;
+                    if (failed[i]) failures++;
+                }
+                if (consecutive >= consecutiveFailures) {
+                    open(now, openMs, consecutive + " scrapes in a row failed");
+                } else if (calls >= minCalls && failures >= failureRate * calls) {
+                    open(now, openMs, failures + " of the last " + calls + " scrapes failed");
+                }
+            }
+            timeoutMs = adaptiveTimeout(now);
+        }
+
+        private void add(long now, long latencyMs, boolean fail) {
+            at[next] = now;
+            latency[next] = latencyMs;
+            failed[next] = fail;
+            next = (next + 1) % windowSize;
+            size = Math.min(size + 1, windowSize);
+        }
+
+        synchronized void abandon() {
+            if (state == State.HALF_OPEN) probing = false;
+        }
+
+        private void open(long now, long forMs, String reason) {
+            state = State.OPEN;
+            currentOpenMs = forMs;
+            openUntil = now + forMs;
+            opened++;
+            logger.warn("Circuit for {} opened: {}; skipping it for {} ms", store, reason, forMs);
+        }
+
+        private long adaptiveTimeout(long now) {
+            long[] ok = successfulLatencies(now);
+            if (ok.length < minCalls) return maxTimeoutMs;
+            long p99 = percentile(ok, 0.99);
+            return Math.max(minTimeoutMs, Math.min(maxTimeoutMs, Math.round(p99 * p99Factor)));
+        }
+
+        private long[] successfulLatencies(long now) {
+            long[] out = new long[size];
+            int n = 0;
+            for (int i = 0; i < size; i++) {
+                if (!failed[i] && now - at[i] <= windowMs) out[n++] = latency[i];
+            }
+            out = Arrays.copyOf(out, n);
+            Arrays.sort(out);
+            return out;
+        }
+
+        synchronized Status status(String store, long now) {
+            int calls = 0;
+            int failures = 0;
+            for (int i = 0; i < size; i++) {
+                if (now - at[i] > windowMs) continue;
+                calls++;
+                if (failed[i]) failures++;
+            }
+            long[] ok = successfulLatencies(now);
+            return new Status(store, state, calls, failures, calls == 0 ? 0 : (double) failures / calls,
+                    percentile(ok, 0.5), percentile(ok, 0.99), timeoutMs, consecutive,
+                    state == State.OPEN ? Math.max(0, openUntil - now) : 0, opened, rejected);
+        }
+    }
+
+    // Nearest-rank percentile of sorted values; 0 when there are none
+    static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int rank = (int) Math.ceil(p * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+}
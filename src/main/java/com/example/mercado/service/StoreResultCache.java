@@ -0,0 +1,127 @@
+package com.example.mercado.service;
+
+import com.example.mercado.dto.ProductsDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-store results keyed by (store, normalized query), underneath the merged query cache.
+ * Each store has its own TTL; empty results and failures are kept for shorter periods so a store that
+ * is down is not hit again for every query, but recovers quickly once it is back.
+ */
+@Component
+public class StoreResultCache {
+
+    record Key(String store, String query) {}
+
+    private record Entry(List<ProductsDto> products, boolean failed, long expiresAt) {}
+
+    /**
+     * A usable cached result; {@code failed} marks a negative entry for a store that errored or timed out.
+     */
+    record Hit(List<ProductsDto> products, boolean failed, long remainingMs) {}
+
+    public record Stats(long hits, long negativeHits, long misses, int entries) {}
+
+    private final Environment env;
+    private final long defaultTtlMs;
+    private final long emptyTtlMs;
+    private final long failureTtlMs;
+    private final int maxEntries;
+
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public StoreResultCache(Environment env,
+                            @Value("${mercado.store-cache.ttl-ms:300000}") long defaultTtlMs,
+                            @Value("${mercado.store-cache.empty-ttl-ms:60000}") long emptyTtlMs,
+                            @Value("${mercado.store-cache.failure-ttl-ms:30000}") long failureTtlMs,
+                            @Value("${mercado.store-cache.max-entries:20000}") int maxEntries) {
+        this.env = env;
+        this.defaultTtlMs = defaultTtlMs;
+        this.emptyTtlMs = emptyTtlMs;
+        this.failureTtlMs = failureTtlMs;
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    Hit get(String store, String query) {
+        Key key = new Key(store, query);
+        Entry e = entries.get(key);
+        long now = System.currentTimeMillis();
+        if (e == null || e.expiresAt <= now) {
+            if (e != null) entries.remove(key, e);
+            misses.incrementAndGet();
+            return null;
+        }
+        (e.failed ? negativeHits : hits).incrementAndGet();
+        return new Hit(e.products, e.failed, e.expiresAt - now);
+    }
+
+    /**
+     * Time left on the cached result, failures included, or -1 when there is none; does not count as a hit.
+     */
+    long remainingMs(String store, String query) {
+        Entry e = entries.get(new Key(store, query));
+        return e == null ? -1 : e.expiresAt - System.currentTimeMillis();
+    }
+
+    /**
+     * @return the TTL the result was stored with
+     */
+    long put(String store, String query, List<ProductsDto> products) {
+        long ttl = products.isEmpty() ? Math.min(emptyTtlMs, ttlFor(store)) : ttlFor(store);
+        store(new Key(store, query), new Entry(products, false, System.currentTimeMillis() + ttl));
+        return ttl;
+    }
+
+    /**
+     * Negative entry: the store failed for this query, skip it until the failure TTL passes.
+     * @return the TTL the failure was stored with
+     */
+    long putFailure(String store, String query) {
+        store(new Key(store, query), new Entry(List.of(), true, System.currentTimeMillis() + failureTtlMs));
+        return failureTtlMs;
+    }
+
+    long failureTtlMs() {
+        return failureTtlMs;
+    }
+
+    public Stats stats() {
+        return new Stats(hits.get(), negativeHits.get(), misses.get(), entries.size());
+    }
+
+    // Per-store override, e.g. mercado.store-cache.ttl-ms.RealScraper=120000
+    private long ttlFor(String store) {
+        return env.getProperty("mercado.store-cache.ttl-ms." + store, Long.class, defaultTtlMs);
+    }
+
+    private void store(Key key, Entry entry) {
+        entries.put(key, entry);
+        if (entries.size() > maxEntries) trim();
+    }
+
+    // Drop expired entries first; if still over the limit, drop the ones closest to expiring
+    private synchronized void trim() {
+        long now = System.currentTimeMillis();
+        entries.entrySet().removeIf(me -> me.getValue().expiresAt <= now);
+        int excess = entries.size() - maxEntries;
+        if (excess <= 0) return;
+        entries.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<Key, Entry> me) -> me.getValue().expiresAt))
+                .limit(excess)
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(entries::remove);
+    }
+}
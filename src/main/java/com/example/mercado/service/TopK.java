@@ -0,0 +1,75 @@
+package com.example.mercado.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Selection and merging over price-ordered products without sorting everything:
+ * <ul>
+ *     <li>{@link #first} keeps the k first items of an unordered stream in a heap of at most k,
+ *     O(n log k) instead of O(n log n), and never holds more than k of them</li>
+ *     <li>{@link #merge} interleaves lists that are each already ordered with one cursor per list on a heap,
+ *     O(n log lists)</li>
+ * </ul>
+ */
+final class TopK<T> {
+
+    private final int k;
+    private final Comparator<? super T> order;
+    // Head is the worst item kept, the one the next better item replaces
+    private final PriorityQueue<T> heap;
+
+    TopK(int k, Comparator<? super T> order) {
+        this.k = Math.max(0, k);
+        this.order = order;
+        this.heap = new PriorityQueue<>(Math.max(1, Math.min(this.k, 1024)), order.reversed());
+    }
+
+    void offer(T item) {
+        if (k == 0) return;
+        if (heap.size() < k) {
+            heap.add(item);
+        } else if (order.compare(item, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(item);
+        }
+    }
+
+    // The items kept, first to last
+    List<T> first() {
+        List<T> out = new ArrayList<>(heap);
+        out.sort(order);
+        return out;
+    }
+
+    static <T> List<T> first(Iterable<? extends T> items, int k, Comparator<? super T> order) {
+        TopK<T> top = new TopK<>(k, order);
+        for (T item : items) top.offer(item);
+        return top.first();
+    }
+
+    private record Cursor<T>(List<? extends T> list, int index) {
+        T head() {
+            return list.get(index);
+        }
+    }
+
+    static <T> List<T> merge(List<? extends List<? extends T>> sortedLists, Comparator<? super T> order) {
+        int total = 0;
+        for (List<? extends T> list : sortedLists) total += list.size();
+        List<T> out = new ArrayList<>(total);
+        PriorityQueue<Cursor<T>> heads = new PriorityQueue<>(Math.max(1, sortedLists.size()),
+                (a, b) -> order.compare(a.head(), b.head()));
+        for (List<? extends T> list : sortedLists) {
+            if (!list.isEmpty()) heads.add(new Cursor<>(list, 0));
+        }
+        while (!heads.isEmpty()) {
+            Cursor<T> c = heads.poll();
+            out.add(c.head());
+            if (c.index() + 1 < c.list().size()) heads.add(new Cursor<>(c.list(), c.index() + 1));
+        }
+        return out;
+    }
+}
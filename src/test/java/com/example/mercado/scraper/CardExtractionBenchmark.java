@@ -0,0 +1,56 @@
+package com.example.mercado.scraper;
+
+import org.jsoup.nodes.Element;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Card extraction only: the single scan over the raw page against parsing the whole document and running
+ * one select per field. Run with the GC profiler to compare allocation per page.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CardExtractionBenchmark {
+
+    private static final Function<Element, String> IMAGE = el -> el.absUrl("src");
+
+    @Param({"biggies", "casarica", "farmacenter", "farmaciacatedral", "farmatotall",
+            "puntofarma", "salemma", "stock", "superseis", "supermas"})
+    public String store;
+
+    private HttpTransport.Response page;
+    private CardSelectors cards;
+
+    @Setup
+    public void setUp() {
+        page = Fixtures.page(store);
+        cards = Fixtures.CARDS.get(store);
+    }
+
+    @Benchmark
+    public CardExtractor.Fields scanner() throws IOException {
+        return CardExtractor.scan(page, cards, IMAGE);
+    }
+
+    @Benchmark
+    public CardExtractor.Fields fullDocument() throws IOException {
+        return CardExtractor.select(HttpTransport.parse(page), cards, IMAGE);
+    }
+}
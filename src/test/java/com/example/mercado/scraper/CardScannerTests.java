@@ -0,0 +1,67 @@
+package com.example.mercado.scraper;
+
+import org.jsoup.nodes.Element;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CardScannerTests {
+
+    private static final Function<Element, String> SRC = el -> el.absUrl("src");
+
+    private static HttpTransport.Response page(String html) {
+        return new HttpTransport.Response(URI.create("https://store.test/buscar"), 200,
+                html.getBytes(StandardCharsets.UTF_8), "UTF-8");
+    }
+
+    private static void assertSameAsDom(String html, CardSelectors cards) throws Exception {
+        HttpTransport.Response page = page(html);
+        assertEquals(CardExtractor.select(HttpTransport.parse(page), cards, SRC), CardExtractor.scan(page, cards, SRC));
+    }
+
+    @Test
+    void extractsLikeTheDomPathOnMessyMarkup() throws Exception {
+        String html = """
+                <!DOCTYPE html><HTML><head><title>Leche <b>fake</b></title>
+                <script>var card = '<h2 class="title">Not a product</h2>';</script></head>
+                <body><!-- <h2 class="title">Commented out</h2> -->
+                <ul class="grid">
+                  <li class="card"><IMG SRC="/img/1.jpg?w=1&amp;h=2"><h2 class="title">Leche&nbsp;Entera <small>1 L</small></h2>
+                      <span class="price">Gs. 8.500</span>
+                  <li class="card"><img src=/img/2.jpg><h2 class='title x'>Yogur<br>Frutilla</h2>
+                      <span class="price">Gs.&#32;12.500</span><p>promo<div>extra</div>
+                  <li class="card"><img src="/img/3.jpg"/><h2 class="title">Queso &amp; Dulce</h2>
+                      <span class="price"><bdi>3.900</bdi> Gs.</span>
+                </ul></body></HTML>
+                """;
+        assertSameAsDom(html, CardSelectors.of("li.card > h2.title", "li > span.price", "ul.grid li img"));
+    }
+
+    @Test
+    void matchesAttributeSelectorsTrimmedAndIgnoringCase() throws Exception {
+        String html = "<div><h6 class=' PPrice '>Gs. 1</h6><h6 class='pprice other'>Gs. 2</h6>"
+                + "<a class=apsubtitle>Uno</a><img class=imgprodts src=/a.png></div>";
+        assertSameAsDom(html, CardSelectors.of("a.apsubtitle", "h6[class=pprice]", "img.imgprodts"));
+    }
+
+    @Test
+    void leavesUnsupportedSelectorsToTheDomPath() throws Exception {
+        assertNull(CardScanner.compile("li:nth-child(2) > a"));
+        assertNull(CardScanner.compile("h2 + span"));
+        assertNull(CardScanner.compile("a[href^=/p]"));
+        assertFalse(CardSelectors.of("h2", "span:contains(Gs)", "img").scannable());
+        assertTrue(CardSelectors.of("div.a > h2 a", "span[data-price]", "#main img").scannable());
+
+        List<String> names = CardExtractor.select(HttpTransport.parse(page("<li><a>x</a></li><li><a>y</a></li>")),
+                CardSelectors.of("li:nth-child(2) > a", "a", "a"), SRC).names();
+        assertEquals(List.of("y"), names);
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.mercado.scraper;
+
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChromeSessionPoolTests {
+
+    // Stands in for a ChromeDriver: answers the health check until killed, and counts quits
+    private static final class FakeBrowser {
+        final AtomicBoolean dead = new AtomicBoolean();
+        final AtomicInteger quits = new AtomicInteger();
+        final WebDriver driver = (WebDriver) Proxy.newProxyInstance(WebDriver.class.getClassLoader(),
+                new Class<?>[]{WebDriver.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getWindowHandle" -> {
+                        if (dead.get()) throw new WebDriverException("chrome not reachable");
+                        yield "window";
+                    }
+                    case "quit" -> {
+                        quits.incrementAndGet();
+                        yield null;
+                    }
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+    }
+
+    private final List<FakeBrowser> browsers = new CopyOnWriteArrayList<>();
+
+    private ChromeSessionPool pool(int maxSessions, int maxPages, long maxIdleMs) {
+        return new ChromeSessionPool(() -> {
+            FakeBrowser b = new FakeBrowser();
+            browsers.add(b);
+            return b.driver;
+        }, maxSessions, maxPages, Duration.ofMillis(100), Duration.ofMillis(maxIdleMs));
+    }
+
+    @Test
+    void checkoutsWaitForAFreeSessionAndGiveUpAfterTheTimeout() throws InterruptedException {
+        ChromeSessionPool pool = pool(2, 50, 60_000);
+        ChromeSessionPool.Session first = pool.checkout();
+        ChromeSessionPool.Session second = pool.checkout();
+        assertThrows(IllegalStateException.class, pool::checkout);
+        assertEquals(1, pool.stats().checkoutTimeouts());
+
+        pool.release(first, false);
+        assertSame(first, pool.checkout());
+        assertEquals(2, pool.stats().created());
+        assertEquals(2, pool.stats().inUse());
+        pool.release(second, false);
+    }
+
+    @Test
+    void sessionsAreRecycledAfterTheirPageBudget() throws InterruptedException {
+        ChromeSessionPool pool = pool(1, 2, 60_000);
+        ChromeSessionPool.Session session = pool.checkout();
+        pool.release(session, false);
+        assertSame(session, pool.checkout());
+        pool.release(session, false);
+
+        assertEquals(1, browsers.get(0).quits.get());
+        assertEquals(1, pool.stats().recycled());
+        assertNotSame(session, pool.checkout());
+        assertEquals(2, pool.stats().created());
+    }
+
+    @Test
+    void brokenAndDeadSessionsAreDiscarded() throws InterruptedException {
+        ChromeSessionPool pool = pool(1, 50, 60_000);
+        pool.release(pool.checkout(), true);
+        assertEquals(1, browsers.get(0).quits.get());
+
+        ChromeSessionPool.Session session = pool.checkout();
+        pool.release(session, false);
+        // Chrome died while idle: the health check at checkout catches it
+        browsers.get(1).dead.set(true);
+        assertNotSame(session, pool.checkout());
+        assertEquals(2, pool.stats().crashed());
+        assertEquals(1, pool.stats().live());
+    }
+
+    @Test
+    void idleSessionsPastTheirLimitAreClosedWithoutACheckout() throws InterruptedException {
+        ChromeSessionPool pool = pool(2, 50, 1_000);
+        ChromeSessionPool.Session first = pool.checkout();
+        ChromeSessionPool.Session second = pool.checkout();
+        pool.release(first, false);
+        pool.release(second, false);
+
+        assertEquals(0, pool.closeExpired(System.currentTimeMillis()));
+        first.lastUsed -= 2_000;
+        assertEquals(1, pool.closeExpired(System.currentTimeMillis()));
+        assertEquals(1, pool.stats().live());
+        assertEquals(1, pool.closeExpired(System.currentTimeMillis() + 1_001));
+        assertEquals(0, pool.stats().live());
+        assertEquals(0, pool.stats().idle());
+        assertTrue(browsers.stream().allMatch(b -> b.quits.get() == 1));
+    }
+
+    @Test
+    void anAbandonedSessionIsNeverHandedOut() throws InterruptedException {
+        ChromeSessionPool pool = pool(1, 50, 60_000);
+        ChromeSessionPool.Session session = pool.checkout();
+        Thread.currentThread().interrupt();
+        pool.abandon(session);
+        assertTrue(Thread.interrupted());
+
+        assertNotSame(session, pool.checkout());
+        for (int i = 0; i < 50 && browsers.get(0).quits.get() == 0; i++) Thread.sleep(20);
+        assertEquals(1, browsers.get(0).quits.get());
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.mercado.scraper;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EmbeddedProductReaderTests {
+
+    @Test
+    void readsProductsFromJsonInsideAJavaScriptString() {
+        String html = "<script>var a = 1;</script>"
+                + "<script>self.__next_f.push([1,\"5:{\\\"results\\\":[{\\\"product\\\":{\\\"name\\\":\\\"Leche \\\\\\\"La Vaca\\\\\\\"\\\","
+                + "\\\"price\\\":8900,\\\"photosUrl\\\":[\\\"https:\\/\\/img.test\\/1.jpg\\\",\\\"x\\\"]}},"
+                + "{\\\"product\\\":{\\x22photosUrl\\x22:[],\\x22price\\x22:\\x2212.500\\x22,\\x22name\\x22:\\x22Yogur\\x22}}]}\"])</script>";
+
+        assertEquals(List.of(
+                new EmbeddedProductReader.Item("Leche \"La Vaca\"", 8900, "https://img.test/1.jpg"),
+                new EmbeddedProductReader.Item("Yogur", 12500, "")
+        ), EmbeddedProductReader.read(html));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"\\\"", "\\u0022", "\\x22"})
+    void recognisesTheKeyWhateverEscapeItsQuotesUse(String quote) {
+        String json = "{'product':{'name':'Arroz','price':7500,'photosUrl':['https:\\/\\/img.test\\/a.jpg']}}";
+        String html = "<script>self.__next_f.push([1,\"5:" + json.replace("'", quote) + "\"])</script>";
+
+        assertEquals(List.of(new EmbeddedProductReader.Item("Arroz", 7500, "https://img.test/a.jpg")),
+                EmbeddedProductReader.read(html));
+    }
+
+    @Test
+    void readsPlainJsonInAnyMemberOrder() {
+        String html = "<SCRIPT type=\"application/json\">{\"items\":[{\"product\": {\"sku\": {\"id\": [1, \"}\"]},"
+                + " \"photosUrl\": [\"/a.jpg\"], \"price\": 3900.0, \"name\": \"Queso\\u0020Paraguay\"}}]}</SCRIPT>"
+                + "<p>\"product\": {\"name\": \"outside any script\"}</p>";
+
+        assertEquals(List.of(new EmbeddedProductReader.Item("Queso Paraguay", 3900, "/a.jpg")),
+                EmbeddedProductReader.read(html));
+    }
+
+    @Test
+    void skipsMalformedObjectsAndKeepsScanning() {
+        String html = "<script>{\"product\": {\"name\": \"cut off</script>"
+                + "<script>{\"product\": \"just a string\", \"x\": {\"product\": {\"name\": \"Ok\", \"price\": 1}}}</script>";
+
+        assertEquals(List.of(new EmbeddedProductReader.Item("Ok", 1, "")), EmbeddedProductReader.read(html));
+    }
+
+    @Test
+    void findsAProductNestedInsideAMalformedOne() {
+        String html = "<script>{\"product\": {\"variant\": {\"product\": {\"name\": \"Inner\", \"price\": 2}},"
+                + " \"price\": 1 \"stray\"}}</script>";
+
+        assertEquals(List.of(new EmbeddedProductReader.Item("Inner", 2, "")), EmbeddedProductReader.read(html));
+    }
+
+    @Test
+    void findsEveryProductInTheRealFixture() {
+        String html = new String(Fixtures.load("real"), StandardCharsets.UTF_8);
+        assertEquals(Fixtures.PRODUCTS_PER_PAGE, EmbeddedProductReader.read(html).size());
+    }
+}
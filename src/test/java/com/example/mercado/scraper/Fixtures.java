@@ -0,0 +1,83 @@
+package com.example.mercado.scraper;
+
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Saved search pages for "leche", one per store, under src/test/resources/fixtures, plus a transport
+ * that serves them so scrapers run end to end without touching the network.
+ */
+final class Fixtures {
+
+    // Stores whose scrape() can run from a static page
+    static final Map<String, Supplier<BaseJsoupScraper>> SCRAPERS = Map.ofEntries(
+            Map.entry("biggies", () -> new BiggiesScraper(null)),
+            Map.entry("casarica", CasaRicaScraper::new),
+            Map.entry("farmacenter", FarmacenterScraper::new),
+            Map.entry("farmaciacatedral", () -> new FarmaciaCatedralScraper(null)),
+            Map.entry("farmatotall", () -> new FarmaTotallScraper(null)),
+            Map.entry("puntofarma", PuntoFarmaScraper::new),
+            Map.entry("real", RealScraper::new),
+            Map.entry("salemma", SalemmaScraper::new),
+            Map.entry("stock", StockScraper::new),
+            Map.entry("superseis", SuperSeisScraper::new),
+            Map.entry("supermas", SupermasScraper::new)
+    );
+
+    static final Map<String, CardSelectors> CARDS = Map.ofEntries(
+            Map.entry("biggies", BiggiesScraper.CARDS),
+            Map.entry("casarica", CasaRicaScraper.CARDS),
+            Map.entry("farmacenter", FarmacenterScraper.CARDS),
+            Map.entry("farmaciacatedral", FarmaciaCatedralScraper.CARDS),
+            Map.entry("farmatotall", FarmaTotallScraper.CARDS),
+            Map.entry("puntofarma", PuntoFarmaScraper.CARDS),
+            Map.entry("salemma", SalemmaScraper.CARDS),
+            Map.entry("stock", StockScraper.CARDS),
+            Map.entry("superseis", SuperSeisScraper.CARDS),
+            Map.entry("supermas", SupermasScraper.CARDS)
+    );
+
+    // Every fixture holds this many product cards
+    static final int PRODUCTS_PER_PAGE = 24;
+
+    private Fixtures() {}
+
+    static byte[] load(String store) {
+        try (InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + store + ".html")) {
+            if (in == null) throw new IllegalArgumentException("No fixture for " + store);
+            return in.readAllBytes();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    static HttpTransport.Response page(String store) {
+        return new HttpTransport.Response(URI.create("https://fixture.test/" + store), 200, load(store), "UTF-8");
+    }
+
+    // A scraper for the store whose every fetch returns the store's fixture
+    static BaseJsoupScraper scraper(String store) {
+        BaseJsoupScraper scraper = SCRAPERS.get(store).get();
+        scraper.setTransport(new FixtureTransport(load(store)));
+        return scraper;
+    }
+
+    static final class FixtureTransport extends HttpTransport {
+        private final byte[] body;
+
+        FixtureTransport(byte[] body) {
+            super(1000, Integer.MAX_VALUE, null, 0);
+            this.body = body;
+        }
+
+        @Override
+        public Response get(String url, SSLContext sslContext) {
+            return new Response(URI.create(url), 200, body, "UTF-8");
+        }
+    }
+}
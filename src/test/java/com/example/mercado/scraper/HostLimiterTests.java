@@ -0,0 +1,84 @@
+package com.example.mercado.scraper;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HostLimiterTests {
+
+    private static <T> CompletableFuture<T> async(HostLimiter limiter, String url, Callable<T> work) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return limiter.call(url, work);
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+    }
+
+    @Test
+    void queuesPastTheLimitAndReportsTheQueueAndTheWait() throws Exception {
+        HostLimiter limiter = new HostLimiter(null, 1, 5_000);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> holder = async(limiter, "https://a.test/1", () -> {
+            entered.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        });
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = async(limiter, "https://a.test/2", () -> "queued");
+        // Another host has its own slots
+        assertEquals("b", limiter.call("https://b.test/", () -> "b"));
+
+        for (int i = 0; i < 100 && limiter.stats().get(0).queued() == 0; i++) Thread.sleep(10);
+        HostLimiter.HostStats a = limiter.stats().get(0);
+        assertEquals("a.test", a.host());
+        assertEquals(1, a.limit());
+        assertEquals(1, a.active());
+        assertEquals(1, a.queued());
+
+        Thread.sleep(150);
+        release.countDown();
+        assertTrue(holder.get(5, TimeUnit.SECONDS));
+        assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+        a = limiter.stats().get(0);
+        assertEquals(0, a.active());
+        assertEquals(0, a.queued());
+        assertEquals(2, a.acquired());
+        assertTrue(a.maxWaitMs() >= 150, "max wait " + a.maxWaitMs());
+        assertTrue(a.avgWaitMs() >= 75, "average wait " + a.avgWaitMs());
+    }
+
+    @Test
+    void givesUpAfterTheWaitTimeoutAndHonoursPerHostLimits() throws Exception {
+        MockEnvironment env = new MockEnvironment()
+                .withProperty("mercado.scrape.max-connections-per-host.a.test", "1");
+        HostLimiter limiter = new HostLimiter(env, 4, 100);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> holder = async(limiter, "https://a.test/1", () -> {
+            entered.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        });
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        long start = System.currentTimeMillis();
+        assertThrows(TimeoutException.class, () -> limiter.call("https://a.test/2", () -> "late"));
+        assertTrue(System.currentTimeMillis() - start < 2_000);
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, limiter.stats().get(0).limit());
+        assertEquals(1, limiter.stats().get(0).acquired());
+        assertTrue(limiter.stats().get(0).maxWaitMs() >= 100);
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.mercado.scraper;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HttpTransportTests {
+
+    private HttpServer server;
+    private final AtomicInteger version = new AtomicInteger(1);
+    private final AtomicInteger served = new AtomicInteger();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        // Headers at once, then one byte every 100 ms
+        server.createContext("/trickle", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                for (int i = 0; i < 50; i++) {
+                    out.write('x');
+                    out.flush();
+                    Thread.sleep(100);
+                }
+            } catch (InterruptedException | IOException ignored) {
+                // client gave up
+            }
+        });
+        server.createContext("/page", exchange -> {
+            byte[] body = "<html><body>Leche</body></html>".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        // Answers 304 while the client holds the current version
+        server.createContext("/etag", exchange -> {
+            served.incrementAndGet();
+            String etag = "\"v" + version.get() + "\"";
+            exchange.getResponseHeaders().add("ETag", etag);
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            byte[] body = ("<html><body>version " + version.get() + "</body></html>").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    private static String text(HttpTransport.Response response) {
+        return new String(response.body(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void timeoutCoversTheBodyNotJustTheHeaders() {
+        HttpTransport transport = new HttpTransport(500, 1_200_000, null, 0);
+        long start = System.currentTimeMillis();
+        assertThrows(HttpTimeoutException.class, () -> transport.get(url("/trickle"), null));
+        long elapsed = System.currentTimeMillis() - start;
+        assertTrue(elapsed < 2_000, "gave up after " + elapsed + " ms");
+    }
+
+    @Test
+    void bodyIsReadUpToTheSizeLimit() throws Exception {
+        HttpTransport transport = new HttpTransport(5_000, 8, null, 0);
+        HttpTransport.Response response = transport.get(url("/page"), null);
+        assertEquals("<html><b", new String(response.body(), StandardCharsets.UTF_8));
+        assertEquals("utf-8", response.charset());
+    }
+
+    @Test
+    void notModifiedReusesTheStoredBodyAndAChangedPageReplacesIt(@TempDir Path cacheDir) throws Exception {
+        HttpTransport transport = new HttpTransport(5_000, 1_200_000, cacheDir.toString(), 1 << 20);
+        assertEquals("<html><body>version 1</body></html>", text(transport.get(url("/etag"), null)));
+
+        HttpTransport.Response revalidated = transport.get(url("/etag"), null);
+        assertEquals(200, revalidated.status());
+        assertEquals("<html><body>version 1</body></html>", text(revalidated));
+        assertEquals(1, transport.stats().notModified());
+
+        version.set(2);
+        assertEquals("<html><body>version 2</body></html>", text(transport.get(url("/etag"), null)));
+        assertEquals("<html><body>version 2</body></html>", text(transport.get(url("/etag"), null)));
+        assertEquals(3, transport.stats().conditionalRequests());
+        assertEquals(2, transport.stats().notModified());
+        assertEquals(4, served.get());
+    }
+
+    @Test
+    void validatorsAreReadWithoutTheBodyAndAMissingBodyIsFetchedAgain(@TempDir Path cacheDir) throws Exception {
+        HttpResponseCache cache = new HttpResponseCache(cacheDir, 1 << 20);
+        assertNull(cache.validators("https://a.test/x"));
+        cache.store("https://a.test/x", new HttpResponseCache.Entry("\"e\"", null,
+                URI.create("https://a.test/x"), "utf-8", new byte[]{1, 2, 3}));
+        assertEquals(new HttpResponseCache.Validators("\"e\"", null), cache.validators("https://a.test/x"));
+        assertEquals(3, cache.read("https://a.test/x").body().length);
+
+        // The stored page disappears between sending its validators and the 304
+        HttpTransport transport = new HttpTransport(5_000, 1_200_000, cacheDir.toString(), 1 << 20);
+        transport.get(url("/etag"), null);
+        server.removeContext("/etag");
+        server.createContext("/etag", exchange -> {
+            served.incrementAndGet();
+            try (Stream<Path> files = Files.list(cacheDir)) {
+                files.forEach(f -> f.toFile().delete());
+            }
+            String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            byte[] body = "<html>fresh</html>".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(ifNoneMatch == null ? 200 : 304, ifNoneMatch == null ? body.length : -1);
+            try (OutputStream out = exchange.getResponseBody()) {
+                if (ifNoneMatch == null) out.write(body);
+            }
+        });
+        assertEquals("<html>fresh</html>", text(transport.get(url("/etag"), null)));
+        assertEquals(3, served.get());
+    }
+}
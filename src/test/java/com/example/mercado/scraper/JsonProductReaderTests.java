@@ -0,0 +1,128 @@
+package com.example.mercado.scraper;
+
+import com.example.mercado.dto.ProductsDto;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonProductReaderTests {
+
+    private static byte[] json(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void streamsToTheItemsAndMapsEachByPointer() throws IOException {
+        String body = """
+                {"facets": {"brands": [{"name": "x", "items": [1, 2]}]},
+                 "data": {"count": 3, "items": [
+                   {"name": "Leche Entera 1 l", "price": 8900, "images": [{"src": "/img/1.jpg"}]},
+                   {"name": "Leche Descremada 1 l", "price": "Gs. 9.200", "images": []},
+                   {"name": "Sin precio", "price": null}
+                 ]}}""";
+        List<JsonProductReader.Item> items = JsonProductReader.read(json(body),
+                JsonProductReader.Fields.of("/data/items", "/name", "/price", "/images/0/src"));
+
+        assertEquals(List.of(
+                new JsonProductReader.Item("Leche Entera 1 l", 8900, "/img/1.jpg"),
+                new JsonProductReader.Item("Leche Descremada 1 l", 9200, "")), items);
+    }
+
+    @Test
+    void rootArrayAndEmptyResultsAreFine() throws IOException {
+        JsonProductReader.Fields woo = FarmaTotallScraper.API_FIELDS;
+        List<JsonProductReader.Item> items = JsonProductReader.read(
+                json("[{\"name\": \"Ibuprofeno 400 mg\", \"prices\": {\"price\": \"15500\"}}]"), woo);
+        assertEquals(List.of(new JsonProductReader.Item("Ibuprofeno 400 mg", 15500, "")), items);
+        assertEquals(List.of(), JsonProductReader.read(json("[]"), woo));
+    }
+
+    @Test
+    void wooCommercePricesAreScaledByTheirMinorUnit() throws IOException {
+        JsonProductReader.Fields woo = FarmaTotallScraper.API_FIELDS;
+        String body = """
+                [{"name": "Ibuprofeno 400 mg", "prices": {"price": "1550000", "currency_minor_unit": 2}},
+                 {"name": "Paracetamol 500 mg", "prices": {"price": "9800", "currency_minor_unit": 0}}]""";
+        assertEquals(List.of(
+                new JsonProductReader.Item("Ibuprofeno 400 mg", 15500, ""),
+                new JsonProductReader.Item("Paracetamol 500 mg", 9800, "")), JsonProductReader.read(json(body), woo));
+        assertThrows(JsonProductReader.ContractException.class, () -> JsonProductReader.read(
+                json("[{\"name\": \"x\", \"prices\": {\"price\": \"1\", \"currency_minor_unit\": \"two\"}}]"), woo));
+    }
+
+    @Test
+    void changedShapeIsAContractBreak() {
+        JsonProductReader.Fields fields = BiggiesScraper.API_FIELDS;
+        assertThrows(JsonProductReader.ContractException.class,
+                () -> JsonProductReader.read(json("{\"results\": []}"), fields));
+        assertThrows(JsonProductReader.ContractException.class,
+                () -> JsonProductReader.read(json("{\"items\": {\"name\": \"x\"}}"), fields));
+        assertThrows(JsonProductReader.ContractException.class,
+                () -> JsonProductReader.read(json("{\"items\": [{\"title\": \"x\", \"amount\": 1}]}"), fields));
+        assertThrows(IOException.class, () -> JsonProductReader.read(json("<html></html>"), fields));
+    }
+
+    @Test
+    void scraperUsesTheApiAndFallsBackToThePageOnlyWhenItBreaks() throws Exception {
+        AtomicInteger apiCalls = new AtomicInteger();
+        byte[] page = Fixtures.load("biggies");
+        byte[][] api = {json("{\"items\": [{\"name\": \"Leche &amp; Cacao\", \"price\": 7500,"
+                + " \"images\": [{\"src\": \"https://cdn.test/l.jpg\"}]}], \"count\": 1}")};
+        BiggiesScraper scraper = new BiggiesScraper(null);
+        scraper.setTransport(new HttpTransport(1000, Integer.MAX_VALUE, null, 0) {
+            @Override
+            public Response get(String url, SSLContext sslContext) {
+                if (!url.contains("/api/")) return new Response(URI.create(url), 200, page, "UTF-8");
+                apiCalls.incrementAndGet();
+                return new Response(URI.create(url), 200, api[0], "UTF-8");
+            }
+        });
+
+        List<ProductsDto> products = scraper.scrape("leche");
+        assertEquals(1, products.size());
+        assertEquals("Leche & Cacao", products.get(0).getName());
+        assertEquals(7500L, products.get(0).getPrice());
+        assertEquals("https://cdn.test/l.jpg", products.get(0).getImage());
+        assertEquals("biggie.com.py", products.get(0).getOrigin());
+
+        // The API changes shape: the page is scraped, and the API is not asked again for a while
+        api[0] = json("{\"data\": []}");
+        assertEquals(Fixtures.PRODUCTS_PER_PAGE, scraper.scrape("leche").size());
+        assertEquals(Fixtures.PRODUCTS_PER_PAGE, scraper.scrape("leche").size());
+        assertEquals(2, apiCalls.get());
+        assertTrue(BaseJsonApiScraper.API_RETRY_MS >= 60_000);
+    }
+
+    @Test
+    void unreachableApiHostFallsBackToThePage() throws Exception {
+        AtomicInteger fallbacks = new AtomicInteger();
+        BaseJsonApiScraper store = new BaseJsonApiScraper() {
+            @Override
+            public List<ProductsDto> scrape(String encodedQuery) throws Exception {
+                return scrapeApi("https://api.mercado-test.invalid/search?q=" + encodedQuery, BiggiesScraper.API_FIELDS,
+                        "https://mercado-test.invalid", "/search?q=", () -> {
+                            fallbacks.incrementAndGet();
+                            return List.of(ProductsDto.builder().name("Leche").price(1L).build());
+                        });
+            }
+        };
+        store.setTransport(new HttpTransport(2_000, 1_000, null, 0));
+
+        assertEquals(1, store.scrape("leche").size());
+        assertEquals(1, fallbacks.get());
+        assertTrue(BaseJsonApiScraper.unreachable(new IOException("wrapped", new ConnectException())));
+        assertFalse(BaseJsonApiScraper.unreachable(new HttpTimeoutException("slow")));
+    }
+}
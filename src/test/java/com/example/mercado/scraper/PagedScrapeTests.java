@@ -0,0 +1,137 @@
+package com.example.mercado.scraper;
+
+import com.example.mercado.dto.ProductsDto;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PagedScrapeTests {
+
+    // A store whose page n is whatever the function says; records the pages asked for
+    private static final class PagedStore extends BaseJsoupScraper {
+        final List<Integer> requested = Collections.synchronizedList(new ArrayList<>());
+        final IntFunction<List<ProductsDto>> pages;
+
+        PagedStore(int maxPages, int enough, IntFunction<List<ProductsDto>> pages) {
+            this(maxPages, enough, 600_000, pages);
+        }
+
+        PagedStore(int maxPages, int enough, long recheckMs, IntFunction<List<ProductsDto>> pages) {
+            this.pages = pages;
+            setPaging(maxPages, enough, recheckMs);
+        }
+
+        @Override
+        public List<ProductsDto> scrape(String encodedQuery) throws Exception {
+            return scrapePages(encodedQuery);
+        }
+
+        @Override
+        public List<ProductsDto> scrapePage(String encodedQuery, int page) throws Exception {
+            requested.add(page);
+            List<ProductsDto> products = pages.apply(page);
+            if (products == null) throw new IOException("page " + page + " failed");
+            return products;
+        }
+    }
+
+    private static List<ProductsDto> page(int page, int size, String name) {
+        List<ProductsDto> out = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            out.add(ProductsDto.builder().name(name + " " + page + "-" + i).price(1_000L + i).build());
+        }
+        return out;
+    }
+
+    @Test
+    void readsPagesInOrderUntilAShortOne() throws Exception {
+        PagedStore store = new PagedStore(5, 1_000, p -> page(p, p < 3 ? 10 : p == 3 ? 4 : 10, "Leche"));
+        List<ProductsDto> products = store.scrape("leche");
+
+        assertEquals(24, products.size());
+        assertEquals("Leche 1-0", products.get(0).getName());
+        assertEquals("Leche 3-3", products.get(23).getName());
+    }
+
+    @Test
+    void stopsOnceEnoughMatchingProductsAreInAndCancelsTheRest() throws Exception {
+        CountDownLatch never = new CountDownLatch(1);
+        PagedStore store = new PagedStore(4, 15, p -> {
+            if (p == 4) {
+                try {
+                    never.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return page(p, 10, "Leche Entera");
+        });
+        long start = System.nanoTime();
+        assertEquals(20, store.scrape("leche%20entera").size());
+        assertTrue((System.nanoTime() - start) / 1_000_000 < 1_000, "did not wait for page 4");
+    }
+
+    @Test
+    void stopsAfterAPageWithNothingMatchingTheQuery() throws Exception {
+        Map<Integer, String> names = Map.of(1, "Leche", 2, "Yogur", 3, "Leche");
+        PagedStore store = new PagedStore(3, 1_000, p -> page(p, 10, names.get(p)));
+        assertEquals(20, store.scrape("l%C3%A9che").size());
+    }
+
+    @Test
+    void keepsThePagesReadBeforeOneFails() throws Exception {
+        PagedStore store = new PagedStore(3, 1_000, p -> p == 2 ? null : page(p, 10, "Leche"));
+        assertEquals(10, store.scrape("leche").size());
+    }
+
+    @Test
+    void dropsProductsAnEarlierPageListedAndStopsWhenAPageAddsNothing() throws Exception {
+        // Page 2 overlaps page 1 by three products; from page 3 on the store clamps to page 2
+        PagedStore store = new PagedStore(5, 1_000, p -> {
+            if (p == 1) return page(1, 10, "Leche");
+            List<ProductsDto> second = new ArrayList<>(page(1, 10, "Leche").subList(7, 10));
+            second.addAll(page(2, 7, "Leche"));
+            return second;
+        });
+        List<ProductsDto> products = store.scrape("leche");
+
+        assertEquals(17, products.size());
+        assertEquals(17, products.stream().map(ProductsDto::getName).distinct().count());
+        assertEquals("Leche 2-6", products.get(16).getName());
+    }
+
+    @Test
+    void storeThatIgnoresThePageParameterIsReadForOnePageUntilTheRecheck() throws Exception {
+        PagedStore store = new PagedStore(3, 1_000, 100, p -> page(1, 10, "Leche"));
+        assertEquals(10, store.scrape("leche").size());
+
+        store.requested.clear();
+        assertEquals(10, store.scrape("leche").size());
+        assertEquals(List.of(1), store.requested);
+
+        Thread.sleep(150);
+        store.requested.clear();
+        store.scrape("leche");
+        assertTrue(store.requested.contains(2), "paging probed again");
+    }
+
+    @Test
+    void relevanceMatchesWordPrefixesLikeTheSearchFilter() {
+        Predicate<ProductsDto> sal = BaseJsoupScraper.relevance("sal%20F%C3%ADna");
+        assertTrue(sal.test(ProductsDto.builder().name("Sal Fina Yodada 1 kg").build()));
+        assertFalse(sal.test(ProductsDto.builder().name("Ensalada fina").build()), "inside a word is not a match");
+        assertFalse(sal.test(ProductsDto.builder().build()));
+        assertTrue(BaseJsoupScraper.relevance("%20").test(ProductsDto.builder().name("Leche").build()));
+    }
+}
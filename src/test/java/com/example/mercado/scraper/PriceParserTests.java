@@ -0,0 +1,40 @@
+package com.example.mercado.scraper;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PriceParserTests {
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "Gs. 12.500                          | 12500",
+            "₲. 8.950                            | 8950",
+            "₲8.950                              | 8950",
+            "12.500 Gs.                          | 12500",
+            "Gs. 1.250.000                       | 1250000",
+            "12,500                              | 12500",
+            "Gs. 12.500,50                       | 12500",
+            "12.5                                | 12",
+            "PYG 3900                            | 3900",
+            "Antes Gs. 15.000 Ahora Gs. 12.500   | 12500",
+            "15.000 12.500                       | 12500",
+            "-20% Gs. 9.900                      | 9900",
+            "2 x Gs. 10.000                      | 10000",
+            "Gs. 12.500 (Gs. 25.000 x kg)        | 12500",
+            "Gs. 0                               | 0",
+            "Consultar precio                    | 0",
+            "Gs. 12.500.                         | 12500",
+            "''                                  | 0",
+    })
+    void parsesStorePriceFormats(String text, long expected) {
+        assertEquals(expected, PriceParser.parse(text));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"Gs. 12.500", "12.500 Gs."})
+    void acceptsNonBreakingSpaces(String text) {
+        assertEquals(12500, PriceParser.parse(text.replace(' ', '\u00A0')));
+    }
+}
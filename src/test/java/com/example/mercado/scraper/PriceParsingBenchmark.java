@@ -0,0 +1,56 @@
+package com.example.mercado.scraper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@link PriceParser} against the regex-based parsePrice it replaced, over the price formats the stores print.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PriceParsingBenchmark {
+
+    static final String[] PRICES = {
+            "Gs. 12.500", "₲. 8.950", "12.500 Gs.", "Gs. 1.250.000", "₲ 3.900",
+            "Gs. 12.500,00", "Antes Gs. 15.000 Ahora Gs. 12.500", "9900", "Gs. 0", "Consultar precio"
+    };
+
+    @Benchmark
+    public void priceParser(Blackhole bh) {
+        for (String raw : PRICES) bh.consume(PriceParser.parse(raw));
+    }
+
+    @Benchmark
+    public void regexBaseline(Blackhole bh) {
+        for (String raw : PRICES) bh.consume(regexParsePrice(raw));
+    }
+
+    // BaseJsoupScraper.parsePrice before PriceParser, kept as the baseline
+    private static long regexParsePrice(String raw) {
+        if (raw == null) return 0L;
+        String cleaned = raw.replace(".", "").replace(",", "");
+        Matcher m = Pattern.compile("(\\d+)").matcher(cleaned);
+        if (m.find()) {
+            try {
+                return Long.parseLong(m.group(1));
+            } catch (NumberFormatException ignored) { }
+        }
+        return 0L;
+    }
+}
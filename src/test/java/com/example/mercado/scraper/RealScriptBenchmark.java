@@ -0,0 +1,73 @@
+package com.example.mercado.scraper;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Real's embedded product JSON: the streaming reader over the raw page against the previous approach,
+ * four replace() copies of every script followed by the {@code TRIPLET} regex. The baseline gets its
+ * scripts handed over already extracted, so it is measured without the DOM parse it used to need.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RealScriptBenchmark {
+
+    // RealScraper's pattern before EmbeddedProductReader
+    private static final Pattern TRIPLET = Pattern.compile(
+        "(?s)\\{\\s*\"product\"\\s*:\\s*\\{\\s*\"name\"\\s*:\\s*\"([^\"]+)\"\\s*,\\s*\"price\"\\s*:\\s*(\\d+)\\s*,\\s*\"photosUrl\"\\s*:\\s*\\[\\s*\"([^\"]+)\""
+    );
+
+    private String html;
+    private List<String> scripts;
+
+    @Setup
+    public void setUp() throws IOException {
+        html = new String(Fixtures.load("real"), StandardCharsets.UTF_8);
+        Document doc = HttpTransport.parse(Fixtures.page("real"));
+        scripts = new ArrayList<>();
+        for (Element script : doc.select("script")) scripts.add(script.data());
+    }
+
+    @Benchmark
+    public int embeddedJsonReader() {
+        return EmbeddedProductReader.read(html).size();
+    }
+
+    @Benchmark
+    public int tripletRegex() {
+        int found = 0;
+        for (String raw : scripts) {
+            if (raw.isEmpty()) continue;
+            String normalized = raw
+                .replace("\\u0022", "\"")
+                .replace("\\x22", "\"")
+                .replace("\\/", "/")
+                .replace("\\\"", "\"");
+            Matcher m = TRIPLET.matcher(normalized);
+            while (m.find()) found++;
+        }
+        return found;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.mercado.scraper;
+
+import com.example.mercado.dto.ProductsDto;
+import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLContext;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RenderModeRouterTests {
+
+    private static final String STORE = "store";
+
+    @Test
+    void settlesOnRenderedAndProbesAgainAfterTheRecheckInterval() throws InterruptedException {
+        RenderModeRouter router = new RenderModeRouter(10, 3, 0.9, 50);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(RenderModeRouter.Mode.STATIC_THEN_RENDERED, router.route(STORE));
+            router.renderedOnly(STORE);
+        }
+        assertEquals(RenderModeRouter.Mode.RENDERED, router.route(STORE));
+        assertEquals(RenderModeRouter.Mode.RENDERED, router.route(STORE));
+
+        Thread.sleep(60);
+        assertEquals(RenderModeRouter.Mode.STATIC_THEN_RENDERED, router.route(STORE), "one probe");
+        assertEquals(RenderModeRouter.Mode.RENDERED, router.route(STORE));
+    }
+
+    @Test
+    void staticStoreIsProbedRightAfterAnEmptyPageAndFlipsWhenItStopsServingCards() {
+        RenderModeRouter router = new RenderModeRouter(4, 3, 0.8, 600_000);
+        for (int i = 0; i < 4; i++) router.staticFound(STORE);
+        assertEquals(RenderModeRouter.Mode.STATIC, router.route(STORE));
+
+        router.staticEmpty(STORE);
+        assertEquals(RenderModeRouter.Mode.STATIC_THEN_RENDERED, router.route(STORE));
+        router.renderedOnly(STORE);
+        assertEquals(RenderModeRouter.Mode.STATIC_THEN_RENDERED, router.route(STORE), "3 of 4 is no longer static");
+        router.renderedOnly(STORE);
+        router.renderedOnly(STORE);
+        router.renderedOnly(STORE);
+        assertEquals(RenderModeRouter.Mode.RENDERED, router.route(STORE));
+
+        RenderModeRouter.StoreMode status = router.status().get(0);
+        assertEquals(0, status.staticFound());
+        assertEquals(4, status.renderedOnly());
+    }
+
+    @Test
+    void jsOnlyStoreStopsFetchingTheStaticPage() throws Exception {
+        AtomicInteger staticFetches = new AtomicInteger();
+        AtomicInteger renders = new AtomicInteger();
+        byte[] shell = "<html><body><div id=app></div></body></html>".getBytes(StandardCharsets.UTF_8);
+        Document rendered = HttpTransport.parse(Fixtures.page("farmaciacatedral"));
+
+        FarmaciaCatedralScraper scraper = new FarmaciaCatedralScraper(new SeleniumPageFetcher(1, 1, 1, 1, "lean", List.of()) {
+            @Override
+            Rendered render(String url, String cssToWaitFor, int timeoutSeconds) {
+                renders.incrementAndGet();
+                return new Rendered(rendered, 1_000, 3);
+            }
+        });
+        scraper.setTransport(new HttpTransport(1000, Integer.MAX_VALUE, null, 0) {
+            @Override
+            public Response get(String url, SSLContext sslContext) {
+                staticFetches.incrementAndGet();
+                return new Response(URI.create(url), 200, shell, "UTF-8");
+            }
+        });
+        scraper.setRouter(new RenderModeRouter(10, 3, 0.9, 600_000));
+
+        for (int i = 0; i < 5; i++) {
+            List<ProductsDto> products = scraper.scrape("leche");
+            assertEquals(Fixtures.PRODUCTS_PER_PAGE, products.size());
+        }
+        assertEquals(3, staticFetches.get(), "learned after three probes");
+        assertEquals(5, renders.get());
+    }
+}
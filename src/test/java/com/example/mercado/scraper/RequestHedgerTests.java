@@ -0,0 +1,97 @@
+package com.example.mercado.scraper;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestHedgerTests {
+
+    private static final String URL = "https://store.com.py/search?q=leche";
+
+    // Hedge after 5 timed fetches, earning a full hedge per fetch
+    private final RequestHedger hedger = new RequestHedger(true, 1.0, 5, 0);
+
+    @AfterEach
+    void tearDown() {
+        hedger.shutdown();
+    }
+
+    private void warmUp(long latencyMs) throws Exception {
+        for (int i = 0; i < 5; i++) {
+            hedger.call(URL, () -> {
+                Thread.sleep(latencyMs);
+                return "ok";
+            });
+        }
+    }
+
+    @Test
+    void slowFetchIsRacedAgainstACopyThatWins() throws Exception {
+        warmUp(20);
+        AtomicInteger attempts = new AtomicInteger();
+        long start = System.nanoTime();
+        String result = hedger.call(URL, () -> {
+            // The first attempt stalls, the copy answers at normal speed
+            Thread.sleep(attempts.getAndIncrement() == 0 ? 5_000 : 20);
+            return "attempt " + attempts.get();
+        });
+        long ms = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals("attempt 2", result);
+        assertTrue(ms < 1_000, "hedge answered in " + ms + " ms");
+        RequestHedger.HostStats stats = hedger.stats().get(0);
+        assertEquals("store.com.py", stats.host());
+        assertEquals(6, stats.requests());
+        assertEquals(1, stats.hedged());
+        assertEquals(1, stats.hedgeWins());
+        assertEquals(1.0, stats.winRate());
+    }
+
+    @Test
+    void hedgesNeverOutrunTheBudget() throws Exception {
+        RequestHedger stingy = new RequestHedger(true, 0.25, 1, 0);
+        try {
+            stingy.call(URL, () -> "warm");
+            // Each fetch is 20 ms slower than any before it, so it always outlasts the p95 and wants a hedge
+            for (int i = 0; i < 8; i++) {
+                long sleepMs = 20 + 20L * i;
+                stingy.call(URL, () -> {
+                    Thread.sleep(sleepMs);
+                    return "ok";
+                });
+            }
+            RequestHedger.HostStats stats = stingy.stats().get(0);
+            // 9 fetches earn 2.25 hedges
+            assertEquals(2, stats.hedged());
+            assertEquals(2.0 / 9, stats.hedgeRate(), 1e-9);
+        } finally {
+            stingy.shutdown();
+        }
+    }
+
+    @Test
+    void aFailedAttemptFallsBackToTheOtherOne() throws Exception {
+        warmUp(20);
+        AtomicInteger attempts = new AtomicInteger();
+        String result = hedger.call(URL, () -> {
+            if (attempts.getAndIncrement() == 0) {
+                Thread.sleep(200);
+                throw new IOException("connection reset");
+            }
+            Thread.sleep(400);
+            return "copy";
+        });
+        assertEquals("copy", result);
+
+        assertThrows(IOException.class, () -> hedger.call(URL, () -> {
+            Thread.sleep(100);
+            throw new IOException("down");
+        }));
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.mercado.scraper;
+
+import com.example.mercado.dto.ProductsDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Each store's scrape() over its saved page: parse, extract and build products, with no network.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScraperBenchmark {
+
+    @Param({"biggies", "casarica", "farmacenter", "farmaciacatedral", "puntofarma",
+            "real", "salemma", "stock", "superseis", "supermas"})
+    public String store;
+
+    private BaseJsoupScraper scraper;
+
+    @Setup
+    public void setUp() {
+        scraper = Fixtures.scraper(store);
+    }
+
+    @Benchmark
+    public List<ProductsDto> scrape() throws Exception {
+        return scraper.scrape("leche");
+    }
+}
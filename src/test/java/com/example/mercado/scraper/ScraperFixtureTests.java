@@ -0,0 +1,48 @@
+package com.example.mercado.scraper;
+
+import com.example.mercado.dto.ProductsDto;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScraperFixtureTests {
+
+    static Set<String> scrapedStores() {
+        return Fixtures.SCRAPERS.keySet();
+    }
+
+    static Set<String> cardStores() {
+        return Fixtures.CARDS.keySet();
+    }
+
+    @ParameterizedTest
+    @MethodSource("scrapedStores")
+    void scrapesEveryCardFromFixture(String store) throws Exception {
+        List<ProductsDto> products = Fixtures.scraper(store).scrape("leche");
+
+        assertEquals(Fixtures.PRODUCTS_PER_PAGE, products.size());
+        for (ProductsDto p : products) {
+            assertFalse(p.getName().isBlank());
+            assertTrue(p.getPrice() > 0, () -> "no price for " + p.getName());
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("cardStores")
+    void scannerMatchesDomSelect(String store) throws Exception {
+        HttpTransport.Response page = Fixtures.page(store);
+        CardSelectors cards = Fixtures.CARDS.get(store);
+
+        CardExtractor.Fields scanned = CardExtractor.scan(page, cards, el -> el.absUrl("src"));
+        CardExtractor.Fields selected = CardExtractor.select(HttpTransport.parse(page), cards, el -> el.absUrl("src"));
+
+        assertEquals(selected, scanned);
+        assertTrue(scanned.count() >= Fixtures.PRODUCTS_PER_PAGE);
+    }
+}
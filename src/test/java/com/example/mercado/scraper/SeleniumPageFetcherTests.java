@@ -0,0 +1,33 @@
+package com.example.mercado.scraper;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SeleniumPageFetcherTests {
+
+    private static final List<String> PATTERNS = SeleniumPageFetcher.blockedUrlPatterns(List.of("googletagmanager.com", " "));
+
+    // Chrome's rule for setBlockedURLs: '*' matches anything, and a pattern must cover the whole URL
+    private static boolean blocked(String url) {
+        return PATTERNS.stream().anyMatch(p -> Pattern.matches(
+                ("\\Q" + p + "\\E").replace("*", "\\E.*\\Q"), url));
+    }
+
+    @Test
+    void blocksVersionedAssetsAndBlockedHostsButNotThePageOrItsApi() {
+        assertTrue(blocked("https://store.test/wp-content/themes/shop/style.css"));
+        assertTrue(blocked("https://store.test/wp-content/themes/shop/style.css?ver=6.4"));
+        assertTrue(blocked("https://store.test/fonts/icons.woff2?v=3"));
+        assertTrue(blocked("https://store.test/uploads/leche.jpg?resize=300%2C300"));
+        assertTrue(blocked("https://www.googletagmanager.com/gtm.js?id=GTM-1"));
+
+        assertFalse(blocked("https://store.test/?s=leche&post_type=product"));
+        assertFalse(blocked("https://store.test/wp-content/plugins/woo/app.js?ver=6.4"));
+        assertFalse(blocked("https://store.test/wp-json/wc/store/v1/products?search=css"));
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.mercado.service;
+
+import com.example.mercado.dto.ProductsDto;
+import com.example.mercado.scraper.ProductScraper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogCrawlerTests {
+
+    private static final class CountingScraper implements ProductScraper {
+        final String name;
+        final AtomicInteger calls = new AtomicInteger();
+
+        CountingScraper(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public List<ProductsDto> scrape(String encodedQuery) {
+            calls.incrementAndGet();
+            return List.of(ProductsDto.builder().name("Leche Entera").price(5_000L).origin(name + ".com.py").build());
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+    }
+
+    private final CountingScraper fast = new CountingScraper("fast");
+    private final CountingScraper slow = new CountingScraper("slow");
+    private final MockEnvironment env = new MockEnvironment()
+            .withProperty("mercado.crawler.max-scrapes-per-minute.slow", "1");
+    private final QueryPopularity popularity = new QueryPopularity(3_600_000, 100);
+    // Store results live 2 s, inside the 60 s refresh-ahead window, so every crawl finds them due
+    private final SearchService service = TestSearchService.with(fast, slow)
+            .storeCache(new StoreResultCache(env, 2_000, 2_000, 2_000, 100))
+            .catalog(new CatalogIndex(2_000, 60_000, 1_000))
+            .popularity(popularity)
+            .cache(2_000, 0)
+            .build();
+
+    // Queries searched about twice are popular; "fast" may be crawled every millisecond
+    private CatalogCrawler crawler() {
+        return new CatalogCrawler(service, popularity, env, true, 10, 1.5, 60_000, 0, 60_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void popularityDecaysAndRanksQueries() throws InterruptedException {
+        QueryPopularity fading = new QueryPopularity(1, 10);
+        fading.record("Leche");
+        Thread.sleep(20);
+        assertTrue(fading.top(10, 0.01).isEmpty());
+
+        QueryPopularity steady = new QueryPopularity(3_600_000, 10);
+        steady.record("arroz");
+        steady.record("leche");
+        steady.record("LÉCHE");
+        steady.record("  ");
+        assertEquals(List.of("LÉCHE", "arroz"), steady.top(10, 0).stream().map(QueryPopularity.Popular::rawQuery).toList());
+        assertEquals(List.of("LÉCHE"), steady.top(10, 1.5).stream().map(QueryPopularity.Popular::rawQuery).toList());
+        assertEquals(2, steady.tracked());
+    }
+
+    @Test
+    void warmsPopularQueriesSoUsersHitTheCache() {
+        service.search("leche");
+        service.search("leche");
+        assertEquals(1, fast.calls.get());
+
+        crawler().crawl().join();
+
+        assertEquals(2, fast.calls.get());
+        assertEquals(2, slow.calls.get());
+        long hits = service.cacheStats().hits();
+        assertEquals(2, service.search("Leche").getProducts().size());
+        assertEquals(hits + 1, service.cacheStats().hits());
+        assertEquals(2, fast.calls.get());
+    }
+
+    @Test
+    void aHungStoreIsCutOffAtItsOwnTimeout() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        ProductScraper hung = new ProductScraper() {
+            @Override
+            public List<ProductsDto> scrape(String encodedQuery) throws InterruptedException {
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException ex) {
+                    interrupted.countDown();
+                    throw ex;
+                }
+                return List.of();
+            }
+
+            @Override
+            public String name() {
+                return "hung";
+            }
+        };
+        // No latency samples yet, so the store's timeout is the 200 ms maximum; the search deadline is 5 s
+        SearchService withHung = TestSearchService.with(hung)
+                .breakers(new StoreCircuitBreakers(10, 60_000, 4, 0.5, 3, 60_000, 60_000, 100, 200, 2.0))
+                .build();
+        try {
+            long start = System.currentTimeMillis();
+            assertFalse(withHung.refreshStore("hung", "leche"));
+            assertTrue(System.currentTimeMillis() - start < 2_000);
+            assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        } finally {
+            withHung.shutdown();
+        }
+    }
+
+    @Test
+    void respectsPerStoreRateAndIgnoresRareQueries() throws InterruptedException {
+        service.search("arroz");
+        service.search("leche");
+        service.search("leche");
+        CatalogCrawler crawler = crawler();
+
+        crawler.crawl().join();
+        Thread.sleep(5);
+        crawler.crawl().join();
+
+        // "slow" allows one scrape a minute; "arroz" was searched once and is never crawled
+        assertEquals(3, slow.calls.get());
+        assertEquals(4, fast.calls.get());
+        assertEquals(1, crawler.stats().rateLimited());
+    }
+}
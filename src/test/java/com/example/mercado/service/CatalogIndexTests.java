@@ -0,0 +1,98 @@
+package com.example.mercado.service;
+
+import com.example.mercado.dto.ProductsDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogIndexTests {
+
+    private static ProductsDto product(String origin, String name, long price) {
+        return ProductsDto.builder().name(name).price(price).origin(origin).build();
+    }
+
+    private static List<String> names(List<ProductsDto> products) {
+        return products.stream().map(ProductsDto::getName).toList();
+    }
+
+    @Test
+    void foldsAccentsCaseAndSplitsDigitsFromLetters() {
+        assertArrayEquals(new String[]{"azucar", "blanca", "1", "kg"}, ProductQuery.tokens("AZÚCAR  Blanca-1kg"));
+        assertArrayEquals(new String[]{"pina", "en", "almibar"}, ProductQuery.tokens("Piña en almíbar"));
+        assertEquals(ProductQuery.parse("leche Entera").key(), ProductQuery.parse("  entera LECHE ").key());
+    }
+
+    @Test
+    void queryMatchesEveryWordAsAPrefixInAnyOrder() {
+        ProductQuery query = ProductQuery.parse("azucar ent");
+
+        assertTrue(query.matches("Azúcar Entera"));
+        assertTrue(query.matches("Entrefino azúcar"));
+        assertFalse(query.matches("Azúcar Blanca"));
+        assertFalse(ProductQuery.parse("car").matches("Azúcar"));
+        assertFalse(ProductQuery.parse("%%").matches("%% off"));
+    }
+
+    @Test
+    void rankingPrefersExactThenPrefixThenFuzzyAndToleratesTypos() {
+        CatalogIndex catalog = new CatalogIndex(60_000, 60_000, 100);
+        catalog.add(List.of(
+                product("a.com.py", "Azucarera Sin TACC", 9_000),
+                product("a.com.py", "Azúcar Blanca 1kg", 7_000),
+                product("b.com.py", "Azucar blanca 1 KG", 6_500),
+                product("b.com.py", "Leche Entera", 5_000)));
+
+        List<CatalogIndex.Hit> hits = catalog.search(ProductQuery.parse("azucar"), 10);
+        assertEquals(List.of("Azucar blanca 1 KG", "Azúcar Blanca 1kg", "Azucarera Sin TACC"),
+                hits.stream().map(h -> h.product().getName()).toList());
+        assertTrue(hits.get(1).score() > hits.get(2).score());
+
+        assertEquals(List.of("Azucar blanca 1 KG", "Azúcar Blanca 1kg"),
+                catalog.search(ProductQuery.parse("azucr blanca"), 10).stream().map(h -> h.product().getName()).toList());
+        assertEquals(1, catalog.search(ProductQuery.parse("azucar"), 1).size());
+        assertTrue(catalog.search(ProductQuery.parse("arroz"), 10).isEmpty());
+    }
+
+    @Test
+    void answersOnlyQueriesEveryStoreWasAskedAndKeepsTheLatestPrice() {
+        CatalogIndex catalog = new CatalogIndex(60_000, 60_000, 100);
+        catalog.add(List.of(product("a.com.py", "Leche Entera", 5_000), product("a.com.py", "Yogur", 4_000)));
+        assertNull(catalog.answer(ProductQuery.parse("leche")));
+
+        catalog.add(List.of(product("a.com.py", "LECHE entera", 4_800), product("b.com.py", "Leche Descremada", 5_200)));
+        catalog.markCovered(ProductQuery.parse("Leche"), 30_000);
+
+        CatalogIndex.Answer answer = catalog.answer(ProductQuery.parse("LÉCHE"));
+        assertNotNull(answer);
+        assertEquals(List.of("LECHE entera", "Leche Descremada"), names(answer.products()));
+        assertTrue(answer.remainingMs() <= 30_000);
+        assertEquals(2, catalog.answer(ProductQuery.parse("leche")).products().size());
+        assertNull(catalog.answer(ProductQuery.parse("leche entera")));
+        assertEquals(3, catalog.stats().products());
+    }
+
+    @Test
+    void dropsLeastRecentlySeenProductsOverTheLimit() throws InterruptedException {
+        CatalogIndex catalog = new CatalogIndex(60_000, 60_000, 2);
+        catalog.add(List.of(product("a.com.py", "Arroz", 1)));
+        Thread.sleep(2);
+        catalog.add(List.of(product("a.com.py", "Fideos", 2), product("a.com.py", "Aceite", 3)));
+
+        assertTrue(catalog.search(ProductQuery.parse("arroz"), 10).isEmpty());
+        assertEquals(1, catalog.search(ProductQuery.parse("fideos"), 10).size());
+        assertEquals(2, catalog.stats().products());
+        assertEquals(1, catalog.stats().evicted());
+
+        // Ids are renumbered once most of them are gone; lookups still work afterwards
+        catalog.add(List.of(product("b.com.py", "Arroz", 1), product("b.com.py", "Sal", 1)));
+        assertEquals(1, catalog.search(ProductQuery.parse("sal"), 10).size());
+        assertEquals(2, catalog.stats().products());
+    }
+}
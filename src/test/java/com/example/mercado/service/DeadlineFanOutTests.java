@@ -0,0 +1,71 @@
+package com.example.mercado.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeadlineFanOutTests {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final DeadlineFanOut fanOut = new DeadlineFanOut(executor);
+
+    @AfterEach
+    void close() {
+        fanOut.close();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void answersInTimeAreKept() throws Exception {
+        CompletableFuture<String> result = fanOut.submit(() -> "store", System.currentTimeMillis() + 5_000, () -> "fallback");
+        assertEquals("store", result.get(5, TimeUnit.SECONDS));
+        assertEquals(0, fanOut.cutOffCount());
+    }
+
+    @Test
+    void aLateTaskGetsItsFallbackAndIsInterrupted() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        long start = System.currentTimeMillis();
+        CompletableFuture<String> result = fanOut.submit(() -> {
+            try {
+                Thread.sleep(10_000);
+                return "store";
+            } catch (InterruptedException ex) {
+                interrupted.countDown();
+                throw ex;
+            }
+        }, start + 200, () -> "fallback");
+
+        assertEquals("fallback", result.get(5, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() - start < 2_000);
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertEquals(1, fanOut.cutOffCount());
+        for (int i = 0; i < 50 && fanOut.running() > 0; i++) Thread.sleep(20);
+        assertEquals(0, fanOut.running());
+    }
+
+    @Test
+    void aFailureBeforeTheDeadlineIsNotReplacedByTheFallback() throws Exception {
+        CompletableFuture<String> result = fanOut.submit(() -> {
+            throw new IOException("store down");
+        }, System.currentTimeMillis() + 200, () -> "fallback");
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, ex.getCause());
+        Thread.sleep(400);
+        assertEquals(0, fanOut.cutOffCount());
+        assertEquals(1, fanOut.submittedCount());
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.mercado.service;
+
+import com.example.mercado.dto.ProductsDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PriceHistoryTests {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long T0 = 1_700_000_000_000L;
+
+    @TempDir
+    Path dir;
+
+    private PriceHistory open() {
+        return new PriceHistory(dir.toString(), 0, HOUR, 30);
+    }
+
+    private static List<ProductsDto> leche(long price) {
+        return List.of(ProductsDto.builder().name("Leche Entera 1L").price(price).origin("a.com.py").url("https://a.com.py/leche").build());
+    }
+
+    private static List<Long> prices(PriceHistory history) {
+        return history.history("a.com.py", "LECHE entera 1 l").orElseThrow().points().stream()
+                .map(PriceHistory.Point::price).toList();
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void keepsPricesAcrossRestartsAndSkipsUnchangedRepeats() {
+        PriceHistory history = open();
+        history.record(leche(5_000), T0);
+        history.record(leche(5_000), T0 + HOUR / 2);
+        history.record(leche(4_500), T0 + HOUR);
+        history.record(leche(4_500), T0 + 3 * HOUR);
+        history.flush();
+
+        PriceHistory reopened = open();
+        PriceHistory.History h = reopened.history("a.com.py", "leche ENTERA 1L").orElseThrow();
+        assertEquals(List.of(5_000L, 4_500L, 4_500L), h.points().stream().map(PriceHistory.Point::price).toList());
+        assertEquals(new PriceHistory.Point(T0 + HOUR, 4_500), h.cheapest());
+        assertEquals(T0 + 3 * HOUR, h.latest().at());
+        assertEquals("Leche Entera 1L", h.name());
+        assertTrue(reopened.history("b.com.py", "Leche Entera 1L").isEmpty());
+
+        reopened.record(leche(4_900), T0 + 4 * HOUR);
+        assertEquals(List.of(5_000L, 4_500L, 4_500L, 4_900L), prices(open()));
+    }
+
+    @Test
+    void compactionDropsRepeatsAndExpiredPricesAndOldSegments() throws IOException {
+        PriceHistory history = open();
+        for (int i = 0; i < 5; i++) history.record(leche(5_000), T0 + i * 2 * HOUR);
+        history.record(leche(6_000), T0 + 40 * DAY);
+        history.record(leche(6_000), T0 + 41 * DAY);
+        open().record(leche(5_500), T0 + 42 * DAY);
+        assertEquals(2, segmentFiles());
+
+        PriceHistory compacted = open();
+        compacted.compact(T0 + 42 * DAY);
+        assertEquals(List.of(6_000L, 6_000L, 5_500L), prices(compacted));
+        assertEquals(1, segmentFiles());
+        assertEquals(List.of(6_000L, 6_000L, 5_500L), prices(open()));
+    }
+
+    @Test
+    void compactionLeavesTheSegmentsAloneWhenNothingCanBeDropped() throws IOException {
+        PriceHistory history = open();
+        history.record(leche(5_000), T0);
+        history.record(leche(5_500), T0 + DAY);
+        history.record(leche(5_500), T0 + 2 * DAY);
+        open().record(leche(6_000), T0 + 3 * DAY);
+
+        PriceHistory idle = open();
+        idle.compact(T0 + 3 * DAY);
+        assertEquals(0, idle.stats().compactions());
+        assertEquals(3, segmentFiles());
+    }
+
+    @Test
+    void compactionKeepsWhatTheLiveSegmentHoldsAndWhatIsAppendedAfterIt() throws IOException {
+        PriceHistory history = open();
+        for (int i = 0; i < 4; i++) history.record(leche(5_000), T0 + i * 2 * HOUR);
+
+        PriceHistory live = open();
+        live.record(leche(4_000), T0 + DAY);
+        live.compact(T0 + DAY);
+        live.record(leche(4_500), T0 + 2 * DAY);
+
+        assertEquals(1, live.stats().compactions());
+        assertEquals(List.of(5_000L, 5_000L, 4_000L, 4_500L), prices(live));
+        // The rewritten segment, then the one this process appends to
+        assertEquals(2, segmentFiles());
+        assertEquals(List.of(5_000L, 5_000L, 4_000L, 4_500L), prices(open()));
+    }
+
+    @Test
+    void longNamesAreCutBetweenCharactersAndReplayUnderTheSameKey() {
+        String name = "a" + "ß".repeat(600);
+        String origin = "tienda-" + "ñ".repeat(600) + ".com.py";
+        PriceHistory history = open();
+        history.record(List.of(ProductsDto.builder().name(name).price(7_000L).origin(origin).build()), T0);
+        history.flush();
+
+        assertEquals(1, open().history(origin, name).orElseThrow().points().size());
+        String clipped = PriceHistory.clip(name);
+        assertEquals(1023, clipped.getBytes(StandardCharsets.UTF_8).length);
+        assertTrue(name.startsWith(clipped));
+    }
+
+    @Test
+    void rollsOverFullSegmentsAndStopsAtADamagedRecord() throws IOException {
+        PriceHistory history = new PriceHistory(dir.toString(), 0, 0, 30);
+        // ~10 bytes per price, so a 64 KiB segment fills up after a few thousand
+        for (int i = 0; i < 10_000; i++) history.record(leche(1_000 + i % 7), T0 + i * 1_000L);
+        assertTrue(history.stats().segments() > 1);
+        assertEquals(10_000, open().stats().points());
+
+        Path first;
+        try (Stream<Path> files = Files.list(dir)) {
+            first = files.sorted().findFirst().orElseThrow();
+        }
+        byte[] bytes = Files.readAllBytes(first);
+        bytes[4] = 9;
+        Files.write(first, bytes);
+        assertTrue(open().stats().points() < 10_000);
+    }
+}
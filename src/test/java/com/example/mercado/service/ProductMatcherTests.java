@@ -0,0 +1,110 @@
+package com.example.mercado.service;
+
+import com.example.mercado.dto.ProductGroupDto;
+import com.example.mercado.dto.ProductsDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductMatcherTests {
+
+    private static ProductsDto product(String origin, String name, long price) {
+        return ProductsDto.builder().name(name).price(price).origin(origin).build();
+    }
+
+    private static ProductMatcher.Offer parse(String name) {
+        return ProductMatcher.parse(product("a.com.py", name, 1));
+    }
+
+    @Test
+    void sizesAreCanonicalWhateverTheSpelling() {
+        assertEquals("1000g", parse("Azúcar Blanca 1kg").size());
+        assertEquals("1000g", parse("Azucar blanca 1.000 GR").size());
+        assertEquals("1000g", parse("Azucar blanca x 1000 gramos").size());
+        assertEquals("900g", parse("Azucar blanca 900 g").size());
+        assertEquals("1500ml", parse("Gaseosa 1,5 L").size());
+        assertEquals("1500ml", parse("Gaseosa 1.500 cc").size());
+        assertEquals("2250g", parse("Detergente en polvo 2.250 kg").size());
+        assertEquals("1250ml", parse("Aceite 1,250 lt").size());
+        assertEquals("1000ml+6u", parse("Leche 6 x 1 lt").size());
+        assertEquals("1000ml+6u", parse("Leche 1L x6").size());
+        assertEquals("", parse("Arroz Tipo 1").size());
+        assertArrayEquals(new String[]{"azucar", "blanca"}, parse("Azúcar Blanca de 1kg").words());
+
+        assertEquals("1 kg", ProductMatcher.label("1000g"));
+        assertEquals("1.5 l + 6 u", ProductMatcher.label("1500ml+6u"));
+        assertEquals("900 g", ProductMatcher.label("900g"));
+        assertNull(ProductMatcher.label(""));
+    }
+
+    @Test
+    void groupsTheSameProductAcrossStoresWithBestPriceAndSpread() {
+        List<ProductGroupDto> groups = ProductMatcher.group(List.of(
+                product("a.com.py", "Azúcar Blanca Azucarera Paraguaya 1kg", 7_000),
+                product("b.com.py", "AZUCAR AZUCARERA PARAGUAYA BLANCA 1000 GR", 6_500),
+                product("c.com.py", "Azucar Azucarera Paraguaya 900 g", 5_900),
+                product("c.com.py", "Azucar Blanca Santa Clara 1 kg", 6_000),
+                product("d.com.py", "Azúcar blanca Azucarera Paraguaya x 1 Kg.", 7_400)));
+
+        ProductGroupDto paraguaya = groups.stream().filter(g -> g.getStores() == 3).findFirst().orElseThrow();
+        assertEquals("1 kg", paraguaya.getSize());
+        assertEquals(6_500L, paraguaya.getBestPrice());
+        assertEquals("b.com.py", paraguaya.getBestOrigin());
+        assertEquals(7_400L, paraguaya.getMaxPrice());
+        assertEquals(900L, paraguaya.getSpread());
+        assertEquals(List.of("b.com.py", "a.com.py", "d.com.py"),
+                paraguaya.getOffers().stream().map(ProductsDto::getOrigin).toList());
+        // Different size, different brand: alone
+        assertEquals(3, groups.size());
+        assertEquals(5_900L, groups.get(0).getBestPrice());
+    }
+
+    @Test
+    void brandWordsOutweighGenericOnesAndOneStoreNeverMatchesItself() {
+        List<ProductGroupDto> groups = ProductMatcher.group(List.of(
+                product("a.com.py", "Leche Entera Trebol 1 L", 6_000),
+                product("b.com.py", "Leche Entera La Lactolanda 1 L", 6_200),
+                product("c.com.py", "Leche Trebol Entera 1 L", 6_100),
+                product("a.com.py", "Leche Trebol Entera Larga Vida 1 L", 6_300)));
+
+        assertEquals(3, groups.size());
+        ProductGroupDto trebol = groups.get(0);
+        assertEquals(List.of("a.com.py", "c.com.py"), trebol.getOffers().stream().map(ProductsDto::getOrigin).toList());
+        assertEquals(2, trebol.getStores());
+    }
+
+    @Test
+    void largeResultSetsAreGroupedWithoutComparingEveryPair() {
+        List<ProductsDto> products = new ArrayList<>();
+        for (int brand = 0; brand < 2_000; brand++) {
+            for (int store = 0; store < 5; store++) {
+                products.add(product("s" + store + ".com.py", "Galletitas Dulces Marca" + brand + " 200 g", 1_000 + store * 10L));
+            }
+        }
+        long start = System.nanoTime();
+        List<ProductGroupDto> groups = ProductMatcher.group(products);
+        long ms = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(2_000, groups.size());
+        assertTrue(groups.stream().allMatch(g -> g.getStores() == 5 && g.getSpread() == 40));
+        assertTrue(ms < 5_000, "grouping 10,000 offers took " + ms + " ms");
+    }
+
+    @Test
+    void aLooserNameElsewhereNeverChainsTwoListingsOfOneStore() {
+        List<ProductGroupDto> groups = ProductMatcher.group(List.of(
+                product("a.com.py", "Galletitas Dulces Rellenas Marca Chocolate 200 g", 5_000),
+                product("a.com.py", "Galletitas Dulces Rellenas Marca Vainilla 200 g", 5_100),
+                product("b.com.py", "Galletitas Dulces Rellenas Marca 200 g", 4_900)));
+
+        assertEquals(2, groups.size());
+        assertTrue(groups.stream().allMatch(g -> g.getOffers().stream().map(ProductsDto::getOrigin).distinct().count()
+                == g.getOffers().size()));
+    }
+}
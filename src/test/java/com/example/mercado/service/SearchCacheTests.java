@@ -0,0 +1,152 @@
+package com.example.mercado.service;
+
+import com.example.mercado.dto.ProductsDto;
+import com.example.mercado.dto.SearchResultDto;
+import com.example.mercado.dto.StoreResultsDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchCacheTests {
+
+    private static SearchResultDto result(int n) {
+        List<ProductsDto> products = IntStream.range(0, n)
+                .mapToObj(i -> ProductsDto.builder().name("p" + i).price((long) i).build())
+                .toList();
+        return SearchResultDto.builder().products(products).omittedStores(List.of()).build();
+    }
+
+    private static CompletableFuture<SearchCache.Loaded> loaded(SearchResultDto result) {
+        return CompletableFuture.completedFuture(new SearchCache.Loaded(result, 60_000));
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() {
+        SearchCache cache = new SearchCache(60_000, 60_000, 100, key -> loaded(result(0)));
+        CompletableFuture<SearchCache.Loaded> pending = new CompletableFuture<>();
+        AtomicInteger loads = new AtomicInteger();
+
+        CompletableFuture<SearchResultDto> first = cache.get("arroz", "arroz", () -> { loads.incrementAndGet(); return pending; });
+        CompletableFuture<SearchResultDto> second = cache.get("arroz", "arroz", () -> { loads.incrementAndGet(); return pending; });
+        pending.complete(new SearchCache.Loaded(result(3), 60_000));
+
+        assertEquals(1, loads.get());
+        assertSame(first.join(), second.join());
+        assertEquals(1, cache.stats().coalesced());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedOnceOverWeight() {
+        SearchCache cache = new SearchCache(60_000, 60_000, 10, key -> loaded(result(0)));
+        cache.get("a", "a", () -> loaded(result(4))).join();
+        cache.get("b", "b", () -> loaded(result(4))).join();
+        cache.get("a", "a", () -> loaded(result(4))).join(); // touch "a"
+        cache.get("c", "c", () -> loaded(result(4))).join();
+
+        assertEquals(1, cache.stats().evictions());
+        assertEquals(List.of("a", "c"), cache.entryStats().stream().map(SearchCache.EntryStats::key).toList());
+    }
+
+    @Test
+    void servesStaleEntryWhileRefreshing() {
+        List<String> refreshed = new ArrayList<>();
+        SearchCache cache = new SearchCache(0, 60_000, 100, rawQuery -> {
+            refreshed.add(rawQuery);
+            return new CompletableFuture<>();
+        });
+        SearchResultDto first = result(2);
+        cache.get("entera leche", "Leche Entera", () -> loaded(first)).join();
+
+        // The refresh searches what was typed, not the folded key
+        assertSame(first, cache.get("entera leche", "leche entera", CompletableFuture::new).join());
+        assertEquals(List.of("Leche Entera"), refreshed);
+        assertEquals(1, cache.stats().staleHits());
+    }
+
+    @Test
+    void shorterLoadTtlMakesEntryStaleSooner() {
+        AtomicInteger refreshes = new AtomicInteger();
+        SearchCache cache = new SearchCache(60_000, 60_000, 100, key -> {
+            refreshes.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+        cache.get("yerba", "yerba", () -> CompletableFuture.completedFuture(new SearchCache.Loaded(result(1), 0))).join();
+        cache.get("yerba", "yerba", CompletableFuture::new).join();
+
+        assertEquals(1, refreshes.get());
+    }
+
+    @Test
+    void snapshotSurvivesARestartWithItsOriginalAge(@TempDir Path dir) throws IOException {
+        SearchCache before = new SearchCache(60_000, 60_000, 100, key -> loaded(result(0)));
+        ProductsDto tio = ProductsDto.builder().name("Arroz Tío").price(7_900L).origin("a.com.py").build();
+        SearchResultDto arroz = SearchResultDto.builder()
+                .products(List.of(tio, ProductsDto.builder().name("Arroz sin precio").build()))
+                .omittedStores(List.of("SlowScraper"))
+                .stores(List.of(
+                        StoreResultsDto.builder().store("A").products(List.of(tio)).elapsedMs(420).build(),
+                        StoreResultsDto.builder().store("SlowScraper").products(List.of()).elapsedMs(5_000).omitted(true).build()))
+                .build();
+        before.get("arroz", "Arroz", () -> loaded(arroz)).join();
+        // Already stale, but still servable, when the snapshot is taken
+        before.get("soon", "soon", () -> CompletableFuture.completedFuture(new SearchCache.Loaded(result(1), -30_000))).join();
+        Path file = dir.resolve("cache.bin");
+        SearchCacheSnapshots.write(file, before.snapshot());
+
+        long now = System.currentTimeMillis();
+        List<SearchCache.Snapshot> read = new ArrayList<>(SearchCacheSnapshots.read(file));
+        assertEquals(List.of("arroz", "soon"), read.stream().map(SearchCache.Snapshot::key).toList());
+        assertEquals("Arroz", read.get(0).rawQuery());
+        read.add(new SearchCache.Snapshot("expired", "expired", result(1), now - 200_000, 60_000, 5));
+        read.add(new SearchCache.Snapshot("stale", "stale", result(1), now - 90_000, 60_000, 5));
+        read.add(new SearchCache.Snapshot("loaded", "loaded", result(9), now, 60_000, 5));
+
+        AtomicInteger refreshes = new AtomicInteger();
+        SearchCache after = new SearchCache(60_000, 60_000, 100, key -> {
+            refreshes.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+        after.get("loaded", "loaded", () -> loaded(result(2))).join();
+        assertEquals(3, after.restore(read));
+
+        assertEquals(arroz, after.get("arroz", "arroz", CompletableFuture::new).join());
+        assertEquals(1, after.stats().hits());
+        assertEquals(1, after.get("stale", "stale", CompletableFuture::new).join().getProducts().size());
+        assertEquals(2, after.get("loaded", "loaded", CompletableFuture::new).join().getProducts().size());
+        assertEquals(1, refreshes.get());
+        assertEquals(List.of("soon", "arroz", "stale", "loaded"),
+                after.entryStats().stream().map(SearchCache.EntryStats::key).toList());
+    }
+
+    @Test
+    void damagedCountsInASnapshotAreRejectedNotAllocated(@TempDir Path dir) throws IOException {
+        SearchCache cache = new SearchCache(60_000, 60_000, 100, key -> loaded(result(0)));
+        cache.get("k", "k", () -> loaded(SearchResultDto.builder().products(List.of()).omittedStores(List.of()).build())).join();
+        Path file = dir.resolve("cache.bin");
+        SearchCacheSnapshots.write(file, cache.snapshot());
+        byte[] bytes = Files.readAllBytes(file);
+        // Header (12), key and raw query (3 each), three longs, then the omitted and product counts
+        int omittedAt = 12 + 3 + 3 + 24;
+        ByteBuffer.wrap(bytes).putInt(omittedAt + 4, Integer.MAX_VALUE);
+        Files.write(file, bytes);
+        assertTrue(assertThrows(IOException.class, () -> SearchCacheSnapshots.read(file)).getMessage().contains("out of range"));
+
+        ByteBuffer.wrap(bytes).putInt(omittedAt + 4, 0).putInt(omittedAt, -1);
+        Files.write(file, bytes);
+        assertTrue(assertThrows(IOException.class, () -> SearchCacheSnapshots.read(file)).getMessage().contains("out of range"));
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.mercado.service;
+
+import com.example.mercado.dto.ProductsDto;
+import com.example.mercado.scraper.ProductScraper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import javax.net.ssl.SSLHandshakeException;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class SearchMetricsTests {
+
+    private static ProductScraper store(String name, boolean fails) {
+        return new ProductScraper() {
+            @Override
+            public List<ProductsDto> scrape(String encodedQuery) throws Exception {
+                if (fails) throw new IOException("handshake", new SSLHandshakeException("bad cert"));
+                return List.of(ProductsDto.builder().name("Arroz 1 kg").price(9_000L).origin(name).url("u").build());
+            }
+
+            @Override
+            public String name() {
+                return name;
+            }
+        };
+    }
+
+    @Test
+    void searchIsTracedWithOneChildSpanPerStoreAndCountedByCacheOutcome() {
+        MeterRegistry meters = new SimpleMeterRegistry();
+        ObservationRegistry observations = ObservationRegistry.create();
+        SearchTraces traces = new SearchTraces(10);
+        observations.observationConfig()
+                .observationHandler(new DefaultMeterObservationHandler(meters))
+                .observationHandler(traces);
+        // The failure is cached as long as the products, so the second search is a hit
+        SearchService service = TestSearchService.with(store("ok", false), store("broken", true))
+                .storeCache(new StoreResultCache(new MockEnvironment(), 60_000, 60_000, 60_000, 100))
+                .metrics(new SearchMetrics(meters, observations))
+                .build();
+        try {
+            service.search("arroz");
+            service.search("arroz");
+
+            List<SearchTraces.Trace> recent = traces.recent();
+            assertEquals(2, recent.size());
+            assertEquals("hit", recent.get(0).tags().get("cache"));
+            SearchTraces.Trace miss = recent.get(1);
+            assertEquals("arroz", miss.query());
+            assertEquals("miss", miss.tags().get("cache"));
+            assertEquals("false", miss.tags().get("complete"));
+            assertEquals(List.of("scrape broken", "scrape ok"),
+                    miss.scrapes().stream().map(SearchTraces.Span::name).sorted().toList());
+            SearchTraces.Span ok = miss.scrapes().stream().filter(s -> s.name().equals("scrape ok")).findFirst().orElseThrow();
+            assertEquals("ok", ok.tags().get("outcome"));
+            assertEquals("1", ok.tags().get("products"));
+
+            assertEquals(1, meters.get("mercado.scrape.failures").tags("store", "broken", "type", "ssl").counter().count());
+            assertEquals(1, meters.get("mercado.cache.requests").tags("cache", "search", "result", "hit")
+                    .functionCounter().count());
+            assertEquals(0.5, meters.get("mercado.cache.hit.ratio").tags("cache", "search").gauge().value());
+            assertNotNull(meters.find("mercado.search").tags("cache", "miss").timer());
+        } finally {
+            service.shutdown();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.mercado.service;
+
+import com.example.mercado.dto.ProductsDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-search work after scraping: filter each store's products by the query, sort them by price,
+ * then merge all stores into one sorted list.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchPipelineBenchmark {
+
+    private static final int STORES = 11;
+    private static final String[] WORDS = {"Leche", "Entera", "Descremada", "Yogur", "Queso", "Trebol",
+            "Lactolanda", "Vainilla", "Frutilla", "Caja", "Sachet", "Polvo"};
+
+    @Param({"10", "1000", "100000"})
+    public int products;
+
+    private final ProductQuery query = ProductQuery.parse("leche");
+    private List<List<ProductsDto>> perStore;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        perStore = new ArrayList<>();
+        for (int s = 0; s < STORES; s++) perStore.add(new ArrayList<>());
+        for (int i = 0; i < products; i++) {
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+                    + " " + (random.nextInt(20) * 100) + " ml";
+            perStore.get(i % STORES).add(ProductsDto.builder()
+                    .name(name)
+                    .price(3_500L + random.nextInt(100_000))
+                    .origin("store" + (i % STORES) + ".com.py")
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public void filterAndSortPerStore(Blackhole bh) {
+        for (List<ProductsDto> store : perStore) bh.consume(SearchService.filterAndSort(store, query));
+    }
+
+    @Benchmark
+    public List<ProductsDto> filterSortAndMerge() {
+        List<List<ProductsDto>> filtered = new ArrayList<>(perStore.size());
+        for (List<ProductsDto> store : perStore) filtered.add(SearchService.filterAndSort(store, query));
+        return SearchService.merge(filtered);
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.mercado.service;
+
+import com.example.mercado.dto.ProductGroupDto;
+import com.example.mercado.dto.ProductsDto;
+import com.example.mercado.dto.SearchResultDto;
+import com.example.mercado.scraper.ProductScraper;
+import com.example.mercado.controller.SearchProductsController;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+class SearchServiceTests {
+
+    // Records the query it is sent
+    private static final class RecordingScraper implements ProductScraper {
+        final List<String> asked = new CopyOnWriteArrayList<>();
+        final CountDownLatch calls;
+
+        RecordingScraper(int expectedCalls) {
+            this.calls = new CountDownLatch(expectedCalls);
+        }
+
+        @Override
+        public List<ProductsDto> scrape(String encodedQuery) {
+            asked.add(encodedQuery);
+            calls.countDown();
+            return List.of(ProductsDto.builder().name("Piña en almíbar 1 l").price(12_000L).origin("store.com.py").build());
+        }
+
+        @Override
+        public String name() {
+            return "store";
+        }
+    }
+
+    // A named store with a fixed answer, or a failure when products is null
+    private static final class FixedScraper implements ProductScraper {
+        private final String name;
+        private final List<ProductsDto> products;
+
+        FixedScraper(String name, List<ProductsDto> products) {
+            this.name = name;
+            this.products = products;
+        }
+
+        @Override
+        public List<ProductsDto> scrape(String encodedQuery) throws IOException {
+            if (products == null) throw new IOException("store down");
+            return products;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+    }
+
+    // The "store" events of one streamed search, by store name, and its "done" event
+    private static Map<String, JsonNode> streamedStores(MockMvc mvc, String q, List<JsonNode> done) throws Exception {
+        MvcResult request = mvc.perform(get("/search/stream").param("q", q))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = "";
+        for (int i = 0; i < 250 && !body.contains("event:done"); i++) {
+            Thread.sleep(20);
+            body = request.getResponse().getContentAsString(StandardCharsets.UTF_8);
+        }
+        ObjectMapper json = new ObjectMapper();
+        Map<String, JsonNode> stores = new TreeMap<>();
+        String[] lines = body.split("\n");
+        for (int i = 0; i + 1 < lines.length; i++) {
+            if (lines[i].equals("event:store")) {
+                JsonNode event = json.readTree(lines[i + 1].substring("data:".length()));
+                stores.put(event.get("store").asText(), event);
+            } else if (lines[i].equals("event:done")) {
+                done.add(json.readTree(lines[i + 1].substring("data:".length())));
+            }
+        }
+        return stores;
+    }
+
+    @Test
+    void aCachedSearchStreamsTheSameStoreEventsAsItsLoad() throws Exception {
+        ProductsDto arroz = ProductsDto.builder().name("Arroz Tío 1 kg").price(7_900L).origin("www.arroz.com.py").build();
+        SearchService service = TestSearchService.with(
+                        new FixedScraper("Arroz", List.of(arroz)),
+                        new FixedScraper("Empty", List.of()),
+                        new FixedScraper("Broken", null))
+                .storeCache(new StoreResultCache(new MockEnvironment(), 60_000, 60_000, 60_000, 100))
+                .build();
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(new SearchProductsController(service)).build();
+        try {
+            List<JsonNode> done = new ArrayList<>();
+            Map<String, JsonNode> miss = streamedStores(mvc, "arroz", done);
+            Map<String, JsonNode> hit = streamedStores(mvc, "Arroz", done);
+
+            assertEquals(List.of("Arroz", "Broken", "Empty"), List.copyOf(miss.keySet()));
+            assertEquals(1, miss.get("Arroz").get("total").asInt());
+            assertTrue(miss.get("Broken").get("omitted").asBoolean());
+            assertEquals(miss, hit);
+            assertEquals(2, done.size());
+            assertEquals(done.get(0), done.get(1));
+            assertEquals(1, service.cacheStats().hits());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void staleEntryIsRefreshedWithTheQueryAsTyped() throws InterruptedException {
+        RecordingScraper store = new RecordingScraper(2);
+        // Entries go stale at once, and neither the store cache nor the catalog can answer the refresh
+        SearchService service = TestSearchService.with(store)
+                .storeCache(new StoreResultCache(new MockEnvironment(), 0, 0, 0, 100))
+                .catalog(new CatalogIndex(0, 60_000, 1_000))
+                .cache(0, 60_000)
+                .build();
+        try {
+            assertEquals(1, service.search("Piña 1 l").getProducts().size());
+            // Same key ("1 l pina"), served stale while the store is asked again
+            assertEquals(1, service.search("1L pina").getProducts().size());
+
+            assertTrue(store.calls.await(5, TimeUnit.SECONDS));
+            assertEquals(List.of("Pi%C3%B1a+1+l", "Pi%C3%B1a+1+l"), store.asked);
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void pagesAndComparisonsReadTheCachedSearchWithoutCountingIt() {
+        MeterRegistry meters = new SimpleMeterRegistry();
+        ObservationRegistry observations = ObservationRegistry.create();
+        observations.observationConfig().observationHandler(new DefaultMeterObservationHandler(meters));
+        QueryPopularity popularity = new QueryPopularity(3_600_000, 100);
+        RecordingScraper store = new RecordingScraper(1);
+        SearchService service = TestSearchService.with(store)
+                .popularity(popularity)
+                .metrics(new SearchMetrics(meters, observations))
+                .build();
+        try {
+            SearchResultDto result = service.search("piña");
+            service.page("piña", 50, 50);
+            service.page("Piña", 100, 50);
+            List<ProductGroupDto> groups = service.compare("piña");
+
+            assertEquals(1, store.asked.size());
+            assertEquals(1, popularity.top(10, 0).get(0).score(), 0.01);
+            assertEquals(1, meters.get("mercado.search").timer().count());
+            // Grouped once and kept with the cached result
+            assertSame(groups, service.compare(result));
+        } finally {
+            service.shutdown();
+        }
+    }
+}
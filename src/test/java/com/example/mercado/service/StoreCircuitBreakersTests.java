@@ -0,0 +1,127 @@
+package com.example.mercado.service;
+
+import com.example.mercado.dto.ProductsDto;
+import com.example.mercado.scraper.ProductScraper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StoreCircuitBreakersTests {
+
+    // Window of 10, opens after 3 failures in a row or half of 4+ calls, stays open 50 ms
+    private static StoreCircuitBreakers breakers() {
+        return new StoreCircuitBreakers(10, 60_000, 4, 0.5, 3, 50, 200, 100, 5_000, 2.0);
+    }
+
+    @Test
+    void opensAfterRepeatedFailuresAndProbesOnceWhenHalfOpen() throws InterruptedException {
+        StoreCircuitBreakers breakers = breakers();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(breakers.tryAcquire("down"));
+            breakers.onFailure("down", 10);
+        }
+        assertEquals(StoreCircuitBreakers.State.OPEN, breakers.state("down"));
+        assertFalse(breakers.tryAcquire("down"));
+
+        Thread.sleep(60);
+        assertTrue(breakers.tryAcquire("down"));
+        assertEquals(StoreCircuitBreakers.State.HALF_OPEN, breakers.state("down"));
+        assertFalse(breakers.tryAcquire("down"), "only one probe at a time");
+
+        // A failed probe opens it again, for twice as long
+        breakers.onFailure("down", 10);
+        Thread.sleep(60);
+        assertFalse(breakers.tryAcquire("down"));
+        Thread.sleep(60);
+        assertTrue(breakers.tryAcquire("down"));
+        breakers.onSuccess("down", 10);
+        assertEquals(StoreCircuitBreakers.State.CLOSED, breakers.state("down"));
+
+        StoreCircuitBreakers.Status status = breakers.status().get(0);
+        assertEquals(2, status.opened());
+        assertEquals(3, status.rejected());
+        assertEquals(1, status.calls());
+    }
+
+    @Test
+    void opensOnFailureRateAndAbandonedProbesFreeTheSlot() throws InterruptedException {
+        StoreCircuitBreakers breakers = breakers();
+        breakers.onSuccess("flaky", 10);
+        breakers.onFailure("flaky", 10);
+        breakers.onSuccess("flaky", 10);
+        assertEquals(StoreCircuitBreakers.State.CLOSED, breakers.state("flaky"));
+        breakers.onFailure("flaky", 10);
+        assertEquals(StoreCircuitBreakers.State.OPEN, breakers.state("flaky"));
+
+        Thread.sleep(60);
+        assertTrue(breakers.tryAcquire("flaky"));
+        breakers.onAbandoned("flaky");
+        assertTrue(breakers.tryAcquire("flaky"));
+    }
+
+    @Test
+    void timeoutFollowsObservedP99WithinBounds() {
+        StoreCircuitBreakers breakers = breakers();
+        assertEquals(5_000, breakers.timeoutMs("fast"), "no samples yet: the maximum");
+        for (long ms : new long[]{200, 220, 250, 300, 400}) breakers.onSuccess("fast", ms);
+        assertEquals(800, breakers.timeoutMs("fast"));
+
+        for (int i = 0; i < 5; i++) breakers.onSuccess("tiny", 5);
+        assertEquals(100, breakers.timeoutMs("tiny"));
+        for (int i = 0; i < 5; i++) breakers.onSuccess("slow", 4_000);
+        assertEquals(5_000, breakers.timeoutMs("slow"));
+
+        assertEquals(0, StoreCircuitBreakers.percentile(new long[0], 0.99));
+        assertEquals(50, StoreCircuitBreakers.percentile(new long[]{10, 20, 30, 40, 50}, 0.99));
+        assertEquals(30, StoreCircuitBreakers.percentile(new long[]{10, 20, 30, 40, 50}, 0.5));
+    }
+
+    @Test
+    void searchesSkipAStoreWhileItsCircuitIsOpenAndStopSlowStoresAtTheirTimeout() {
+        AtomicInteger failingCalls = new AtomicInteger();
+        ProductScraper failing = new ProductScraper() {
+            @Override
+            public List<ProductsDto> scrape(String encodedQuery) throws IOException {
+                failingCalls.incrementAndGet();
+                throw new IOException("503");
+            }
+
+            @Override
+            public String name() {
+                return "failing";
+            }
+        };
+        ProductScraper slow = new ProductScraper() {
+            @Override
+            public List<ProductsDto> scrape(String encodedQuery) throws InterruptedException {
+                Thread.sleep(2_000);
+                return List.of();
+            }
+
+            @Override
+            public String name() {
+                return "slow";
+            }
+        };
+        StoreCircuitBreakers breakers = new StoreCircuitBreakers(10, 60_000, 4, 0.5, 3, 60_000, 60_000, 100, 300, 2.0);
+        SearchService service = TestSearchService.with(failing, slow).breakers(breakers).build();
+        try {
+            for (String q : List.of("arroz", "leche", "azucar", "yerba", "cafe")) {
+                long start = System.currentTimeMillis();
+                assertEquals(List.of("failing", "slow"), service.search(q).getOmittedStores().stream().sorted().toList());
+                assertTrue(System.currentTimeMillis() - start < 1_500, "slow store cut at its own timeout");
+            }
+            assertEquals(3, failingCalls.get());
+            assertEquals(StoreCircuitBreakers.State.OPEN, breakers.state("failing"));
+            assertEquals(StoreCircuitBreakers.State.OPEN, breakers.state("slow"));
+        } finally {
+            service.shutdown();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.mercado.service;
+
+import com.example.mercado.scraper.ProductScraper;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+
+/**
+ * Builds a {@link SearchService} outside the Spring context. Everything it depends on starts from a default
+ * that keeps tests fast and quiet (no price history on disk, no metrics, 60 s caches, 5 s deadline); a test
+ * only sets what it is about, so a new constructor parameter is added here once.
+ */
+final class TestSearchService {
+
+    private final List<ProductScraper> scrapers;
+    private StoreResultCache storeCache = new StoreResultCache(new MockEnvironment(), 60_000, 60_000, 0, 100);
+    private CatalogIndex catalog = new CatalogIndex(60_000, 60_000, 1_000);
+    private QueryPopularity popularity = new QueryPopularity(60_000, 100);
+    private PriceHistory history = new PriceHistory(null, 0, 0, 1);
+    private StoreCircuitBreakers breakers = new StoreCircuitBreakers(10, 60_000, 4, 0.5, 3, 60_000, 60_000, 100, 5_000, 2.0);
+    private SearchMetrics metrics = SearchMetrics.noop();
+    private long cacheTtlMs = 60_000;
+    private long cacheMaxStaleMs = 0;
+    private long cacheMaxProducts = 1_000;
+    private long deadlineMs = 5_000;
+
+    private TestSearchService(List<ProductScraper> scrapers) {
+        this.scrapers = scrapers;
+    }
+
+    static TestSearchService with(ProductScraper... scrapers) {
+        return new TestSearchService(List.of(scrapers));
+    }
+
+    TestSearchService storeCache(StoreResultCache storeCache) {
+        this.storeCache = storeCache;
+        return this;
+    }
+
+    TestSearchService catalog(CatalogIndex catalog) {
+        this.catalog = catalog;
+        return this;
+    }
+
+    TestSearchService popularity(QueryPopularity popularity) {
+        this.popularity = popularity;
+        return this;
+    }
+
+    TestSearchService breakers(StoreCircuitBreakers breakers) {
+        this.breakers = breakers;
+        return this;
+    }
+
+    TestSearchService metrics(SearchMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    TestSearchService cache(long ttlMs, long maxStaleMs) {
+        this.cacheTtlMs = ttlMs;
+        this.cacheMaxStaleMs = maxStaleMs;
+        return this;
+    }
+
+    SearchService build() {
+        return new SearchService(scrapers, storeCache, catalog, popularity, history, breakers, metrics,
+                cacheTtlMs, cacheMaxStaleMs, cacheMaxProducts, deadlineMs);
+    }
+}
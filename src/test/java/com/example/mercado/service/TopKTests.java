@@ -0,0 +1,72 @@
+package com.example.mercado.service;
+
+import com.example.mercado.dto.ProductsDto;
+import com.example.mercado.dto.ResultPageDto;
+import com.example.mercado.dto.SearchResultDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TopKTests {
+
+    private static ProductsDto product(String name, long price) {
+        return ProductsDto.builder().name(name).price(price).build();
+    }
+
+    private static List<ProductsDto> random(Random random, int n, String prefix) {
+        List<ProductsDto> out = new ArrayList<>();
+        for (int i = 0; i < n; i++) out.add(product(prefix + " " + i, 1_000 + random.nextInt(500)));
+        return out;
+    }
+
+    @Test
+    void keepsTheSameFirstItemsAsAFullSort() {
+        List<ProductsDto> products = random(new Random(7), 1_000, "Leche");
+        List<ProductsDto> sorted = new ArrayList<>(products);
+        sorted.sort(SearchService.BY_PRICE);
+
+        assertEquals(sorted.subList(0, 25), TopK.first(products, 25, SearchService.BY_PRICE));
+        assertEquals(sorted, TopK.first(products, 5_000, SearchService.BY_PRICE));
+        assertEquals(List.of(), TopK.first(products, 0, SearchService.BY_PRICE));
+    }
+
+    @Test
+    void mergesSortedListsIntoOneSortedList() {
+        Random random = new Random(11);
+        List<List<ProductsDto>> perStore = new ArrayList<>();
+        List<ProductsDto> all = new ArrayList<>();
+        for (int s = 0; s < 6; s++) {
+            List<ProductsDto> store = random(random, s * 40, "Store" + s);
+            store.sort(SearchService.BY_PRICE);
+            perStore.add(store);
+            all.addAll(store);
+        }
+        all.sort(SearchService.BY_PRICE);
+
+        assertEquals(all, TopK.merge(perStore, SearchService.BY_PRICE));
+        assertEquals(List.of(), TopK.merge(List.<List<ProductsDto>>of(), Comparator.comparing(ProductsDto::getName)));
+    }
+
+    @Test
+    void pagesAreSlicesOfTheSortedViewWithTheOffsetClamped() {
+        List<ProductsDto> products = random(new Random(3), 120, "Arroz");
+        products.sort(SearchService.BY_PRICE);
+        SearchResultDto result = SearchResultDto.builder().products(products).omittedStores(List.of("Stock")).build();
+
+        ResultPageDto second = SearchService.page(result, 50, 50);
+        assertEquals(products.subList(50, 100), second.getProducts());
+        assertEquals(50, second.getOffset());
+        assertEquals(120, second.getTotal());
+        assertEquals(List.of("Stock"), second.getOmittedStores());
+
+        assertEquals(products.subList(100, 120), SearchService.page(result, 100, 50).getProducts());
+        assertEquals(0, SearchService.page(result, 500, 50).getProducts().size());
+        assertEquals(120, SearchService.page(result, 500, 50).getOffset());
+        assertEquals(products.subList(0, 10), SearchService.page(result, -5, 10).getProducts());
+    }
+}